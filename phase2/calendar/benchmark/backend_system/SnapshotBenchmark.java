@@ -0,0 +1,69 @@
+package backend_system;
+
+import benchmark.Benchmark;
+import benchmark.CalendarBenchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmarks of SerHelper, which writes and reads the snapshot of a calendar, both in the binary format and in
+ * the default serialization that earlier versions wrote. They are in this package as SerHelper is not public.
+ */
+public class SnapshotBenchmark {
+
+    /**
+     * This method returns the benchmarks of SerHelper.
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> bs = new ArrayList<>();
+        for (boolean binary : new boolean[] {true, false}) {
+            String format = binary ? "" : "(serialization)";
+            bs.add(new Snapshot("SerHelper.write" + format, binary) {
+                @Override
+                protected Object run(int i) throws IOException {
+                    helper.write(calendar);
+                    return helper;
+                }
+            });
+            bs.add(new Snapshot("SerHelper.read" + format, binary) {
+                @Override
+                protected Object run(int i) throws IOException, ClassNotFoundException {
+                    return helper.read();
+                }
+            });
+        }
+        return bs;
+    }
+
+    private abstract static class Snapshot extends Benchmark {
+        private final boolean binary;
+        private File file;
+        SerHelper<Calendar> helper;
+        Calendar calendar;
+
+        Snapshot(String name, boolean binary) {
+            super(name);
+            this.binary = binary;
+        }
+
+        @Override
+        protected void setUp(int size) throws IOException {
+            calendar = CalendarBenchmark.build("e", size, 1);
+            file = Files.createTempFile("calendar", ".ser").toFile();
+            file.delete();
+            helper = new SerHelper<>(file, calendar, binary ? BinaryFormat.CALENDAR : null);
+        }
+
+        @Override
+        protected void tearDown() {
+            file.delete();
+            calendar = null;
+            helper = null;
+        }
+    }
+}
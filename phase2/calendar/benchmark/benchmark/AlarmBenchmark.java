@@ -0,0 +1,73 @@
+package benchmark;
+
+import backend_system.Alarm;
+import backend_system.entities.Alert;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmarks of Alarm. The alarm of a given size has that many alerts, one a minute from the time the Clock is at
+ * on, so none of them goes off while the benchmarks run.
+ */
+public class AlarmBenchmark {
+
+    private static Alarm build(int size) {
+        Alarm alarm = new Alarm();
+        for (int i = 0; i < size; ++i)
+            alarm.add("a" + i, CalendarBenchmark.NOW.plusMinutes(i + 1));
+        return alarm;
+    }
+
+    /**
+     * The time of the alert added by an operation, spread over a year so that it falls among the alerts there are.
+     */
+    private static LocalDateTime later(int i) {
+        return CalendarBenchmark.NOW.plusSeconds(60 + i * 7919L % (365L * 24 * 60 * 60));
+    }
+
+    /**
+     * This method returns the benchmarks of Alarm.
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> bs = new ArrayList<>();
+        bs.add(new Benchmark("Alarm.add") {
+            private Alarm alarm;
+
+            @Override
+            protected void setUp(int size) {
+                alarm = build(size);
+            }
+
+            @Override
+            protected Object run(int i) {
+                alarm.add("new" + i, later(i));
+                return alarm;
+            }
+
+            @Override
+            protected void afterIteration(int operations) {
+                for (int k = 0; k < operations; ++k)
+                    alarm.remove(new Alert("new" + k, later(k)));
+            }
+        });
+        bs.add(new Benchmark("Alarm.add+next") {
+            private Alarm alarm;
+
+            @Override
+            protected void setUp(int size) {
+                alarm = build(size);
+            }
+
+            @Override
+            protected Object run(int i) {
+                // the alert is due at once, so next hands it back among all the alerts that are not
+                alarm.add("due" + i, CalendarBenchmark.NOW.minusSeconds(1));
+                return alarm.next();
+            }
+        });
+        return bs;
+    }
+}
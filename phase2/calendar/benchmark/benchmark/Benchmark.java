@@ -0,0 +1,63 @@
+package benchmark;
+
+/**
+ * This class is one benchmark of the suite. It is set up once for every size it is run at, and then its operation is
+ * called again and again for a number of timed iterations. The state changed by the operations can be put back
+ * between the iterations, which are not timed.
+ */
+public abstract class Benchmark {
+    private final String name;
+
+    /**
+     * Constructor of the class.
+     * @param name the name of the benchmark, e.g. the method it measures
+     */
+    protected Benchmark(String name) {
+        this.name = name;
+    }
+
+    /**
+     * This is the getter of the name of the benchmark.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This method builds the state of the benchmark.
+     * @param size the number of events, alerts or notes in the state
+     * @throws Exception an exception in setting up
+     */
+    protected abstract void setUp(int size) throws Exception;
+
+    /**
+     * This method runs one operation. Its result is handed to the harness so that it is not optimized away.
+     * @param i the number of the operation in the iteration, from 0
+     * @return the result of the operation
+     * @throws Exception an exception in the operation
+     */
+    protected abstract Object run(int i) throws Exception;
+
+    /**
+     * This method is called before each iteration, warm-up or timed.
+     * @throws Exception an exception in setting up
+     */
+    protected void beforeIteration() throws Exception {
+    }
+
+    /**
+     * This method is called after each iteration, e.g. to undo the changes of the operations.
+     * @param operations the number of operations run in the iteration
+     * @throws Exception an exception in cleaning up
+     */
+    protected void afterIteration(int operations) throws Exception {
+    }
+
+    /**
+     * This method lets go of the state once a size is done.
+     * @throws Exception an exception in cleaning up
+     */
+    protected void tearDown() throws Exception {
+    }
+}
@@ -0,0 +1,34 @@
+package benchmark;
+
+import backend_system.SnapshotBenchmark;
+import clock.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The benchmark suite of the hot paths of Calendar, NoteManager, Alarm and SerHelper. Each benchmark is run at
+ * calendar sizes from a thousand to a million events by default, e.g.
+ *     java -Xmx4g -cp out benchmark.Benchmarks -size 1000,100000 -bench Calendar -csv results.csv
+ * See Harness.parse for the options. The results of two runs can be compared to find regressions, or to compare a new
+ * index structure with the old one.
+ */
+public class Benchmarks {
+
+    /**
+     * This method runs the suite.
+     * @param args the options
+     * @throws Exception an exception in a benchmark
+     */
+    public static void main(String[] args) throws Exception {
+        Clock.init(null);
+        Clock.setSpeed(0);
+        Clock.jumpTo(CalendarBenchmark.NOW);
+        List<Benchmark> bs = new ArrayList<>();
+        bs.addAll(CalendarBenchmark.all());
+        bs.addAll(NoteManagerBenchmark.all());
+        bs.addAll(AlarmBenchmark.all());
+        bs.addAll(SnapshotBenchmark.all());
+        Harness.parse(args).run(bs);
+    }
+}
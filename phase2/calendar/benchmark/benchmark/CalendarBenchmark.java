@@ -0,0 +1,191 @@
+package benchmark;
+
+import backend_system.Calendar;
+import backend_system.entities.Event;
+import clock.Clock;
+import clock.Time;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The benchmarks of Calendar. The events of a calendar of a given size start at random times over five years around
+ * the time the Clock is at, and last from half an hour to four hours; one event in ten has one of a hundred tags.
+ */
+public class CalendarBenchmark {
+    /**
+     * The time the Clock is at while the benchmarks run.
+     */
+    public static final LocalDateTime NOW = LocalDateTime.parse("2020-03-07T12:00");
+
+    /**
+     * The number of the events of a page shown to the user, which the benchmarks read from the lists they get.
+     */
+    static final int PAGE = 20;
+
+    private static final long SPAN_MINUTES = 5L * 365 * 24 * 60;
+
+    /**
+     * This method builds a calendar of random events. The same seed gives the same calendar.
+     * @param name the name of the calendar, which the names of its events start with
+     * @param size the number of events
+     * @param seed the seed of the random events
+     * @return the calendar
+     */
+    public static Calendar build(String name, int size, long seed) {
+        Calendar c = new Calendar(name);
+        Random random = new Random(seed);
+        for (int i = 0; i < size; ++i) {
+            Event e = randomEvent(name + i, random);
+            c.addEvent(e);
+            if (i % 10 == 0)
+                c.addTagToEvent("tag" + random.nextInt(100), e);
+        }
+        return c;
+    }
+
+    private static Event randomEvent(String name, Random random) {
+        LocalDateTime start = randomTime(random);
+        return new Event(name, start, start.plusMinutes(30 + random.nextInt(211)));
+    }
+
+    private static LocalDateTime randomTime(Random random) {
+        return NOW.minusMinutes(SPAN_MINUTES / 2).plusMinutes((long) (random.nextDouble() * SPAN_MINUTES));
+    }
+
+    /**
+     * This method reads the first page of a list, as the user interface does.
+     */
+    static Object page(List<Event> events) {
+        Event last = null;
+        for (int k = 0; k < PAGE && k < events.size(); ++k)
+            last = events.get(k);
+        return last;
+    }
+
+    /**
+     * This method returns the benchmarks of Calendar.
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        List<Benchmark> bs = new ArrayList<>();
+        bs.add(new Benchmark("Calendar.addEvent") {
+            private Calendar c;
+            private Random random;
+
+            @Override
+            protected void setUp(int size) {
+                c = build("e", size, 1);
+                random = new Random(2);
+            }
+
+            @Override
+            protected Object run(int i) {
+                Event e = randomEvent("new" + i, random);
+                c.addEvent(e);
+                return e;
+            }
+
+            @Override
+            protected void afterIteration(int operations) {
+                for (int k = 0; k < operations; ++k)
+                    c.deleteEvent("new" + k);
+            }
+        });
+        for (Time time : Arrays.asList(Time.PAST, Time.ONGOING, Time.FUTURE)) {
+            bs.add(new Benchmark("Calendar.getEvents(" + time + ")") {
+                private Calendar c;
+                private final LocalDateTime[] jumps = new LocalDateTime[1024];
+
+                @Override
+                protected void setUp(int size) {
+                    c = build("e", size, 1);
+                    Random random = new Random(3);
+                    for (int k = 0; k < jumps.length; ++k)
+                        jumps[k] = randomTime(random);
+                }
+
+                @Override
+                protected Object run(int i) {
+                    Clock.jumpTo(jumps[i & (jumps.length - 1)]);
+                    return page(c.getEvents(time));
+                }
+
+                @Override
+                protected void afterIteration(int operations) {
+                    Clock.jumpTo(NOW);
+                }
+            });
+        }
+        bs.add(new Benchmark("Calendar.searchByName") {
+            private Calendar c;
+            private int size;
+
+            @Override
+            protected void setUp(int size) {
+                c = build("e", size, 1);
+                this.size = size;
+            }
+
+            @Override
+            protected Object run(int i) {
+                return c.searchByName("e" + (i * 7919L % size));
+            }
+        });
+        bs.add(new Benchmark("Calendar.searchByDate") {
+            private Calendar c;
+            private final LocalDate[] dates = new LocalDate[1024];
+
+            @Override
+            protected void setUp(int size) {
+                c = build("e", size, 1);
+                Random random = new Random(4);
+                for (int k = 0; k < dates.length; ++k)
+                    dates[k] = randomTime(random).toLocalDate();
+            }
+
+            @Override
+            protected Object run(int i) {
+                return c.searchByDate(dates[i & (dates.length - 1)]);
+            }
+        });
+        bs.add(new Benchmark("Calendar.searchByTag") {
+            private Calendar c;
+
+            @Override
+            protected void setUp(int size) {
+                c = build("e", size, 1);
+            }
+
+            @Override
+            protected Object run(int i) {
+                return c.searchByTag("tag" + i % 100);
+            }
+        });
+        bs.add(new Benchmark("Calendar.mergeCalendars") {
+            private final List<Calendar> cs = new ArrayList<>();
+
+            @Override
+            protected void setUp(int size) {
+                cs.clear();
+                for (int k = 0; k < 4; ++k)
+                    cs.add(build("e" + k + "-", size / 4, 5 + k));
+            }
+
+            @Override
+            protected Object run(int i) {
+                return page(Calendar.mergeCalendars(cs).getEvents(Time.FUTURE));
+            }
+
+            @Override
+            protected void tearDown() {
+                cs.clear();
+            }
+        });
+        return bs;
+    }
+}
@@ -0,0 +1,151 @@
+package benchmark;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * This class runs benchmarks and reports the average time of an operation. Each benchmark is run at every size: it is
+ * set up, warmed up for a few iterations so that the JIT has compiled it, and then timed for a few more iterations.
+ * An iteration calls the operation in batches until its time is up, so reading the clock does not weigh on short
+ * operations.
+ */
+public class Harness {
+    private static volatile Object never = new Object();
+    private static Object escaped;
+
+    private int[] sizes = {1_000, 10_000, 100_000, 1_000_000};
+    private int warmups = 3, iterations = 5;
+    private long iterationNanos = 500_000_000L;
+    private Pattern filter = Pattern.compile(".*");
+    private String csv;
+
+    /**
+     * This method reads the options of a run:
+     * -size 1000,10000  the sizes to run at
+     * -wi 3             the number of warm-up iterations
+     * -i 5              the number of timed iterations
+     * -time 500         the time of an iteration in milliseconds
+     * -bench regex      only the benchmarks whose names contain a match
+     * -csv file         also write the results to a CSV file
+     * @param args the command line arguments
+     * @return the harness
+     */
+    public static Harness parse(String[] args) {
+        Harness h = new Harness();
+        for (int k = 0; k + 1 < args.length; k += 2) {
+            String value = args[k + 1];
+            switch (args[k]) {
+                case "-size":
+                    String[] ss = value.split(",");
+                    h.sizes = new int[ss.length];
+                    for (int i = 0; i < ss.length; ++i)
+                        h.sizes[i] = Integer.parseInt(ss[i].trim().replace("_", ""));
+                    break;
+                case "-wi":
+                    h.warmups = Integer.parseInt(value);
+                    break;
+                case "-i":
+                    h.iterations = Integer.parseInt(value);
+                    break;
+                case "-time":
+                    h.iterationNanos = Long.parseLong(value) * 1_000_000L;
+                    break;
+                case "-bench":
+                    h.filter = Pattern.compile(value);
+                    break;
+                case "-csv":
+                    h.csv = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[k]);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * This method runs the benchmarks whose names match at every size and prints the results as they come.
+     * @param benchmarks the benchmarks
+     * @throws Exception an exception in a benchmark
+     */
+    public void run(List<Benchmark> benchmarks) throws Exception {
+        List<String> rows = new ArrayList<>();
+        rows.add("benchmark,size,ns_per_op,error,iterations");
+        System.out.printf("%-36s %10s %14s %12s%n", "Benchmark", "Size", "ns/op", "+- error");
+        for (Benchmark b : benchmarks) {
+            if (!filter.matcher(b.getName()).find())
+                continue;
+            for (int size : sizes) {
+                double[] result = measure(b, size);
+                System.out.printf(Locale.ROOT, "%-36s %10d %14.1f %12.1f%n", b.getName(), size, result[0], result[1]);
+                rows.add(String.format(Locale.ROOT, "%s,%d,%.1f,%.1f,%d", b.getName(), size, result[0], result[1],
+                        iterations));
+            }
+        }
+        if (csv != null) {
+            try (PrintWriter out = new PrintWriter(new FileWriter(csv))) {
+                for (String row : rows)
+                    out.println(row);
+            }
+        }
+    }
+
+    /**
+     * This method times a benchmark at a size.
+     * @return the mean time of an operation and the standard deviation of the means of the iterations, in nanoseconds
+     */
+    private double[] measure(Benchmark b, int size) throws Exception {
+        b.setUp(size);
+        try {
+            int batch = 1;
+            for (int w = 0; w < warmups; ++w)
+                batch = (int) iterate(b, batch)[1];
+            double[] means = new double[iterations];
+            for (int k = 0; k < iterations; ++k) {
+                long[] r = iterate(b, batch);
+                means[k] = (double) r[0] / r[2];
+            }
+            double mean = 0, var = 0;
+            for (double m : means)
+                mean += m / means.length;
+            for (double m : means)
+                var += (m - mean) * (m - mean) / Math.max(1, means.length - 1);
+            return new double[] {mean, Math.sqrt(var)};
+        } finally {
+            b.tearDown();
+        }
+    }
+
+    /**
+     * This method runs one iteration. The batch grows while a batch takes less than a hundredth of the iteration.
+     * @return the time taken, the batch for the next iteration and the number of operations
+     */
+    private long[] iterate(Benchmark b, int batch) throws Exception {
+        b.beforeIteration();
+        int i = 0;
+        long start = System.nanoTime(), now = start;
+        while (now - start < iterationNanos) {
+            long before = now;
+            for (int j = 0; j < batch; ++j)
+                consume(b.run(i++));
+            now = System.nanoTime();
+            if (now - before < iterationNanos / 100 && batch < 1 << 20)
+                batch *= 2;
+        }
+        b.afterIteration(i);
+        return new long[] {now - start, batch, i};
+    }
+
+    /**
+     * This method keeps a result alive, so that the JIT cannot drop the work that made it.
+     */
+    private static void consume(Object o) {
+        if (o == never)
+            escaped = o;
+    }
+}
@@ -0,0 +1,233 @@
+package benchmark;
+
+import calendar_simulation.CalendarSystem;
+import clock.Clock;
+
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * This class replays the traces of a Workload through CalendarSystem, the way the user interface calls it, and reports
+ * the throughput and the percentiles of the latency of each operation, e.g.
+ *     java -Xmx4g -cp out benchmark.LoadDriver -users 200 -events 500 -ops 100000 -trace mix.tsv
+ * It writes the data to usr/ in the directory it runs in, which has to be empty. The population trace is replayed first
+ * and is not measured; then the mixed trace is replayed and measured. With -trace, the mixed trace is read from the
+ * file if it exists, and written to it otherwise, so that the same trace can be replayed against another version.
+ *
+ * An operation on an event first looks the event up and selects it, as the user would pick it from the list shown;
+ * only the operation itself is timed. An operation that cannot be done, e.g. a search that finds nothing, is counted as
+ * a miss.
+ */
+public class LoadDriver {
+    private static final Set<String> ON_EVENT = new HashSet<>(Arrays.asList(
+            "SERIES", "TAG", "MEMO", "ALERT", "ALERT_EVERY", "EDIT_TIME", "DELETE"));
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final CalendarSystem cs;
+    private final Map<String, Latencies> latencies = new TreeMap<>();
+
+    private LoadDriver(CalendarSystem cs) {
+        this.cs = cs;
+    }
+
+    /**
+     * This method generates the traces, replays them and prints the report.
+     * @param args -seed n, -users n, -events n (the mean number of events of a user), -ops n and -trace file
+     * @throws Exception an exception in replaying
+     */
+    public static void main(String[] args) throws Exception {
+        long seed = 1;
+        int users = 50, events = 200, ops = 20_000;
+        File traceFile = null;
+        for (int k = 0; k + 1 < args.length; k += 2) {
+            String value = args[k + 1];
+            switch (args[k]) {
+                case "-seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "-users":
+                    users = Integer.parseInt(value);
+                    break;
+                case "-events":
+                    events = Integer.parseInt(value);
+                    break;
+                case "-ops":
+                    ops = Integer.parseInt(value);
+                    break;
+                case "-trace":
+                    traceFile = new File(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[k]);
+            }
+        }
+        if (new File("usr").exists())
+            throw new IllegalStateException("The driver writes to usr/, so it has to run in an empty directory.");
+
+        Clock.init(null);
+        Clock.setSpeed(0);
+        Clock.jumpTo(CalendarBenchmark.NOW);
+        Workload workload = new Workload(seed, users, events);
+        List<String[]> population = workload.population();
+        List<String[]> mix;
+        if (traceFile != null && traceFile.exists()) {
+            mix = Workload.read(traceFile);
+        } else {
+            mix = workload.mix(ops);
+            if (traceFile != null)
+                Workload.write(mix, traceFile);
+        }
+
+        LoadDriver driver = new LoadDriver(CalendarSystem.getInstance());
+        long start = System.nanoTime();
+        driver.replay(population);
+        System.out.printf(Locale.ROOT, "Population: %d operations in %.1f s%n", population.size(),
+                (System.nanoTime() - start) / 1e9);
+        driver.latencies.clear();
+        start = System.nanoTime();
+        driver.replay(mix);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf(Locale.ROOT, "Mix: %d operations in %.1f s, %.0f ops/s%n", mix.size(), seconds,
+                mix.size() / seconds);
+        driver.report();
+    }
+
+    private void replay(List<String[]> trace) throws Exception {
+        for (String[] op : trace) {
+            Latencies l = latencies.computeIfAbsent(op[0], k -> new Latencies());
+            if (ON_EVENT.contains(op[0]) && !select(op[1])) {
+                ++l.misses;
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean done = perform(op);
+            l.add(System.nanoTime() - start);
+            if (!done)
+                ++l.misses;
+        }
+    }
+
+    /**
+     * This method selects an event of the calendars shown.
+     * @return true if the event is shown
+     */
+    private boolean select(String event) {
+        if (!cs.currentCalendarIsNotNull() || cs.searchByName(event) != 1)
+            return false;
+        cs.selectEvent(0);
+        return true;
+    }
+
+    /**
+     * This method performs one operation.
+     * @return true if it was done
+     */
+    private boolean perform(String[] op) throws Exception {
+        switch (op[0]) {
+            case "ACCOUNT":
+                cs.createAccount(op[1], op[2]);
+                return true;
+            case "LOGIN":
+                return cs.login(op[1], op[2]) == 1;
+            case "LOGOFF":
+                return cs.logoff() == 1;
+            case "CALENDAR":
+                cs.createCalendar(op[1]);
+                return true;
+            case "CALENDARS":
+                cs.updateCurrentCalendar(new ArrayList<>(Arrays.asList(op[1].split("\\|"))));
+                return cs.currentCalendarIsNotNull();
+            case "VIEW":
+                cs.chooseWhatEventsToDisplay(false, true, true);
+                return true;
+            case "SEARCH_NAME":
+                return cs.searchByName(op[1]) == 1;
+            case "SEARCH_TAG":
+                return cs.searchByTag(op[1]) == 1;
+            case "SEARCH_DATE":
+                return cs.searchByDate(LocalDate.parse(op[1])) == 1;
+            case "CREATE":
+                if (cs.hasEventWithSameName(op[1]))
+                    return false;
+                cs.createEvent(op[1], LocalDateTime.parse(op[2]), LocalDateTime.parse(op[3]));
+                return true;
+            case "CREATE_SERIES":
+                cs.createEvent(op[1], LocalDateTime.parse(op[2]), LocalDateTime.parse(op[3]), op[4],
+                        Duration.ofHours(Long.parseLong(op[5])), Integer.parseInt(op[6]));
+                return true;
+            case "SERIES":
+                cs.addIntoSeries(op[2]);
+                return true;
+            case "TAG":
+                cs.addTagToEvent(op[2]);
+                return true;
+            case "MEMO":
+                cs.addNewMemo(op[2]);
+                return true;
+            case "ALERT":
+                return cs.setAlert(op[2], LocalDateTime.parse(op[3])) == 1;
+            case "ALERT_EVERY":
+                return cs.setAlert(op[2], LocalDateTime.parse(op[3]), Duration.ofHours(Long.parseLong(op[4]))) == 1;
+            case "EDIT_TIME":
+                return cs.editEventTime(LocalDateTime.parse(op[3]), LocalDateTime.parse(op[2])) == 1;
+            case "DELETE":
+                cs.deleteCurrentEvent();
+                return true;
+            case "SEND":
+                return cs.sendMessage(op[1], op[2], op[3]) == 1;
+            case "RECEIVE":
+                return !cs.receiveMessages().isEmpty();
+            case "SHARE":
+                return cs.addUserToEvent(op[1], op[2]) == 1;
+            case "NEXT_ALERT":
+                return cs.getNextAlert() != null;
+            default:
+                throw new IllegalArgumentException("Unknown operation " + op[0]);
+        }
+    }
+
+    private void report() {
+        System.out.printf("%-14s %8s %7s %10s", "Operation", "Count", "Misses", "ops/s");
+        for (double p : PERCENTILES)
+            System.out.printf("%10s", "p" + (p == Math.rint(p) ? Integer.toString((int) p) : Double.toString(p)));
+        System.out.printf("%10s%n", "max");
+        System.out.println("(latencies in microseconds)");
+        for (Map.Entry<String, Latencies> entry : latencies.entrySet()) {
+            Latencies l = entry.getValue();
+            long[] sorted = Arrays.copyOf(l.nanos, l.count);
+            Arrays.sort(sorted);
+            long total = 0;
+            for (long t : sorted)
+                total += t;
+            System.out.printf(Locale.ROOT, "%-14s %8d %7d %10.0f", entry.getKey(), l.count, l.misses,
+                    total == 0 ? 0 : l.count / (total / 1e9));
+            for (double p : PERCENTILES)
+                System.out.printf(Locale.ROOT, "%10.1f", percentile(sorted, p) / 1e3);
+            System.out.printf(Locale.ROOT, "%10.1f%n", sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e3);
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0)
+            return 0;
+        int rank = (int) Math.ceil(p / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, rank))];
+    }
+
+    /**
+     * The latencies of the timed operations of one kind.
+     */
+    private static final class Latencies {
+        private long[] nanos = new long[64];
+        private int count, misses;
+
+        private void add(long t) {
+            if (count == nanos.length)
+                nanos = Arrays.copyOf(nanos, count * 2);
+            nanos[count++] = t;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import backend_system.entities.Event;
+import backend_system.entities.Tag;
+import backend_system.managers.NoteManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The benchmarks of NoteManager. The manager of a given size has that many events, ten to a tag.
+ */
+public class NoteManagerBenchmark {
+
+    /**
+     * This method returns the benchmarks of NoteManager.
+     * @return the benchmarks
+     */
+    public static List<Benchmark> all() {
+        return Collections.singletonList(new Benchmark("NoteManager.editEntireNote") {
+            private NoteManager manager;
+            private String[] names;
+
+            @Override
+            protected void setUp(int size) {
+                manager = new NoteManager();
+                names = new String[Math.max(1, size / 10)];
+                for (int k = 0; k < names.length; ++k)
+                    names[k] = "tag" + k;
+                List<Event> events = new ArrayList<>(size);
+                for (int i = 0; i < size; ++i)
+                    events.add(new Event("e" + i, CalendarBenchmark.NOW.plusHours(i),
+                            CalendarBenchmark.NOW.plusHours(i + 1)));
+                for (int i = 0; i < size; ++i)
+                    manager.addNotedEvent(new Tag(names[i % names.length]), events.get(i));
+            }
+
+            @Override
+            protected Object run(int i) {
+                // each tag is renamed back and forth, so the number of tags stays the same
+                int k = i % names.length;
+                String renamed = names[k].endsWith("'") ? "tag" + k : names[k] + "'";
+                List<Event> events = manager.editEntireNote(new Tag(names[k]), new Tag(renamed));
+                names[k] = renamed;
+                return events;
+            }
+        });
+    }
+}
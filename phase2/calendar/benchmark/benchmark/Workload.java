@@ -0,0 +1,408 @@
+package benchmark;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * This class generates the data and the use of the calendar system as traces of operations of the user interface, so
+ * that they can be replayed through CalendarSystem. The same seed always gives the same traces.
+ *
+ * The population trace creates the accounts, and for each user its calendars, events, series, tags, memos, alerts,
+ * events of the common calendar shared with other users, and messages. The mixed trace is made of sessions in which a
+ * user logs in, looks at its calendars, searches, changes events and sends and receives messages, and logs off.
+ *
+ * The sizes follow the skew of real use: the number of events of a user is log-normal, so a few users have many times
+ * the mean; the users who log in, the tags that are used and the receivers of messages follow Zipf's law; events are
+ * mostly on weekdays in working hours, and a model of the data is kept so that the operations refer to events that
+ * exist when they are replayed.
+ */
+public class Workload {
+    /**
+     * The password of every generated user.
+     */
+    public static final String PASSWORD = "pw";
+
+    /**
+     * The name of the common calendar in the user interface.
+     */
+    public static final String COMMON = "Common";
+
+    private static final String[] WORDS = ("meeting review project lunch call team budget plan report sync design " +
+            "client demo doctor gym dentist class lecture exam study trip flight hotel dinner party birthday " +
+            "interview standup retro sprint release deadline workshop training coffee walk yoga concert movie " +
+            "groceries rent taxes car repair school pickup soccer piano library volunteer church family friends " +
+            "room 204 building north south office home online zoom notes slides draft final urgent maybe").split(" ");
+    private static final int[] DURATIONS = {30, 45, 60, 60, 60, 90, 120, 120, 180, 240, 480};
+
+    private final Random random;
+    private final int events;
+    private final Zipf tags = new Zipf(200, 1.1), words = new Zipf(WORDS.length, 1.0), people;
+
+    // the model of the data, so that the operations refer to events that exist
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, List<String>> calendars = new HashMap<>();
+    private final Map<String, Map<String, List<String>>> eventsOf = new HashMap<>();
+    private final Map<String, List<String>> shared = new HashMap<>();
+    private final Map<String, List<String>> owned = new HashMap<>();
+    private int serial;
+
+    // the state of the session being generated
+    private String user;
+    private List<String> view = Collections.emptyList();
+    private LocalDateTime created;
+
+    /**
+     * Constructor of the class.
+     * @param seed the seed of the traces
+     * @param users the number of users
+     * @param events the mean number of events of a user
+     */
+    public Workload(long seed, int users, int events) {
+        random = new Random(seed);
+        this.events = events;
+        people = new Zipf(users, 0.8);
+        for (int k = 0; k < users; ++k) {
+            String u = "user" + k;
+            names.add(u);
+            calendars.put(u, new ArrayList<>());
+            eventsOf.put(u, new HashMap<>());
+            shared.put(u, new ArrayList<>());
+            owned.put(u, new ArrayList<>());
+        }
+    }
+
+    /**
+     * This method generates the trace that creates all the data.
+     * @return the trace
+     */
+    public List<String[]> population() {
+        List<String[]> trace = new ArrayList<>();
+        for (String u : names)
+            trace.add(op("ACCOUNT", u, PASSWORD));
+        for (String u : names) {
+            login(trace, u);
+            int cs = 1 + Math.min(4, geometric(0.5));
+            for (int j = 0; j < cs; ++j) {
+                String c = u + "-calendar" + j;
+                trace.add(op("CALENDAR", c));
+                calendars.get(u).add(c);
+                eventsOf.get(u).put(c, new ArrayList<>());
+            }
+            // log-normal with the given mean: exp(sigma^2 / 2) = e^0.32 for sigma = 0.8
+            int n = (int) Math.round(events * Math.exp(0.8 * random.nextGaussian() - 0.32));
+            List<String> targets = new ArrayList<>(calendars.get(u));
+            targets.add(COMMON);
+            for (String c : targets) {
+                select(trace, Collections.singletonList(c));
+                int share = c.equals(COMMON) ? n / 20 : (n - n / 20) / cs;
+                for (int i = 0; i < share; ++i) {
+                    String e = create(trace);
+                    decorate(trace, e);
+                    if (c.equals(COMMON))
+                        for (int k = geometric(0.5); k > 0; --k)
+                            share(trace, e);
+                }
+            }
+            for (int k = geometric(0.25); k > 0; --k)
+                send(trace);
+            logoff(trace);
+        }
+        return trace;
+    }
+
+    /**
+     * This method generates a trace of sessions of mixed operations.
+     * @param operations the number of operations, not counting logging in and off
+     * @return the trace
+     */
+    public List<String[]> mix(int operations) {
+        List<String[]> trace = new ArrayList<>();
+        int done = 0;
+        while (done < operations) {
+            login(trace, names.get(people.next(random)));
+            selectSome(trace);
+            for (int k = 1 + geometric(1.0 / 15); k > 0 && done < operations; --k, ++done)
+                operation(trace);
+            logoff(trace);
+        }
+        return trace;
+    }
+
+    private void operation(List<String[]> trace) {
+        double p = random.nextDouble();
+        String e = visibleEvent();
+        if (p < 0.25) {
+            trace.add(op("VIEW"));
+        } else if (p < 0.30) {
+            selectSome(trace);
+        } else if (p < 0.38) {
+            trace.add(op("SEARCH_NAME", e != null && random.nextDouble() < 0.8 ? e : "missing" + serial++));
+        } else if (p < 0.46) {
+            trace.add(op("SEARCH_TAG", tag()));
+        } else if (p < 0.56) {
+            trace.add(op("SEARCH_DATE", date(random).toString()));
+        } else if (p < 0.66 && view.size() == 1) {
+            create(trace);
+        } else if (p < 0.68 && view.size() == 1 && !view.get(0).equals(COMMON)) {
+            createSeries(trace);
+        } else if (p < 0.73 && e != null) {
+            trace.add(op("TAG", e, tag()));
+        } else if (p < 0.76 && e != null) {
+            trace.add(op("MEMO", e, text(4, 10)));
+        } else if (p < 0.81 && e != null) {
+            LocalDateTime at = CalendarBenchmark.NOW.plusMinutes(1 + random.nextInt(90 * 24 * 60));
+            trace.add(op("ALERT", e, "Reminder: " + e, at.toString()));
+        } else if (p < 0.84 && ownEvent() != null) {
+            LocalDateTime start = time();
+            trace.add(op("EDIT_TIME", ownEvent(), start.toString(), end(start).toString()));
+        } else if (p < 0.86 && ownEvent() != null) {
+            String d = ownEvent();
+            trace.add(op("DELETE", d));
+            for (String c : view)
+                if (!c.equals(COMMON))
+                    eventsOf.get(user).get(c).remove(d);
+        } else if (p < 0.91) {
+            send(trace);
+        } else if (p < 0.96) {
+            trace.add(op("RECEIVE"));
+        } else if (p < 0.98 && !owned.get(user).isEmpty()) {
+            share(trace, pick(owned.get(user)));
+        } else {
+            trace.add(op("NEXT_ALERT"));
+        }
+    }
+
+    private void login(List<String[]> trace, String u) {
+        user = u;
+        view = Collections.emptyList();
+        trace.add(op("LOGIN", u, PASSWORD));
+    }
+
+    private void logoff(List<String[]> trace) {
+        trace.add(op("LOGOFF"));
+        user = null;
+    }
+
+    private void select(List<String[]> trace, List<String> cs) {
+        view = cs;
+        trace.add(op("CALENDARS", String.join("|", cs)));
+    }
+
+    /**
+     * This method shows one calendar of the user, or now and then all of them at once.
+     */
+    private void selectSome(List<String[]> trace) {
+        List<String> all = new ArrayList<>(calendars.get(user));
+        all.add(0, COMMON);
+        if (random.nextDouble() < 0.2)
+            select(trace, all);
+        else
+            select(trace, Collections.singletonList(pick(all)));
+    }
+
+    /**
+     * This method creates an event in the calendar shown, which is a single one.
+     * @return the name of the event
+     */
+    private String create(List<String[]> trace) {
+        String c = view.get(0), e = user + "-event" + serial++;
+        LocalDateTime start = created = time();
+        trace.add(op("CREATE", e, start.toString(), end(start).toString()));
+        if (c.equals(COMMON)) {
+            shared.get(user).add(e);
+            owned.get(user).add(e);
+        } else {
+            eventsOf.get(user).get(c).add(e);
+        }
+        return e;
+    }
+
+    /**
+     * This method creates a weekly or daily series in the own calendar shown.
+     */
+    private void createSeries(List<String[]> trace) {
+        String e = user + "-series" + serial++;
+        LocalDateTime start = time();
+        boolean weekly = random.nextDouble() < 0.7;
+        int number = weekly ? 4 + random.nextInt(49) : 5 + random.nextInt(26);
+        trace.add(op("CREATE_SERIES", e, start.toString(), end(start).toString(), e, weekly ? "168" : "24",
+                Integer.toString(number)));
+        List<String> es = eventsOf.get(user).get(view.get(0));
+        for (int i = 1; i <= number; ++i)
+            es.add(e + " " + i);
+    }
+
+    /**
+     * This method adds tags, memos and alerts to an event just created, and puts some of the events into series.
+     */
+    private void decorate(List<String[]> trace, String e) {
+        if (random.nextDouble() < 0.1 && !view.get(0).equals(COMMON)) {
+            trace.add(op("SERIES", e, user + "-weekly" + random.nextInt(3)));
+        }
+        if (random.nextDouble() < 0.3)
+            for (int k = 1 + Math.min(2, geometric(0.6)); k > 0; --k)
+                trace.add(op("TAG", e, tag()));
+        if (random.nextDouble() < 0.1)
+            trace.add(op("MEMO", e, text(4, 10)));
+        // only the events to come get alerts, as an alert cannot be set in the past
+        double p = random.nextDouble();
+        if (p < 0.35 && created.minusMinutes(15).isAfter(CalendarBenchmark.NOW))
+            trace.add(op("ALERT", e, "Reminder: " + e, created.minusMinutes(15).toString()));
+        else if (p < 0.4 && created.minusDays(7).isAfter(CalendarBenchmark.NOW))
+            trace.add(op("ALERT_EVERY", e, "Daily reminder: " + e, created.minusDays(7).toString(), "24"));
+    }
+
+    private void share(List<String[]> trace, String e) {
+        String to = names.get(people.next(random));
+        if (!shared.get(to).contains(e)) {
+            trace.add(op("SHARE", to, e));
+            shared.get(to).add(e);
+        }
+    }
+
+    private void send(List<String[]> trace) {
+        String to = names.get(people.next(random));
+        String e = random.nextDouble() < 0.2 && !shared.get(user).isEmpty() ? pick(shared.get(user)) : null;
+        trace.add(op("SEND", to, text(3, 12), e));
+    }
+
+    /**
+     * This method picks an event of the calendars shown.
+     * @return the name of the event; null if there is none
+     */
+    private String visibleEvent() {
+        List<String> cs = new ArrayList<>(view);
+        Collections.shuffle(cs, random);
+        for (String c : cs) {
+            List<String> es = c.equals(COMMON) ? shared.get(user) : eventsOf.get(user).get(c);
+            if (!es.isEmpty())
+                return pick(es);
+        }
+        return null;
+    }
+
+    /**
+     * This method picks an event of the own calendars shown, the same one until the operation is generated.
+     */
+    private String ownEvent() {
+        for (String c : view) {
+            if (!c.equals(COMMON)) {
+                List<String> es = eventsOf.get(user).get(c);
+                if (!es.isEmpty())
+                    return es.get(es.size() - 1);
+            }
+        }
+        return null;
+    }
+
+    private String tag() {
+        return "tag" + tags.next(random);
+    }
+
+    private String text(int min, int max) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = min + random.nextInt(max - min + 1); k > 0; --k)
+            sb.append(WORDS[words.next(random)]).append(k > 1 ? " " : "");
+        return sb.toString();
+    }
+
+    /**
+     * This method picks the start of an event within a year of now, on a weekday in working hours most of the time.
+     */
+    private LocalDateTime time() {
+        LocalDate day;
+        do {
+            day = CalendarBenchmark.NOW.toLocalDate().plusDays(random.nextInt(731) - 365);
+        } while (day.getDayOfWeek().compareTo(DayOfWeek.SATURDAY) >= 0 && random.nextDouble() < 0.8);
+        int hour = (int) Math.max(7, Math.min(20, Math.round(13 + 2.5 * random.nextGaussian())));
+        return day.atTime(hour, 15 * random.nextInt(4));
+    }
+
+    private LocalDateTime end(LocalDateTime start) {
+        return start.plusMinutes(DURATIONS[random.nextInt(DURATIONS.length)]);
+    }
+
+    /**
+     * This method picks a date to look at, mostly within a few weeks of now.
+     */
+    private static LocalDate date(Random random) {
+        return CalendarBenchmark.NOW.toLocalDate().plusDays(Math.round(30 * random.nextGaussian()));
+    }
+
+    private int geometric(double p) {
+        return (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private String pick(List<String> list) {
+        return list.get(random.nextInt(list.size()));
+    }
+
+    private static String[] op(String... args) {
+        return args;
+    }
+
+    /**
+     * This method writes a trace to a file, one operation a line with its arguments separated by tabs.
+     * @param trace the trace
+     * @param file the file
+     * @throws IOException an exception in file I/O
+     */
+    public static void write(List<String[]> trace, File file) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file),
+                StandardCharsets.UTF_8))) {
+            for (String[] op : trace) {
+                StringJoiner line = new StringJoiner("\t");
+                for (String arg : op)
+                    line.add(arg == null ? "" : arg);
+                out.println(line);
+            }
+        }
+    }
+
+    /**
+     * This method reads a trace written by write. Empty arguments are read back as null.
+     * @param file the file
+     * @return the trace
+     * @throws IOException an exception in file I/O
+     */
+    public static List<String[]> read(File file) throws IOException {
+        List<String[]> trace = new ArrayList<>();
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] op = line.split("\t", -1);
+                for (int i = 0; i < op.length; ++i)
+                    if (op[i].isEmpty())
+                        op[i] = null;
+                trace.add(op);
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * Draws the ranks 0 to n - 1 with a probability proportional to 1 / (rank + 1)^s.
+     */
+    private static final class Zipf {
+        private final double[] cumulative;
+
+        private Zipf(int n, double s) {
+            cumulative = new double[Math.max(1, n)];
+            double sum = 0;
+            for (int k = 0; k < cumulative.length; ++k)
+                cumulative[k] = sum += 1 / Math.pow(k + 1, s);
+            for (int k = 0; k < cumulative.length; ++k)
+                cumulative[k] /= sum;
+        }
+
+        private int next(Random random) {
+            int k = Arrays.binarySearch(cumulative, random.nextDouble());
+            return Math.min(cumulative.length - 1, k < 0 ? -k - 1 : k);
+        }
+    }
+}
@@ -3,18 +3,23 @@ package UI;
 import calendar_simulation.CalendarSystem;
 import clock.Clock;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.time.Duration;
 
 /**
  * This is the entrance of the program
  */
 public class Main extends Application {
 
+    private static final Duration CHECKPOINT_INTERVAL = Duration.ofSeconds(30);
+    private static final Duration METRICS_INTERVAL = Duration.ofMinutes(1);
+
     /**
      * This method starts the program by loading a scene of GUI
      * @param primaryStage the entrance stage of the GUI
@@ -28,6 +33,8 @@ public class Main extends Application {
             primaryStage.show();}catch (Exception e){
             e.printStackTrace();
         }
+        CalendarSystem.getInstance().startCheckpoints(CHECKPOINT_INTERVAL, Platform::runLater);
+        CalendarSystem.getInstance().startMetricsLog(METRICS_INTERVAL);
     }
 
     /**
@@ -38,5 +45,7 @@ public class Main extends Application {
         Clock.init(new File("clock.txt"));
         launch(args);
         CalendarSystem.getInstance().logoff();
+        CalendarSystem.getInstance().stopCheckpoints();
+        CalendarSystem.getInstance().stopMetricsLog();
     }
 }
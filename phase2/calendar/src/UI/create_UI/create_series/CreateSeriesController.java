@@ -65,8 +65,10 @@ public class CreateSeriesController {
             String repeat = Repeat.getText();
 
             try{
+                // a series without a number of times goes on without end
+                int times = repeat.trim().isEmpty() ? CalendarSystem.FOREVER : Integer.parseInt(repeat.trim());
                 sys.createEvent(name, LocalDateTime.of(startDate, LocalTime.of(Integer.parseInt(startHour), Integer.parseInt(startMin), Integer.parseInt(startSec))),
-                        LocalDateTime.of(endDate, LocalTime.of(Integer.parseInt(endHour), Integer.parseInt(endMin), Integer.parseInt(endSec))), seriesName, Duration.ofDays(Integer.parseInt(freDays)).plusHours(Integer.parseInt(freHours)), Integer.parseInt(repeat));
+                        LocalDateTime.of(endDate, LocalTime.of(Integer.parseInt(endHour), Integer.parseInt(endMin), Integer.parseInt(endSec))), seriesName, Duration.ofDays(Integer.parseInt(freDays)).plusHours(Integer.parseInt(freHours)), times);
                 Stage stage = (Stage) this.createButton.getScene().getWindow();
                 stage.close();
             }catch (Exception e1){
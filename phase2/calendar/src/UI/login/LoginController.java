@@ -54,7 +54,7 @@ public class LoginController {
             //primaryStage.setScene(new Scene(root, 826, 800));
             primaryStage.setScene(new Scene(root));
             primaryStage.show();
-            ReceiveMessages.main();
+            ReceiveMessages.start();
             RingAlerts.start();
         }
         catch(IOException ie){
@@ -1,5 +1,6 @@
 package UI.main_window;
 
+import UI.messaging.ReceiveMessages;
 import UI.messaging.SendMessage;
 import UI.ring_alerts.RingAlerts;
 import UI.search_UI.search_event_by_date.SearchEventByDateController;
@@ -245,6 +246,7 @@ public class MainWindowController {
     private void logOff() throws IOException{
         sys.logoff();
         RingAlerts.end();
+        ReceiveMessages.end();
         Stage stage = (Stage)addEventButton.getScene().getWindow();
         stage.close();
         Stage primaryStage = new Stage();
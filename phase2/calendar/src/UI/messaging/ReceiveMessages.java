@@ -1,6 +1,7 @@
 package UI.messaging;
 
 import calendar_simulation.CalendarSystem;
+import javafx.application.Platform;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
@@ -19,20 +20,44 @@ public class ReceiveMessages {
      */
     public static void main() throws IOException {
         List<String[]> ms = CalendarSystem.getInstance().receiveMessages();
-        for (String[] m: ms) {
-            FXMLLoader loader = new FXMLLoader(ReceiveMessages.class.getResource("ViewMessage.fxml"));
-            Scene scene = new Scene(loader.load());
-            ViewMessage controller = loader.getController();
-            if (m[2] == null) {
-                controller.removeEventRow();
-                controller.set(m[0], "", m[1]);
-            } else {
-                controller.set(m[0], m[2], m[1]);
+        for (String[] m: ms)
+            load(m).showAndWait();
+    }
+
+    /**
+     * This method shows the messages as soon as they arrive, starting with those already there
+     */
+    public static void start() {
+        CalendarSystem.getInstance().startMessages(Platform::runLater, ms -> {
+            try {
+                for (String[] m: ms)
+                    load(m).show();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
-            Stage stage = new Stage();
-            stage.setScene(scene);
-            stage.setTitle("Message");
-            stage.showAndWait();
+        });
+    }
+
+    /**
+     * This method stops showing the messages as they arrive
+     */
+    public static void end() {
+        CalendarSystem.getInstance().stopMessages();
+    }
+
+    private static Stage load(String[] m) throws IOException {
+        FXMLLoader loader = new FXMLLoader(ReceiveMessages.class.getResource("ViewMessage.fxml"));
+        Scene scene = new Scene(loader.load());
+        ViewMessage controller = loader.getController();
+        if (m[2] == null) {
+            controller.removeEventRow();
+            controller.set(m[0], "", m[1]);
+        } else {
+            controller.set(m[0], m[2], m[1]);
         }
+        Stage stage = new Stage();
+        stage.setScene(scene);
+        stage.setTitle("Message");
+        return stage;
     }
 }
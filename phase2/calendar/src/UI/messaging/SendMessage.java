@@ -32,6 +32,9 @@ public class SendMessage {
         } else if (ret == -2) {
             Alert a = new Alert(Alert.AlertType.ERROR, "The event does not exist in the common calendar.");
             a.show();
+        } else if (ret == -3) {
+            Alert a = new Alert(Alert.AlertType.ERROR, "The message cannot be saved.");
+            a.show();
         }
         Window window = receiver.getScene().getWindow();
         if (window instanceof Stage)
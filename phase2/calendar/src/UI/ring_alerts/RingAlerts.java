@@ -1,44 +1,35 @@
 package UI.ring_alerts;
 
 import calendar_simulation.CalendarSystem;
-import javafx.animation.Animation;
-import javafx.animation.KeyFrame;
-import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.scene.control.Alert;
-import javafx.util.Duration;
+
+import java.util.List;
 
 /**
- * This class is responsible for triggering and stopping the alarms
+ * This class is responsible for triggering and stopping the alarms. The alerts are shown as soon as they go off, all
+ * the alerts that go off together in one dialog.
  */
 public class RingAlerts {
 
-    private static final Duration dt = Duration.seconds(5);
     private static CalendarSystem sys = CalendarSystem.getInstance();
-    private static Timeline alarm = new Timeline(new KeyFrame(dt, e -> {
-        if (sys.isLoggedIn()) {
-            String a = sys.getNextAlert();
-            if (a != null) {
-                Alert alert = new Alert(Alert.AlertType.INFORMATION, a);
-                alert.show();
-            }
-        }
-    }));
 
-    static {
-        alarm.setCycleCount(Animation.INDEFINITE);
+    private static void ring(List<String> alerts) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION, String.join("\n", alerts));
+        alert.show();
     }
 
     /**
      * This method triggers the alarm
      */
     public static void start() {
-        alarm.play();
+        sys.startAlerts(Platform::runLater, RingAlerts::ring);
     }
 
     /**
      * This method stops the alarm
      */
     public static void end() {
-        alarm.stop();
+        sys.stopAlerts();
     }
 }
@@ -1,5 +1,6 @@
 package UI.time_magic;
 
+import calendar_simulation.CalendarSystem;
 import clock.Clock;
 import javafx.animation.Animation;
 import javafx.animation.KeyFrame;
@@ -9,12 +10,15 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Label;
+import javafx.scene.control.TextArea;
 import javafx.scene.control.TextField;
 import javafx.util.Duration;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This is the controller of the time magic panel for GUI.
@@ -46,6 +50,26 @@ public class TimeMagic {
         }
     }
 
+    @FXML private void simulate() {
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        LocalDateTime t = LocalDateTime.parse(target.getText(), formatter);
+        if (t.isAfter(Clock.getTime().plusSeconds(1))) {
+            List<String> alerts = new ArrayList<>();
+            int steps = CalendarSystem.getInstance().simulate(t, alerts::addAll);
+            Alert a = new Alert(Alert.AlertType.INFORMATION, "Stopped at " + steps + " times, and " + alerts.size()
+                    + " alerts went off.");
+            if (!alerts.isEmpty()) {
+                TextArea text = new TextArea(String.join("\n", alerts));
+                text.setEditable(false);
+                a.getDialogPane().setExpandableContent(text);
+            }
+            a.show();
+        } else {
+            Alert a = new Alert(Alert.AlertType.ERROR, "Time does not flow backward.");
+            a.show();
+        }
+    }
+
     @FXML private void initialize() {
         initCurrentTime();
         initSpeed();
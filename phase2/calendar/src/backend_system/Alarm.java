@@ -1,19 +1,60 @@
 package backend_system;
 
 import backend_system.entities.Alert;
+import backend_system.entities.AlertRule;
+import clock.Clock;
 
-import java.io.Serializable;
+import java.io.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-import java.util.PriorityQueue;
+import java.util.*;
 
 /**
- * This class represents the alarm set by a user.
+ * This class represents the alarm set by a user. The alerts are kept in a timing wheel, so setting up or removing an
+ * alert does not depend on how many there are. Alerts that go off again and again are kept as rules, ordered by their
+ * next alert, and each alert of a rule is only made when it goes off.
  */
 public class Alarm implements Serializable, Iterator<Alert> {
-    private PriorityQueue<Alert> as = new PriorityQueue<>();
+    private static final long serialVersionUID = -2360537441496716474L;
+
+    /**
+     * The fields of the serialized form, which still has the queue of alerts that earlier versions kept.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("as", PriorityQueue.class),
+            new ObjectStreamField("rules", List.class)
+    };
+
+    private transient TimingWheel as = new TimingWheel();
+    private transient PriorityQueue<AlertRule> rules = newRules();
+    private transient Journal<?> journal;
+    private transient Runnable listener;
+
+    private static PriorityQueue<AlertRule> newRules() {
+        return new PriorityQueue<>(Comparator.comparing(AlertRule::first));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        @SuppressWarnings("unchecked")
+        PriorityQueue<Alert> alerts = (PriorityQueue<Alert>) fields.get("as", null);
+        @SuppressWarnings("unchecked")
+        List<AlertRule> saved = (List<AlertRule>) fields.get("rules", null);
+        as = new TimingWheel();
+        for (Alert a : alerts)
+            as.add(a);
+        rules = newRules();
+        if (saved != null)
+            for (AlertRule rule : saved)
+                addRule(rule);
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("as", new PriorityQueue<>(as.toList()));
+        fields.put("rules", new ArrayList<>(rules));
+        out.writeFields();
+    }
 
     /**
      * This is the new overriding version of hasNext for iteration.
@@ -22,7 +63,29 @@ public class Alarm implements Serializable, Iterator<Alert> {
      */
     @Override
     public boolean hasNext() {
-        return !as.isEmpty() && as.peek().timeIsUp();
+        LocalDateTime now = Clock.getTime();
+        as.advance(now);
+        LocalDateTime t = firstTime();
+        return t != null && !t.isAfter(now);
+    }
+
+    /**
+     * This is the getter of the time of the earliest alert that has not gone off.
+     * @return the time; null if there is no alert
+     */
+    LocalDateTime getNextTime() {
+        LocalDateTime t = as.firstTime();
+        LocalDateTime r = rules.isEmpty() ? null : rules.peek().first();
+        return t == null || r != null && r.isBefore(t) ? r : t;
+    }
+
+    /**
+     * This method finds the time of the earliest alert, among the alerts whose second has come and the rules.
+     */
+    private LocalDateTime firstTime() {
+        LocalDateTime t = as.peek() == null ? null : as.peek().getAlertDateTime();
+        LocalDateTime r = rules.isEmpty() ? null : rules.peek().first();
+        return t == null || r != null && r.isBefore(t) ? r : t;
     }
 
     /**
@@ -31,8 +94,19 @@ public class Alarm implements Serializable, Iterator<Alert> {
      */
     @Override
     public Alert next() {
-        if (hasNext())
-            return as.poll();
+        if (hasNext()) {
+            Alert a;
+            if (as.peek() != null && as.peek().getAlertDateTime().equals(firstTime())) {
+                a = as.poll();
+            } else {
+                AlertRule rule = rules.poll();
+                a = new Alert(rule.getAlertName(), rule.first());
+                rule.passTo(a.getAlertDateTime());
+                addRule(rule);
+            }
+            record(Mutation.Op.ALARM_POP, a.getAlertName(), a.getAlertDateTime());
+            return a;
+        }
         throw new NoSuchElementException();
     }
 
@@ -43,20 +117,26 @@ public class Alarm implements Serializable, Iterator<Alert> {
      */
     public void add(String name, LocalDateTime time) {
         as.add(new Alert(name, time));
+        record(Mutation.Op.ALARM_ADD, name, time);
+        changed();
     }
 
     /**
-     * This method sets up multiple new alarms.
+     * This method sets up multiple new alarms. They are kept as one rule, however many there are.
      * @param name the name of the alarms
      * @param from the triggered time of the first alarm
      * @param to the triggered time of the last alarm
      * @param interval the time interval between two alarms
      */
     public void add(String name, LocalDateTime from, LocalDateTime to, Duration interval) {
-        while (from.isBefore(to)) {
-            as.add(new Alert(name, from));
-            from = from.plus(interval);
-        }
+        addRule(new AlertRule(name, from, to, interval));
+        record(Mutation.Op.ALARM_ADD_RANGE, name, from, to, interval);
+        changed();
+    }
+
+    private void addRule(AlertRule rule) {
+        if (!rule.isOver())
+            rules.add(rule);
     }
 
     /**
@@ -64,6 +144,102 @@ public class Alarm implements Serializable, Iterator<Alert> {
      * @param a the target alarm
      */
     public void remove(Alert a) {
-        as.remove(a);
+        cancel(a);
+        record(Mutation.Op.ALARM_REMOVE, a.getAlertName(), a.getAlertDateTime());
+        changed();
+    }
+
+    private void cancel(Alert a) {
+        if (as.remove(a))
+            return;
+        for (AlertRule rule : rules) {
+            if (rule.contains(a)) {
+                rules.remove(rule);
+                rule.skip(a.getAlertDateTime());
+                addRule(rule);
+                return;
+            }
+        }
+    }
+
+    /**
+     * This method attaches the journal that records the changes made to this alarm.
+     * @param journal the journal; null to stop recording
+     */
+    void setJournal(Journal<?> journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * This method sets the listener that is told whenever an alarm is set up or removed.
+     * @param listener the listener; null if there is none
+     */
+    void setListener(Runnable listener) {
+        this.listener = listener;
+    }
+
+    private void changed() {
+        if (listener != null)
+            listener.run();
+    }
+
+    private void record(Mutation.Op op, Object... args) {
+        if (journal != null)
+            journal.append(new Mutation(op, null, args));
+    }
+
+    /**
+     * This method writes the alarms in the binary format, in the order they go off.
+     * @param out the output
+     */
+    void write(BinaryFormat.Writer out) {
+        List<Alert> sorted = as.toList();
+        Collections.sort(sorted);
+        out.writeVarInt(sorted.size());
+        LocalDateTime base = null;
+        for (Alert a : sorted) {
+            out.writeString(a.getAlertName());
+            out.writeTime(a.getAlertDateTime(), base);
+            base = a.getAlertDateTime();
+        }
+        out.writeVarInt(rules.size());
+        for (AlertRule rule : rules)
+            out.writeRule(rule, null);
+    }
+
+    /**
+     * This method adds the alarms read in the binary format.
+     * @param in the input
+     * @throws IOException an exception in file I/O
+     */
+    void read(BinaryFormat.Reader in) throws IOException {
+        LocalDateTime base = null;
+        for (int i = in.readVarInt(); i > 0; --i) {
+            String name = in.readString();
+            base = in.readTime(base);
+            as.add(new Alert(name, base));
+        }
+        if (in.getVersion() >= 3)
+            for (int i = in.readVarInt(); i > 0; --i)
+                addRule(in.readRule(null));
+    }
+
+    /**
+     * This method applies a change read back from the journal.
+     * @param m the change
+     */
+    void apply(Mutation m) {
+        switch (m.op) {
+            case ALARM_ADD:
+                add(m.string(0), m.time(1));
+                break;
+            case ALARM_ADD_RANGE:
+                add(m.string(0), m.time(1), m.time(2), m.duration(3));
+                break;
+            case ALARM_REMOVE:
+            case ALARM_POP:
+                cancel(new Alert(m.string(0), m.time(1)));
+                break;
+        }
     }
 }
@@ -0,0 +1,120 @@
+package backend_system;
+
+import backend_system.entities.Alert;
+import clock.Clock;
+import metrics.AlertDispatchEvent;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * This class hands the alerts of an alarm over as they go off. A thread of this class sleeps until the next alert is
+ * due, worked out from the time and the speed of the Clock, and is woken early whenever an alarm is set up or removed
+ * or the Clock changes. The alarm is only touched through the given executor, which should run on the thread that
+ * changes it, and all the alerts due by then are handed over together in one task, recorded as AlertDispatchEvent
+ * when the flight recorder is on.
+ */
+class AlertDispatcher {
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "alert-dispatcher");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Executor deliverExecutor;
+    private final Consumer<List<Alert>> receiver;
+    private final Runnable wake = this::wake;
+    private volatile Alarm alarm;
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Constructor of the class.
+     * @param deliverExecutor the executor that runs on the thread which changes the alarm, e.g. the UI thread
+     * @param receiver the receiver of the alerts that have gone off, called through the executor
+     */
+    AlertDispatcher(Executor deliverExecutor, Consumer<List<Alert>> receiver) {
+        this.deliverExecutor = deliverExecutor;
+        this.receiver = receiver;
+        Clock.addListener(wake);
+    }
+
+    /**
+     * This method sets the alarm whose alerts are handed over. It should be called on the thread that changes the
+     * alarm.
+     * @param alarm the alarm; null if there is none
+     */
+    void setAlarm(Alarm alarm) {
+        if (this.alarm != null)
+            this.alarm.setListener(null);
+        this.alarm = alarm;
+        if (alarm != null)
+            alarm.setListener(wake);
+        wake();
+    }
+
+    /**
+     * This method makes the thread look at the alarm again at once.
+     */
+    void wake() {
+        schedule(0);
+    }
+
+    private synchronized void schedule(long nanos) {
+        if (pending != null)
+            pending.cancel(false);
+        try {
+            pending = timer.schedule(this::fire, nanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            pending = null;
+        }
+    }
+
+    private void fire() {
+        try {
+            deliverExecutor.execute(this::dispatch);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method hands over the alerts that are due and sleeps until the next one. It runs through the executor.
+     */
+    private void dispatch() {
+        Alarm alarm = this.alarm;
+        if (alarm == null)
+            return;
+        AlertDispatchEvent event = new AlertDispatchEvent();
+        event.begin();
+        List<Alert> due = new ArrayList<>();
+        while (alarm.hasNext())
+            due.add(alarm.next());
+        if (!due.isEmpty()) {
+            receiver.accept(due);
+            if (event.shouldCommit()) {
+                event.alerts = due.size();
+                event.late = Duration.between(due.get(0).getAlertDateTime(), Clock.getTime()).toMillis();
+                event.commit();
+            }
+        }
+        LocalDateTime next = alarm.getNextTime();
+        Duration sleep = next == null ? null : Clock.untilTime(next);
+        // with no alert left, or a Clock that never gets there, only a change wakes the thread
+        if (sleep != null)
+            schedule(sleep.toNanos());
+    }
+
+    /**
+     * This method stops handing over the alerts.
+     */
+    void stop() {
+        Clock.removeListener(wake);
+        if (alarm != null)
+            alarm.setListener(null);
+        alarm = null;
+        timer.shutdownNow();
+    }
+}
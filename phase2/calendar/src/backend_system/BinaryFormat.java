@@ -0,0 +1,375 @@
+package backend_system;
+
+import backend_system.entities.Alert;
+import backend_system.entities.AlertRule;
+import backend_system.entities.Event;
+import backend_system.entities.Memo;
+import backend_system.entities.Tag;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * This class is the compact binary format of the snapshots of users and the common calendar. Unlike the default
+ * serialization it writes no class descriptors: times are written as differences in epoch seconds, numbers as
+ * variable-length integers, and every distinct name of a tag, memo, event or alert is written only once in a string
+ * table and referred to by its index afterwards.
+ *
+ * A file starts with the magic bytes "CALB", the format version, the generation of the snapshot and the string table.
+ */
+final class BinaryFormat {
+    private static final byte[] MAGIC = {'C', 'A', 'L', 'B'};
+    private static final int VERSION = 5;
+
+    /**
+     * Writes and reads one type of object in the binary format.
+     * @param <T> the type of the object
+     */
+    interface Codec<T> {
+        void write(Writer out, T x) throws IOException;
+
+        T read(Reader in) throws IOException;
+    }
+
+    /**
+     * The codec of a user with all its calendars.
+     */
+    static final Codec<User> USER = new Codec<User>() {
+        @Override
+        public void write(Writer out, User x) throws IOException {
+            x.write(out);
+        }
+
+        @Override
+        public User read(Reader in) throws IOException {
+            return User.read(in);
+        }
+    };
+
+    /**
+     * The codec of a calendar of a user.
+     */
+    static final Codec<Calendar> CALENDAR = new Codec<Calendar>() {
+        @Override
+        public void write(Writer out, Calendar x) throws IOException {
+            x.write(out);
+        }
+
+        @Override
+        public Calendar read(Reader in) throws IOException {
+            Calendar c = new Calendar(null);
+            c.read(in);
+            return c;
+        }
+    };
+
+    /**
+     * The codec of the common calendar.
+     */
+    static final Codec<CommonCalendar> COMMON = new Codec<CommonCalendar>() {
+        @Override
+        public void write(Writer out, CommonCalendar x) throws IOException {
+            x.write(out);
+        }
+
+        @Override
+        public CommonCalendar read(Reader in) throws IOException {
+            CommonCalendar c = new CommonCalendar(null);
+            c.read(in);
+            return c;
+        }
+    };
+
+    private BinaryFormat() {
+    }
+
+    /**
+     * This method checks whether some data is in the binary format.
+     * @param data the data, or at least its first bytes
+     * @return true if the data starts with the magic bytes
+     */
+    static boolean isBinary(byte[] data) {
+        return data.length >= MAGIC.length && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    /**
+     * This method returns the number of bytes needed to tell the binary format from others.
+     * @return the length of the magic bytes
+     */
+    static int headerLength() {
+        return MAGIC.length;
+    }
+
+    /**
+     * This method encodes an object in the binary format.
+     * @param codec the codec of the object
+     * @param x the object
+     * @param generation the generation stored along with the object
+     * @param <T> the type of the object
+     * @return the encoded data
+     * @throws IOException an exception in encoding
+     */
+    static <T> byte[] encode(Codec<T> codec, T x, long generation) throws IOException {
+        Writer out = new Writer();
+        codec.write(out, x);
+        return out.finish(generation);
+    }
+
+    /**
+     * The output of the binary format. The body is buffered until the string table is complete.
+     */
+    static final class Writer {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        private final Map<String, Integer> index = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private Writer() {
+        }
+
+        void writeVarLong(long v) {
+            putVarLong(body, v);
+        }
+
+        void writeVarInt(int v) {
+            writeVarLong(v & 0xFFFFFFFFL);
+        }
+
+        void writeSignedVarLong(long v) {
+            writeVarLong((v << 1) ^ (v >> 63));
+        }
+
+        void writeString(String s) {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer i = index.get(s);
+            if (i == null) {
+                i = strings.size();
+                index.put(s, i);
+                strings.add(s);
+            }
+            writeVarInt(i + 1);
+        }
+
+        /**
+         * This method writes a time as its distance in seconds from a base time.
+         * @param t the time
+         * @param base the base time; null for the epoch
+         */
+        void writeTime(LocalDateTime t, LocalDateTime base) {
+            long delta = t.toEpochSecond(ZoneOffset.UTC) - (base == null ? 0 : base.toEpochSecond(ZoneOffset.UTC));
+            int nano = t.getNano();
+            writeSignedVarLong(delta << 1 | (nano == 0 ? 0 : 1));
+            if (nano != 0)
+                writeVarInt(nano);
+        }
+
+        /**
+         * This method writes an event with its tags, memos and alerts.
+         * @param e the event
+         * @param base the start time of the previous event; null for the first one
+         */
+        void writeEvent(Event e, LocalDateTime base) {
+            writeString(e.getName());
+            writeTime(e.getStartDateTime(), base);
+            writeTime(e.getEndDateTime(), e.getStartDateTime());
+            writeVarInt(e.viewAllTag().size());
+            for (Tag t : e.viewAllTag())
+                writeString(t.getNote());
+            writeVarInt(e.viewAllMemo().size());
+            for (Memo m : e.viewAllMemo())
+                writeString(m.getNote());
+            List<Alert> alerts = e.getSingleAlerts();
+            writeVarInt(alerts.size());
+            for (Alert a : alerts) {
+                writeString(a.getAlertName());
+                writeTime(a.getAlertDateTime(), e.getStartDateTime());
+            }
+            writeVarInt(e.getAlertRules().size());
+            for (AlertRule rule : e.getAlertRules())
+                writeRule(rule, e.getStartDateTime());
+        }
+
+        /**
+         * This method writes a rule of alerts, with the alerts removed from it.
+         * @param rule the rule
+         * @param base the base time of the times of the rule
+         */
+        void writeRule(AlertRule rule, LocalDateTime base) {
+            writeString(rule.getAlertName());
+            writeTime(rule.getFrom(), base);
+            writeTime(rule.getUntil(), rule.getFrom());
+            writeSignedVarLong(rule.getInterval().getSeconds());
+            writeVarInt(rule.getInterval().getNano());
+            writeVarInt(rule.getSkipped().size());
+            LocalDateTime t = rule.getFrom();
+            for (LocalDateTime skipped : rule.getSkipped()) {
+                writeTime(skipped, t);
+                t = skipped;
+            }
+        }
+
+        private byte[] finish(long generation) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.size() + 64);
+            bytes.write(MAGIC);
+            putVarLong(bytes, VERSION);
+            putVarLong(bytes, generation);
+            putVarLong(bytes, strings.size());
+            for (String s : strings) {
+                byte[] b = s.getBytes(StandardCharsets.UTF_8);
+                putVarLong(bytes, b.length);
+                bytes.write(b);
+            }
+            body.writeTo(bytes);
+            return bytes.toByteArray();
+        }
+
+        private static void putVarLong(ByteArrayOutputStream out, long v) {
+            while ((v & ~0x7FL) != 0) {
+                out.write((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            out.write((int) v);
+        }
+    }
+
+    /**
+     * The input of the binary format.
+     */
+    static final class Reader {
+        private final byte[] data;
+        private int pos;
+        private final int version;
+        private final long generation;
+        private final String[] strings;
+
+        /**
+         * Constructor of the class. It reads the header and the string table.
+         * @param data the whole content of a file
+         * @throws IOException data that is not in the binary format
+         */
+        Reader(byte[] data) throws IOException {
+            this.data = data;
+            if (!isBinary(data))
+                throw new StreamCorruptedException("Not in the binary format");
+            pos = MAGIC.length;
+            version = readVarInt();
+            if (version < 1 || version > VERSION)
+                throw new StreamCorruptedException("Unsupported format version " + version);
+            generation = readVarLong();
+            strings = new String[readVarInt()];
+            for (int i = 0; i < strings.length; ++i) {
+                int n = readVarInt();
+                if (n < 0 || n > data.length - pos)
+                    throw new EOFException();
+                strings[i] = new String(data, pos, n, StandardCharsets.UTF_8);
+                pos += n;
+            }
+        }
+
+        /**
+         * This is the getter of the version of the format the data was written in.
+         * @return 1 if users are written with all their calendars;
+         *         2 if users are written with the names of their calendars only
+         */
+        int getVersion() {
+            return version;
+        }
+
+        long getGeneration() {
+            return generation;
+        }
+
+        long readVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos == data.length)
+                    throw new EOFException();
+                int b = data[pos++] & 0xFF;
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new StreamCorruptedException("Malformed variable-length integer");
+        }
+
+        int readVarInt() throws IOException {
+            return (int) readVarLong();
+        }
+
+        long readSignedVarLong() throws IOException {
+            long v = readVarLong();
+            return (v >>> 1) ^ -(v & 1);
+        }
+
+        String readString() throws IOException {
+            int i = readVarInt();
+            if (i < 0 || i > strings.length)
+                throw new StreamCorruptedException("Bad string reference " + i);
+            return i == 0 ? null : strings[i - 1];
+        }
+
+        /**
+         * This method reads a time written by Writer.writeTime.
+         * @param base the same base time as the one it was written with
+         * @return the time
+         * @throws IOException an exception in file I/O
+         */
+        LocalDateTime readTime(LocalDateTime base) throws IOException {
+            long v = readSignedVarLong();
+            int nano = (v & 1) == 0 ? 0 : readVarInt();
+            long sec = (v >> 1) + (base == null ? 0 : base.toEpochSecond(ZoneOffset.UTC));
+            return LocalDateTime.ofEpochSecond(sec, nano, ZoneOffset.UTC);
+        }
+
+        /**
+         * This method reads an event written by Writer.writeEvent.
+         * @param base the start time of the previous event; null for the first one
+         * @return the event
+         * @throws IOException an exception in file I/O
+         */
+        Event readEvent(LocalDateTime base) throws IOException {
+            String name = readString();
+            LocalDateTime start = readTime(base);
+            Event e = new Event(name, start, readTime(start));
+            for (int i = readVarInt(); i > 0; --i)
+                e.addTag(new Tag(readString()));
+            for (int i = readVarInt(); i > 0; --i)
+                e.addMemo(new Memo(readString()));
+            for (int i = readVarInt(); i > 0; --i) {
+                String alert = readString();
+                // the alert was in the future when it was set, whatever the time is now
+                e.createIndividualAlert(alert, readTime(start), LocalDateTime.MIN);
+            }
+            if (version >= 3)
+                for (int i = readVarInt(); i > 0; --i)
+                    e.addAlertRule(readRule(start));
+            return e;
+        }
+
+        /**
+         * This method reads a rule of alerts written by Writer.writeRule.
+         * @param base the same base time as the one it was written with
+         * @return the rule
+         * @throws IOException an exception in file I/O
+         */
+        AlertRule readRule(LocalDateTime base) throws IOException {
+            String name = readString();
+            LocalDateTime from = readTime(base);
+            LocalDateTime until = readTime(from);
+            Duration interval = Duration.ofSeconds(readSignedVarLong(), readVarInt());
+            AlertRule rule = new AlertRule(name, from, until, interval);
+            LocalDateTime t = from;
+            for (int i = readVarInt(); i > 0; --i) {
+                t = readTime(t);
+                rule.getSkipped().add(t);
+            }
+            return rule;
+        }
+    }
+}
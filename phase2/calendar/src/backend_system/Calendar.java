@@ -1,30 +1,48 @@
 package backend_system;
 
 import backend_system.entities.*;
+import backend_system.managers.MemoManager;
 import backend_system.managers.NoteManager;
 import backend_system.managers.TagManager;
 import clock.Clock;
 import clock.Time;
+import metrics.MergeEvent;
 
-import java.io.Serializable;
+import java.io.*;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * a class contains all the events and manipulates the events
  */
 public class Calendar implements Serializable {
+    private static final long serialVersionUID = 4752998993275103530L;
 
-    private TreeSet<Event> pastEvents;
-    private TreeSet<Event> ongoingEvents;
-    private TreeSet<Event> futureEvents;
+    /**
+     * The fields of the serialized form, which still has the three sets of events that earlier versions kept.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("pastEvents", TreeSet.class),
+            new ObjectStreamField("ongoingEvents", TreeSet.class),
+            new ObjectStreamField("futureEvents", TreeSet.class),
+            new ObjectStreamField("events", Map.class),
+            new ObjectStreamField("series", List.class),
+            new ObjectStreamField("tagManager", NoteManager.class),
+            new ObjectStreamField("memoManager", NoteManager.class),
+            new ObjectStreamField("calendarName", String.class)
+    };
+
+    private transient Timeline timeline;
     private Map<String, Event> events;
     private List<EventSeries> series;
     private NoteManager tagManager;
     private NoteManager memoManager;
     private String calendarName;
+    private transient Journal<?> journal;
+    private transient int muted;
 
     /**
      * construct an empty Calendar
@@ -32,20 +50,18 @@ public class Calendar implements Serializable {
      */
     public Calendar(String name) {
         calendarName = name;
-        pastEvents = new TreeSet<>();
         /*
-         * The following lambda expression CANNOT be replaced with Comparator chain as IntelliJ suggested,
-         * or this TreeSet cannot be serialized
+         * The following lambda expression CANNOT be moved or replaced with Comparator chain as IntelliJ suggested,
+         * or the calendars serialized with it as the order of their ongoing events cannot be read
          */
-        ongoingEvents = new TreeSet<>((Comparator<Event> & Serializable) (e, f) -> {
+        timeline = new Timeline((Comparator<Event> & Serializable) (e, f) -> {
             int cmp = e.getEndDateTime().compareTo(f.getEndDateTime());
             return cmp == 0 ? e.getName().compareTo(f.getName()) : cmp;
         });
-        futureEvents = new TreeSet<>();
         events = new HashMap<>();
         series = new ArrayList<>();
         tagManager = new TagManager();
-        memoManager = new NoteManager();
+        memoManager = new MemoManager();
     }
 
     /**
@@ -62,14 +78,60 @@ public class Calendar implements Serializable {
     public Calendar(String name, TreeSet<Event> pastEvents, TreeSet<Event> ongoingEvents, TreeSet<Event> futureEvents,
                     Map<String, Event> events, List<EventSeries> series,
                     NoteManager tagManager, NoteManager memoManager){
-        this.calendarName=name;
-        this.pastEvents=pastEvents;
-        this.ongoingEvents=ongoingEvents;
-        this.futureEvents=futureEvents;
+        this(name);
         this.events=events;
         this.series=series;
         this.tagManager=tagManager;
-        this.memoManager=memoManager;
+        this.memoManager=asMemoManager(memoManager);
+        for (TreeSet<Event> set : Arrays.asList(pastEvents, ongoingEvents, futureEvents))
+            for (Event event : set)
+                timeline.add(event);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        @SuppressWarnings("unchecked")
+        Map<String, Event> savedEvents = (Map<String, Event>) fields.get("events", null);
+        @SuppressWarnings("unchecked")
+        List<EventSeries> savedSeries = (List<EventSeries>) fields.get("series", null);
+        @SuppressWarnings("unchecked")
+        TreeSet<Event> pastEvents = (TreeSet<Event>) fields.get("pastEvents", null),
+                ongoingEvents = (TreeSet<Event>) fields.get("ongoingEvents", null),
+                futureEvents = (TreeSet<Event>) fields.get("futureEvents", null);
+        if (ongoingEvents == null || ongoingEvents.comparator() == null)
+            throw new InvalidObjectException("The order of end time is missing");
+        // the set was written with the order of the timeline, which is a Comparator<Event>
+        @SuppressWarnings("unchecked")
+        Comparator<Event> endOrder = (Comparator<Event>) ongoingEvents.comparator();
+        events = savedEvents;
+        series = savedSeries;
+        tagManager = (NoteManager) fields.get("tagManager", null);
+        memoManager = asMemoManager((NoteManager) fields.get("memoManager", null));
+        calendarName = (String) fields.get("calendarName", null);
+        timeline = new Timeline(endOrder);
+        for (TreeSet<Event> set : Arrays.asList(pastEvents, ongoingEvents, futureEvents))
+            for (Event event : set)
+                timeline.add(event);
+    }
+
+    /**
+     * The memos of the calendars saved by earlier versions are kept by a plain NoteManager without an index.
+     */
+    private static NoteManager asMemoManager(NoteManager m) {
+        return m == null || m instanceof MemoManager ? m : new MemoManager(m.getNotes(), m.getAllNotes());
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("pastEvents", new TreeSet<>(getAllEvents()));
+        fields.put("ongoingEvents", new TreeSet<>(timeline.getEndOrder()));
+        fields.put("futureEvents", new TreeSet<Event>());
+        fields.put("events", events);
+        fields.put("series", series);
+        fields.put("tagManager", tagManager);
+        fields.put("memoManager", memoManager);
+        fields.put("calendarName", calendarName);
+        out.writeFields();
     }
 
     /**
@@ -88,58 +150,119 @@ public class Calendar implements Serializable {
      * @return the event that matches its given name
      */
     public Event getEvent(String name) {
-        return events.get(name);
+        Event e = events.get(name);
+        return e != null ? e : occurrence(name);
+    }
+
+    /**
+     * find an occurrence of a series that is worked out from its rule
+     *
+     * @param name the name of the occurrence
+     * @return the occurrence; null if there is none
+     */
+    private Occurrence occurrence(String name) {
+        for (EventSeries es : series) {
+            Occurrence o = es.getOccurrence(name);
+            if (o != null)
+                return o;
+        }
+        return null;
+    }
+
+    /**
+     * make an occurrence that is worked out from the rule of its series a real event of this calendar, before it is
+     * changed; the other events are returned as they are
+     *
+     * @param event the event
+     * @return the real event
+     */
+    private Event take(Event event) {
+        if (!(event instanceof Occurrence) || events.get(event.getName()) == event)
+            return event;
+        Occurrence o = (Occurrence) event;
+        if (!series.contains(o.getEventSeries()))
+            return event;
+        Event real = o.getEventSeries().take(o);
+        if (real == o) {
+            events.put(o.getName(), o);
+            place(o);
+        }
+        return real == null ? event : real;
+    }
+
+    /**
+     * find the occurrence an event is if it is still worked out from the rule of a series of this calendar, so that its
+     * deletion or a change of its time or name is kept by the series without making it a real event
+     *
+     * @param event the event
+     * @return the occurrence; null if the event is not such an occurrence
+     */
+    private Occurrence fromRule(Event event) {
+        if (!(event instanceof Occurrence) || events.get(event.getName()) == event)
+            return null;
+        Occurrence o = (Occurrence) event;
+        EventSeries es = o.getEventSeries();
+        return series.contains(es) && !es.getTaken().containsKey(o.getIndex()) ? o : null;
+    }
+
+    /**
+     * add the occurrences worked out from the rules of the series to a list of events
+     *
+     * @param events      the events in ascending start time
+     * @param occurrences the occurrences of a series in ascending start time
+     * @return a read-only list of the events and the occurrences in ascending start time
+     */
+    private List<Event> withOccurrences(List<Event> events, Function<EventSeries, List<Event>> occurrences) {
+        List<List<Event>> parts = null;
+        for (EventSeries es : series) {
+            if (!es.hasRule())
+                continue;
+            if (parts == null) {
+                parts = new ArrayList<>();
+                parts.add(events);
+            }
+            parts.add(occurrences.apply(es));
+        }
+        return parts == null ? events : new MergedCalendar.Merge(parts);
     }
 
     /**
-     * get events based on the status
+     * get events based on the status at the current time
      *
      * @param time the indicator of the events
-     * @return a list of events that match
+     * @return a read-only view of the events that match, in ascending start time
      */
     public List<Event> getEvents(Time time) {
-        List<Event> es;
-        switch (time) {
-            case ALL:
-                es = getAllEvents();
-                break;
-            case PAST:
-                es = getPastEvents();
-                break;
-            case ONGOING:
-                es = getOngoingEvents();
-                break;
-            case FUTURE:
-                es = getFutureEvents();
-                break;
-            default:
-                es = new ArrayList<>();
-        }
-        return es;
+        LocalDateTime now = Clock.getTime();
+        return withOccurrences(timeline.view(time, now), es -> es.getOccurrences(time, now));
     }
 
     /**
-     * return all the events created
+     * return all the events kept in this calendar, without the occurrences worked out from the rules of the series
      *
-     * @return a list of Event in ascending start time
+     * @return a read-only view of the events in ascending start time
      */
     private List<Event> getAllEvents() {
-        List<Event> events = getPastEvents();
-        events.addAll(getOngoingEvents());
-        events.addAll(getFutureEvents());
-        return events;
+        return timeline.view(Time.ALL, Clock.getTime());
     }
 
     /**
-     * update futureEvents, ongoingEvents and pastEvents according to the time when this method is called
+     * put an event on the timeline
+     *
+     * @param event the event to be placed
      */
-    private void updateEvents() {
-        LocalDateTime t = Clock.getTime();
-        int cmp;
-        while (!futureEvents.isEmpty() && (cmp = futureEvents.first().ifInProgress(t)) != 1)
-            (cmp == 0 ? ongoingEvents : pastEvents).add(futureEvents.pollFirst());
-        while (!ongoingEvents.isEmpty() && ongoingEvents.first().ifInProgress(t) != 0)
-            pastEvents.add(ongoingEvents.pollFirst());
+    private void place(Event event) {
+        timeline.add(event);
+    }
+
+    /**
+     * take an event off the timeline before its time or name changes
+     *
+     * @param event the event to be taken out
+     * @return true if the event was in this calendar
+     */
+    private boolean unplace(Event event) {
+        return timeline.remove(event);
     }
 
     /**
@@ -150,7 +273,10 @@ public class Calendar implements Serializable {
      * @param time  the triggered time of the new alert
      */
     public void setAlert(Event event, String name, LocalDateTime time) {
-        event.createIndividualAlert(name, time);
+        event = take(event);
+        LocalDateTime now = Clock.getTime();
+        event.createIndividualAlert(name, time, now);
+        record(Mutation.Op.SET_ALERT, event.getName(), name, time, now);
     }
 
     /**
@@ -162,7 +288,10 @@ public class Calendar implements Serializable {
      * @param duration how many hours is there between one alert and the next alert.
      */
     public void setAlert(Event event, String name, LocalDateTime time, Duration duration) {
-        event.createFrequencyAlert(name, time, event.getStartDateTime(), duration);
+        event = take(event);
+        LocalDateTime now = Clock.getTime();
+        event.createFrequencyAlert(name, time, event.getStartDateTime(), duration, now);
+        record(Mutation.Op.SET_FREQUENCY_ALERT, event.getName(), name, time, duration, now);
     }
 
     /**
@@ -183,14 +312,8 @@ public class Calendar implements Serializable {
      */
     public void addEvent(Event event) {
         events.put(event.getName(), event);
-        LocalDateTime t = Clock.getTime();
-        if (event.ifInProgress(t) == 1) {
-            futureEvents.add(event);
-        } else if (event.ifInProgress(t) == 0) {
-            ongoingEvents.add(event);
-        } else {
-            pastEvents.add(event);
-        }
+        place(event);
+        record(Mutation.Op.ADD_EVENT, event.getName(), event.getStartDateTime(), event.getEndDateTime());
     }
 
     /**
@@ -201,11 +324,22 @@ public class Calendar implements Serializable {
      * @param endTime    the end time of the new event
      * @param seriesName the name of the series
      * @param duration  the frequency of the events in the series
-     * @param number     total number of events in the series
+     * @param number     total number of events in the series; EventSeries.FOREVER for a series without end
      */
     public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName, Duration duration, int number) {
+        mute(() -> createSeries(name, startTime, endTime, seriesName, duration, number));
+        record(Mutation.Op.CREATE_SERIES, name, startTime, endTime, seriesName, duration, number);
+    }
+
+    private void createSeries(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName, Duration duration, int number) {
         EventSeries eventSeries = searchSeriesByName(seriesName);
-        if (eventSeries == null) {
+        if (eventSeries == null && keepsRules() && endTime.isAfter(startTime) && !duration.isNegative()
+                && !duration.isZero() && number >= 0) {
+            // only the rule is kept; the events are worked out from it as they are asked for
+            series.add(EventSeries.repeating(name, startTime, endTime, seriesName, duration, number));
+        } else if (number == EventSeries.FOREVER) {
+            throw new IllegalArgumentException("A series without end can only be created as a new series of its own.");
+        } else if (eventSeries == null) {
             EventSeries es = new EventSeries(name, startTime, endTime, seriesName, duration, number);
             series.add(es);
             for (Event e : es.getEventList()) {
@@ -223,6 +357,15 @@ public class Calendar implements Serializable {
         }
     }
 
+    /**
+     * This method returns whether the series created in this calendar keep only their rules, rather than all their
+     * events.
+     * @return true if they do
+     */
+    boolean keepsRules() {
+        return true;
+    }
+
     /**
      * add an event to a series
      *
@@ -230,6 +373,7 @@ public class Calendar implements Serializable {
      * @param seriesName the name of the series which the event is to be added into
      */
     public void addIntoSeries(Event event, String seriesName) {
+        event = take(event);
         // the method to add an event into a given series, or create a new series if there's no such series name
         EventSeries eventSeries = searchSeriesByName(seriesName);
         if (eventSeries == null) {
@@ -239,6 +383,7 @@ public class Calendar implements Serializable {
         } else {
             eventSeries.addEvent(event);
         }
+        record(Mutation.Op.ADD_INTO_SERIES, event.getName(), seriesName);
     }
 
     /**
@@ -250,20 +395,15 @@ public class Calendar implements Serializable {
     public List<Event> searchByName(String name) {
         // the method to search all the events in the given name
         List<Event> events = new ArrayList<>();
-        for (Event event : pastEvents) {
+        for (Event event : getAllEvents()) {
             if (event.getName().equals(name)) {
                 events.add(event);
             }
         }
-        for (Event event : ongoingEvents) {
-            if (event.getName().equals(name)) {
-                events.add(event);
-            }
-        }
-        for (Event event : futureEvents) {
-            if (event.getName().equals(name)) {
-                events.add(event);
-            }
+        Occurrence o = occurrence(name);
+        if (o != null) {
+            events.add(o);
+            events.sort(Event::compareTo);
         }
         return events;
     }
@@ -279,7 +419,7 @@ public class Calendar implements Serializable {
         List<Event> events = null;
         for (EventSeries ev : series) {
             if (ev.getSeriesName().equals(name)) {
-                events = new ArrayList<>(ev.getSeries());
+                events = ev.getEventList();
             }
         }
         return events;
@@ -289,7 +429,7 @@ public class Calendar implements Serializable {
      * search for all events with tag of the given name
      *
      * @param tagName the target tag name
-     * @return a list of Event
+     * @return a list of Event in ascending start time
      */
     public List<Event> searchByTag(String tagName) {
         // the method to search all the events in the given tag
@@ -299,30 +439,54 @@ public class Calendar implements Serializable {
     }
 
     /**
-     * search for all the events that start in the given date
+     * search for all events with a tag that matches the given text
+     *
+     * @param tagName    the target text
+     * @param ignoreCase true if the case of the letters does not matter
+     * @param prefix     true if the tags that start with the text also match
+     * @return a list of Event in ascending start time
+     */
+    public List<Event> searchByTag(String tagName, boolean ignoreCase, boolean prefix) {
+        return ((TagManager) tagManager).searchEventByTag(tagName, ignoreCase, prefix);
+    }
+
+    /**
+     * search for all the events that take any time in the given date, including those that start on an earlier date
      *
      * @param date the target date
-     * @return a list of Event
+     * @return a list of Event in ascending start time
      */
     public List<Event> searchByDate(LocalDate date) {
-        // the method to search all the events in the given date
-        List<Event> events = new ArrayList<>();
-        for (Event event : pastEvents) {
-            if (event.getStartDateTime().toLocalDate().equals(date)) {
-                events.add(event);
-            }
-        }
-        for (Event event : ongoingEvents) {
-            if (event.getStartDateTime().toLocalDate().equals(date)) {
-                events.add(event);
-            }
-        }
-        for (Event event : futureEvents) {
-            if (event.getStartDateTime().toLocalDate().equals(date)) {
-                events.add(event);
-            }
+        return searchOverlapping(date.atStartOfDay(), date.plusDays(1).atStartOfDay());
+    }
+
+    /**
+     * search for all the events that take any time in the given period
+     *
+     * @param from the start of the period, inclusive
+     * @param to   the end of the period, exclusive
+     * @return a list of Event in ascending start time
+     */
+    public List<Event> searchOverlapping(LocalDateTime from, LocalDateTime to) {
+        List<Event> events = timeline.overlapping(from, to);
+        List<Event> all = withOccurrences(events, es -> es.getOccurrences(from, to));
+        return all == events ? events : new ArrayList<>(all);
+    }
+
+    /**
+     * find the first time after the given time when an event of this calendar starts or ends
+     *
+     * @param t the time
+     * @return the time; null if no event starts or ends after it
+     */
+    public LocalDateTime nextBoundary(LocalDateTime t) {
+        LocalDateTime next = timeline.nextBoundary(t);
+        for (EventSeries es : series) {
+            LocalDateTime b = es.nextBoundary(t);
+            if (b != null && (next == null || b.isBefore(next)))
+                next = b;
         }
-        return events;
+        return next;
     }
 
     /**
@@ -346,9 +510,11 @@ public class Calendar implements Serializable {
      */
     public void addTagToEvent(String tagName, Event event) {
         if(tagName.equals("")) return;
+        event = take(event);
         Tag tag = new Tag(tagName);
         event.addTag(tag);
         tagManager.addNotedEvent(tag, event);
+        record(Mutation.Op.ADD_TAG, tagName, event.getName());
     }
 
     /**
@@ -359,9 +525,77 @@ public class Calendar implements Serializable {
      */
     public void addMemoToEvent(String memoName, Event event) {
         if (memoName.equals("")) return;
+        event = take(event);
         Memo memo = new Memo(memoName);
         event.addMemo(memo);
         memoManager.addNotedEvent(memo, event);
+        record(Mutation.Op.ADD_MEMO, memoName, event.getName());
+    }
+
+    /**
+     * search for all events with a memo that matches a query. Every word of the query must be in the memo, and the
+     * words in double quotes must be in the memo in that order.
+     *
+     * @param query the query
+     * @return a list of Event, those with the best matching memo first
+     */
+    public List<Event> searchByMemo(String query) {
+        return eventsOfRanked(rankByMemo(query));
+    }
+
+    /**
+     * find the memos that match a query, with the score of each memo and the events it is attached to
+     *
+     * @param query the query
+     * @return a list of the scores and the events, the best match first
+     */
+    List<Map.Entry<Double, List<Event>>> rankByMemo(String query) {
+        return rankByMemo(query, countMemos(query));
+    }
+
+    /**
+     * count the memos of this calendar for a query, so that they can be ranked together with those of other calendars
+     *
+     * @param query the query
+     * @return the memos counted
+     */
+    MemoManager.Corpus countMemos(String query) {
+        return ((MemoManager) memoManager).count(query);
+    }
+
+    /**
+     * find the memos that match a query as rankByMemo does, with the scores worked out from the memos counted over
+     * several calendars, so that they can be compared with the scores of the memos of those calendars
+     *
+     * @param query  the query
+     * @param corpus the memos counted for the query, including those of this calendar
+     * @return a list of the scores and the events, the best match first
+     */
+    List<Map.Entry<Double, List<Event>>> rankByMemo(String query, MemoManager.Corpus corpus) {
+        List<Map.Entry<Double, List<Event>>> ranked = new ArrayList<>();
+        for (Map.Entry<Memo, Double> entry : ((MemoManager) memoManager).rankMemo(query, corpus).entrySet())
+            ranked.add(new AbstractMap.SimpleEntry<>(entry.getValue(),
+                    new ArrayList<>(memoManager.getNotes().get(entry.getKey()))));
+        return ranked;
+    }
+
+    /**
+     * list the events of ranked memos, those of the best match first and each event once
+     *
+     * @param ranked the scores and the events of the memos, the best match first
+     * @return a list of Event
+     */
+    static List<Event> eventsOfRanked(List<Map.Entry<Double, List<Event>>> ranked) {
+        List<Event> result = new ArrayList<>();
+        Set<Event> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<Double, List<Event>> entry : ranked) {
+            List<Event> events = new ArrayList<>(entry.getValue());
+            events.sort(Event::compareTo);
+            for (Event event : events)
+                if (seen.add(event))
+                    result.add(event);
+        }
+        return result;
     }
 
     /**
@@ -394,6 +628,18 @@ public class Calendar implements Serializable {
         return event.getAllAlerts();
     }
 
+    /**
+     * return a page of the alerts attached to a given event, in the order they go off
+     *
+     * @param event the event whose alerts are required to be viewed
+     * @param from  the time of the first alert on the page
+     * @param max   the largest number of alerts on the page
+     * @return a list of Alert
+     */
+    public List<Alert> viewAlert(Event event, LocalDateTime from, int max) {
+        return event.getAllAlerts(from, max);
+    }
+
     /**
      * return all the memos attached to a given event
      *
@@ -416,6 +662,7 @@ public class Calendar implements Serializable {
         Tag newTag = new Tag(newTagName);
         tagManager.editNoteForOne(tag, newTag, event);
         event.editTagForOne(tag, newTag);
+        record(Mutation.Op.EDIT_TAG_ONE, tag.getNote(), newTagName, event.getName());
     }
 
     /**
@@ -425,11 +672,14 @@ public class Calendar implements Serializable {
      * @param newTagName the new tag message to be added
      */
     public void editEntireTag(Tag tag, String newTagName){
+        if (!tagManager.getNotes().containsKey(tag))
+            return;
         Tag newTag = new Tag(newTagName);
         List<Event> events = tagManager.editEntireNote(tag, newTag);
         for (Event event:events){
             event.editTagForOne(tag, newTag);
         }
+        record(Mutation.Op.EDIT_TAG_ALL, tag.getNote(), newTagName);
     }
 
     /**
@@ -443,6 +693,7 @@ public class Calendar implements Serializable {
         Memo newMemo = new Memo(newMemoName);
         memoManager.editNoteForOne(memo, newMemo, event);
         event.editMemoForOne(memo, newMemo);
+        record(Mutation.Op.EDIT_MEMO_ONE, memo.getNote(), newMemoName, event.getName());
     }
 
     /**
@@ -452,11 +703,14 @@ public class Calendar implements Serializable {
      * @param newMemoName the new memo message to be added
      */
     public void editEntireMemo(Memo memo, String newMemoName){
+        if (!memoManager.getNotes().containsKey(memo))
+            return;
         Memo newMemo = new Memo(newMemoName);
         List<Event> events = memoManager.editEntireNote(memo, newMemo);
         for (Event event:events){
             event.editMemoForOne(memo, newMemo);
         }
+        record(Mutation.Op.EDIT_MEMO_ALL, memo.getNote(), newMemoName);
     }
 
     /**
@@ -465,10 +719,13 @@ public class Calendar implements Serializable {
      * @param tag the tag to be removed
      */
     public void deleteEntireTag(Tag tag){
+        if (!tagManager.getNotes().containsKey(tag))
+            return;
         List<Event> events = tagManager.deleteEntireNote(tag);
         for (Event event:events){
             event.deleteTag(tag);
         }
+        record(Mutation.Op.DELETE_TAG_ALL, tag.getNote());
     }
 
     /**
@@ -477,10 +734,13 @@ public class Calendar implements Serializable {
      * @param memo the memo to be removed
      */
     public void deleteEntireMemo(Memo memo){
+        if (!memoManager.getNotes().containsKey(memo))
+            return;
         List<Event> events = memoManager.deleteEntireNote(memo);
         for (Event event:events){
             event.deleteMemo(memo);
         }
+        record(Mutation.Op.DELETE_MEMO_ALL, memo.getNote());
     }
 
     /**
@@ -492,6 +752,7 @@ public class Calendar implements Serializable {
     public void deleteTagFromEvent(Event event, Tag tag) {
         event.deleteTag(tag);
         tagManager.deleteNoteFromEvent(event, tag);
+        record(Mutation.Op.DELETE_TAG, event.getName(), tag.getNote());
     }
 
     /**
@@ -503,6 +764,7 @@ public class Calendar implements Serializable {
     public void deleteMemoFromEvent(Event event, Memo memo) {
         event.deleteMemo(memo);
         memoManager.deleteNoteFromEvent(event, memo);
+        record(Mutation.Op.DELETE_MEMO, event.getName(), memo.getNote());
     }
 
     /**
@@ -513,6 +775,7 @@ public class Calendar implements Serializable {
      */
     public void deleteAlert(Event event, Alert alert) {
         event.deleteAlert(alert);
+        record(Mutation.Op.DELETE_ALERT, event.getName(), alert.getAlertName(), alert.getAlertDateTime());
     }
 
     /**
@@ -521,7 +784,8 @@ public class Calendar implements Serializable {
      * @param event the name of the event to be removed
      */
     public void deleteEvent(String event) {
-        deleteEvent(events.get(event));
+        Event e = events.get(event);
+        deleteEvent(e != null ? e : occurrence(event));
     }
 
     /**
@@ -530,6 +794,13 @@ public class Calendar implements Serializable {
      * @param e the event to be removed
      */
     public void deleteEvent(Event e) {
+        Occurrence o = fromRule(e);
+        if (o != null) {
+            o.getEventSeries().cancel(o);
+            record(Mutation.Op.DELETE_EVENT, o.getName());
+            return;
+        }
+        e = take(e);
         List<Tag> tag = e.viewAllTag();
         List<Memo> memo = e.viewAllMemo();
         for (Tag t : tag)
@@ -539,41 +810,19 @@ public class Calendar implements Serializable {
         for(EventSeries es : series)
             es.removeEventFromSeries(e);
         events.remove(e.getName());
-        pastEvents.remove(e);
-        ongoingEvents.remove(e);
-        futureEvents.remove(e);
+        unplace(e);
+        record(Mutation.Op.DELETE_EVENT, e.getName());
     }
 
     /**
-     * show all the events that start in the future
-     *
-     * @return a list of Event in ascending start time
-     */
-    private List<Event> getFutureEvents() {
-        updateEvents();
-        return new ArrayList<>(this.futureEvents);
-    }
-
-    /**
-     * show all the events that have started but not ended yet
-     *
-     * @return a list of Event in ascending start time
+     * This method returns whether an event is the one kept in this calendar under its name, or an occurrence worked
+     * out from the rule of one of its series.
+     * @param event the event
+     * @return true if it is
      */
-    private List<Event> getOngoingEvents() {
-        updateEvents();
-        List<Event> es = new ArrayList<>(this.ongoingEvents);
-        es.sort(Comparator.comparing(Event::getStartDateTime));
-        return es;
-    }
-
-    /**
-     * show all the events that have already ended
-     *
-     * @return a list of Event in ascending start time
-     */
-    private List<Event> getPastEvents() {
-        updateEvents();
-        return new ArrayList<>(this.pastEvents);
+    boolean owns(Event event) {
+        return events.get(event.getName()) == event
+                || event instanceof Occurrence && series.contains(((Occurrence) event).getEventSeries());
     }
 
     /**
@@ -583,19 +832,11 @@ public class Calendar implements Serializable {
      *          false if such event does not exist
      */
     public boolean hasEventWithSameName(String name){
-        for(Event event: pastEvents){
+        for(Event event: getAllEvents()){
             if(event.getName().equals(name))
                 return true;
         }
-        for(Event event: ongoingEvents){
-            if(event.getName().equals(name))
-                return true;
-        }
-        for(Event event: futureEvents){
-            if(event.getName().equals(name))
-                return true;
-        }
-        return false;
+        return occurrence(name) != null;
     }
 
     /**
@@ -613,7 +854,19 @@ public class Calendar implements Serializable {
      * @param startTime the new start time
      */
     public void editEventTime(Event event, LocalDateTime endTime, LocalDateTime startTime){
+        Occurrence o = fromRule(event);
+        if (o != null) {
+            o.getEventSeries().reschedule(o, startTime, endTime);
+            o.setTime(endTime, startTime);
+            record(Mutation.Op.EDIT_EVENT_TIME, o.getName(), endTime, startTime);
+            return;
+        }
+        event = take(event);
+        boolean placed = unplace(event);
         event.setTime(endTime, startTime);
+        if (placed)
+            place(event);
+        record(Mutation.Op.EDIT_EVENT_TIME, event.getName(), endTime, startTime);
     }
 
     /**
@@ -622,7 +875,25 @@ public class Calendar implements Serializable {
      * @param name the new name
      */
     public void editEventName(Event event, String name){
+        Occurrence o = fromRule(event);
+        if (o != null) {
+            String oldName = o.getName();
+            o.getEventSeries().rename(o, name);
+            o.setName(name);
+            record(Mutation.Op.EDIT_EVENT_NAME, oldName, name);
+            return;
+        }
+        event = take(event);
+        String oldName = event.getName();
+        if (events.get(oldName) == event) {
+            events.remove(oldName);
+            events.put(name, event);
+        }
+        boolean placed = unplace(event);
         event.setName(name);
+        if (placed)
+            place(event);
+        record(Mutation.Op.EDIT_EVENT_NAME, oldName, name);
     }
 
     /**
@@ -682,7 +953,9 @@ public class Calendar implements Serializable {
      * @param text the new name in String
      */
     public void changeNameTo(EventSeries currentEventSeries, String text) {
+        String oldName = currentEventSeries.getSeriesName();
         currentEventSeries.changeNameTo(text);
+        record(Mutation.Op.RENAME_SERIES, oldName, text);
     }
 
     /**
@@ -691,34 +964,34 @@ public class Calendar implements Serializable {
      */
     public void deleteEventSeries(EventSeries currentEventSeries) {
         this.series.removeIf(i -> currentEventSeries.getSeriesName().equals(i.getSeriesName()));
+        record(Mutation.Op.DELETE_SERIES, currentEventSeries.getSeriesName());
     }
 
     /**
-     * This method merges several calendar into a common one to let the user see the entire schedule.
+     * This method merges several calendar into a common one to let the user see the entire schedule. Nothing is
+     * copied: the merged calendar reads the given calendars as it is used, and makes the changes to an event in the
+     * calendar the event belongs to. The common calendar is merged as the session of the user, see
+     * CommonCalendar.session, so that only the events of the user are shown and searched.
      * @param calendars the List of calendars going to be merged
-     * @return a Calendar that contains all the events of the merged calendars
+     * @return a Calendar that shows all the events of the merged calendars
+     * @throws IllegalArgumentException if the common calendar itself is among them
      */
     static public Calendar mergeCalendars(List<Calendar> calendars) {
-        TreeSet<Event> pastEvents = new TreeSet<>();
-        TreeSet<Event> ongoingEvents = new TreeSet<>();
-        TreeSet<Event> futureEvents = new TreeSet<>();
-        Map<String, Event> events = new HashMap<>();
-        List<EventSeries> series = new ArrayList<>();
-        List<NoteManager> tagManagers = new ArrayList<>();
-        List<NoteManager> memoManagers = new ArrayList<>();
-        for (Calendar calendar : calendars) {
-            pastEvents.addAll(calendar.getEvents(Time.PAST));
-            ongoingEvents.addAll(calendar.getEvents(Time.ONGOING));
-            futureEvents.addAll(calendar.getEvents(Time.FUTURE));
-            events.putAll(calendar.getEventsMapping());
-            series.addAll(calendar.getAllEventSeries());
-            tagManagers.add(calendar.getManager("tag"));
-            memoManagers.add(calendar.getManager("memo"));
-        }
-        NoteManager tagManager = Calendar.mergeNoteManager(tagManagers);
-        NoteManager memoManager = Calendar.mergeNoteManager(memoManagers);
-        return new Calendar(" ", pastEvents, ongoingEvents,
-                futureEvents, events, series, tagManager, memoManager);
+        for (Calendar c : calendars)
+            if (c instanceof CommonCalendar)
+                throw new IllegalArgumentException("The common calendar can only be merged as the session of a user.");
+        MergeEvent event = new MergeEvent();
+        event.begin();
+        Calendar merged = new MergedCalendar(calendars);
+        if (event.shouldCommit()) {
+            StringJoiner names = new StringJoiner(", ");
+            for (Calendar c : calendars)
+                names.add(c.getCalendarName());
+            event.calendars = names.toString();
+            event.count = calendars.size();
+            event.commit();
+        }
+        return merged;
     }
 
     /**
@@ -760,7 +1033,357 @@ public class Calendar implements Serializable {
      * @param dt the new alert time
      */
     public void setAlertInfo(Alert a, String name, LocalDateTime dt){
-        a.setAlertDateTime(dt);
-        a.setAlertName(name);
+        for (Event event : events.values()) {
+            if (event.hasAlert(a)) {
+                setAlertInfo(event, a, name, dt);
+                return;
+            }
+        }
+    }
+
+    /**
+     * set the information of the given alert of the given event
+     *
+     * @param event the event with the alert
+     * @param a the alert to be changed
+     * @param name the new alert message
+     * @param dt the new alert time
+     */
+    public void setAlertInfo(Event event, Alert a, String name, LocalDateTime dt){
+        String oldName = a.getAlertName();
+        LocalDateTime oldTime = a.getAlertDateTime();
+        event.editAlert(a, name, dt);
+        record(Mutation.Op.SET_ALERT_INFO, oldName, oldTime, name, dt);
+    }
+
+    /**
+     * This method attaches the journal that records the changes made to this calendar.
+     * @param journal the journal; null to stop recording
+     */
+    void setJournal(Journal<?> journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * This method records a change made to this calendar.
+     * @param op the kind of the change
+     * @param args the arguments of the change
+     */
+    void record(Mutation.Op op, Object... args) {
+        if (muted > 0)
+            return;
+        if (journal != null)
+            journal.append(new Mutation(op, calendarName, args));
+    }
+
+    /**
+     * This method runs an action without recording the changes it makes, for actions that are recorded as a whole.
+     * @param action the action
+     */
+    void mute(Runnable action) {
+        ++muted;
+        try {
+            action.run();
+        } finally {
+            --muted;
+        }
+    }
+
+    /**
+     * This method writes this calendar in the binary format. Every event is written once, in the order of start time
+     * so that the start times can be written as small differences; the series, tags and memos then refer to the
+     * events by their position.
+     * @param out the output
+     */
+    void write(BinaryFormat.Writer out) {
+        List<Event> placed = getAllEvents();
+        Map<Event, Integer> index = new IdentityHashMap<>();
+        for (Event e : placed)
+            index.put(e, index.size());
+        // events that are only reachable through a series, a note or a stale name
+        List<Event> unplaced = new ArrayList<>();
+        for (EventSeries es : series)
+            for (Event e : es.getSeries())
+                if (index.putIfAbsent(e, index.size()) == null)
+                    unplaced.add(e);
+        for (NoteManager m : Arrays.asList(tagManager, memoManager))
+            for (List<Event> l : m.getNotes().values())
+                for (Event e : l)
+                    if (index.putIfAbsent(e, index.size()) == null)
+                        unplaced.add(e);
+        for (Event e : events.values())
+            if (index.putIfAbsent(e, index.size()) == null)
+                unplaced.add(e);
+
+        out.writeString(calendarName);
+        out.writeVarInt(placed.size());
+        out.writeVarInt(unplaced.size());
+        LocalDateTime base = null;
+        for (List<Event> l : Arrays.asList(placed, unplaced)) {
+            for (Event e : l) {
+                out.writeEvent(e, base);
+                base = e.getStartDateTime();
+            }
+        }
+
+        boolean byName = events.size() == placed.size();
+        for (Event e : placed)
+            byName &= events.get(e.getName()) == e;
+        if (byName) {
+            out.writeVarInt(0);
+        } else {
+            out.writeVarInt(events.size() + 1);
+            for (Map.Entry<String, Event> entry : events.entrySet()) {
+                out.writeString(entry.getKey());
+                out.writeVarInt(index.get(entry.getValue()));
+            }
+        }
+
+        out.writeVarInt(series.size());
+        for (EventSeries es : series) {
+            out.writeString(es.getSeriesName());
+            out.writeVarInt(es.getSeries().size());
+            for (Event e : es.getSeries())
+                out.writeVarInt(index.get(e));
+            out.writeVarInt(es.hasRule() ? 1 : 0);
+            if (es.hasRule()) {
+                out.writeString(es.getEventName());
+                out.writeTime(es.getFirstStart(), null);
+                out.writeTime(es.getFirstEnd(), es.getFirstStart());
+                out.writeSignedVarLong(es.getPeriod().getSeconds());
+                out.writeVarInt(es.getPeriod().getNano());
+                out.writeVarInt(es.getCount());
+                // the occurrences taken out of the rule, as the position of the event they have become plus 1; 0 was
+                // written for a deleted one before the changes were kept
+                out.writeVarInt(es.getTaken().size());
+                for (Map.Entry<Integer, Event> entry : es.getTaken().entrySet()) {
+                    out.writeVarInt(entry.getKey());
+                    out.writeVarInt(index.get(entry.getValue()) + 1);
+                }
+                // the changes, as the position and 1 if cancelled, 2 if renamed and 4 if moved, then the name and time
+                out.writeVarInt(es.getChanges().size());
+                for (Map.Entry<Integer, OccurrenceChange> entry : es.getChanges().entrySet()) {
+                    OccurrenceChange change = entry.getValue();
+                    out.writeVarInt(entry.getKey());
+                    out.writeVarInt((change.isCancelled() ? 1 : 0) | (change.getName() != null ? 2 : 0)
+                            | (change.getStartDateTime() != null ? 4 : 0));
+                    if (change.getName() != null)
+                        out.writeString(change.getName());
+                    if (change.getStartDateTime() != null) {
+                        out.writeTime(change.getStartDateTime(), es.getFirstStart());
+                        out.writeTime(change.getEndDateTime(), change.getStartDateTime());
+                    }
+                }
+            }
+        }
+
+        for (NoteManager m : Arrays.asList(tagManager, memoManager)) {
+            out.writeVarInt(m.getAllNotes().size());
+            for (Note note : m.getAllNotes()) {
+                List<Event> l = m.getNotes().getOrDefault(note, Collections.emptyList());
+                out.writeString(note.getNote());
+                out.writeVarInt(l.size());
+                for (Event e : l)
+                    out.writeVarInt(index.get(e));
+            }
+        }
+    }
+
+    /**
+     * This method fills this empty calendar with a calendar read in the binary format.
+     * @param in the input
+     * @throws IOException an exception in file I/O
+     */
+    void read(BinaryFormat.Reader in) throws IOException {
+        calendarName = in.readString();
+        int placed = in.readVarInt();
+        Event[] es = new Event[placed + in.readVarInt()];
+        LocalDateTime base = null;
+        for (int i = 0; i < es.length; ++i) {
+            es[i] = in.readEvent(base);
+            base = es[i].getStartDateTime();
+        }
+        for (int i = 0; i < placed; ++i) {
+            events.put(es[i].getName(), es[i]);
+            place(es[i]);
+        }
+
+        int names = in.readVarInt();
+        if (names > 0) {
+            events.clear();
+            for (int i = 1; i < names; ++i) {
+                String name = in.readString();
+                events.put(name, es[in.readVarInt()]);
+            }
+        }
+
+        for (int i = in.readVarInt(); i > 0; --i) {
+            String seriesName = in.readString();
+            List<Event> members = new ArrayList<>();
+            for (int j = in.readVarInt(); j > 0; --j)
+                members.add(es[in.readVarInt()]);
+            EventSeries eventSeries = new EventSeries(seriesName);
+            if (in.getVersion() >= 4 && in.readVarInt() == 1) {
+                String name = in.readString();
+                LocalDateTime start = in.readTime(null);
+                LocalDateTime end = in.readTime(start);
+                Duration period = Duration.ofSeconds(in.readSignedVarLong(), in.readVarInt());
+                eventSeries = EventSeries.repeating(name, start, end, seriesName, period, in.readVarInt());
+                for (int j = in.readVarInt(); j > 0; --j) {
+                    int position = in.readVarInt(), event = in.readVarInt();
+                    if (event == 0)
+                        eventSeries.setChange(position, OccurrenceChange.CANCELLED);
+                    else
+                        eventSeries.getTaken().put(position, es[event - 1]);
+                }
+                for (int j = in.getVersion() >= 5 ? in.readVarInt() : 0; j > 0; --j) {
+                    int position = in.readVarInt(), flags = in.readVarInt();
+                    String changedName = (flags & 2) != 0 ? in.readString() : null;
+                    LocalDateTime changedStart = null, changedEnd = null;
+                    if ((flags & 4) != 0) {
+                        changedStart = in.readTime(start);
+                        changedEnd = in.readTime(changedStart);
+                    }
+                    eventSeries.setChange(position,
+                            new OccurrenceChange((flags & 1) != 0, changedName, changedStart, changedEnd));
+                }
+            }
+            for (Event e : members)
+                eventSeries.addEvent(e);
+            series.add(eventSeries);
+        }
+
+        for (NoteManager m : Arrays.asList(tagManager, memoManager)) {
+            for (int i = in.readVarInt(); i > 0; --i) {
+                String text = in.readString();
+                List<Event> l = new ArrayList<>();
+                for (int j = in.readVarInt(); j > 0; --j)
+                    l.add(es[in.readVarInt()]);
+                m.addNotedListOfEvents(m == tagManager ? new Tag(text) : new Memo(text), l);
+            }
+        }
+    }
+
+    /**
+     * This method applies a change read back from the journal.
+     * @param m the change
+     */
+    void apply(Mutation m) {
+        Event e;
+        switch (m.op) {
+            case ADD_EVENT:
+                addEvent(new Event(m.string(0), m.time(1), m.time(2)));
+                break;
+            case CREATE_SERIES:
+                createEvent(m.string(0), m.time(1), m.time(2), m.string(3), m.duration(4), m.integer(5));
+                break;
+            case ADD_INTO_SERIES:
+                if ((e = find(m.string(0))) != null)
+                    addIntoSeries(e, m.string(1));
+                break;
+            case ADD_TAG:
+                if ((e = find(m.string(1))) != null)
+                    addTagToEvent(m.string(0), e);
+                break;
+            case ADD_MEMO:
+                if ((e = find(m.string(1))) != null)
+                    addMemoToEvent(m.string(0), e);
+                break;
+            case EDIT_TAG_ONE:
+                if ((e = find(m.string(2))) != null)
+                    editTagForOne(new Tag(m.string(0)), m.string(1), e);
+                break;
+            case EDIT_TAG_ALL:
+                editEntireTag(new Tag(m.string(0)), m.string(1));
+                break;
+            case EDIT_MEMO_ONE:
+                if ((e = find(m.string(2))) != null)
+                    editMemoForOne(new Memo(m.string(0)), m.string(1), e);
+                break;
+            case EDIT_MEMO_ALL:
+                editEntireMemo(new Memo(m.string(0)), m.string(1));
+                break;
+            case DELETE_TAG_ALL:
+                deleteEntireTag(new Tag(m.string(0)));
+                break;
+            case DELETE_MEMO_ALL:
+                deleteEntireMemo(new Memo(m.string(0)));
+                break;
+            case DELETE_TAG:
+                if ((e = find(m.string(0))) != null)
+                    deleteTagFromEvent(e, new Tag(m.string(1)));
+                break;
+            case DELETE_MEMO:
+                if ((e = find(m.string(0))) != null)
+                    deleteMemoFromEvent(e, new Memo(m.string(1)));
+                break;
+            case SET_ALERT:
+                if ((e = find(m.string(0))) != null)
+                    e.createIndividualAlert(m.string(1), m.time(2), m.time(3));
+                break;
+            case SET_FREQUENCY_ALERT:
+                if ((e = find(m.string(0))) != null)
+                    e.createFrequencyAlert(m.string(1), m.time(2), e.getStartDateTime(), m.duration(3), m.time(4));
+                break;
+            case DELETE_ALERT:
+                if ((e = find(m.string(0))) != null)
+                    deleteAlert(e, new Alert(m.string(1), m.time(2)));
+                break;
+            case SET_ALERT_INFO:
+                setAlertInfo(new Alert(m.string(0), m.time(1)), m.string(2), m.time(3));
+                break;
+            case DELETE_EVENT:
+                if ((e = lookup(m.string(0))) != null)
+                    deleteEvent(e);
+                break;
+            case EDIT_EVENT_TIME:
+                if ((e = lookup(m.string(0))) != null)
+                    editEventTime(e, m.time(1), m.time(2));
+                break;
+            case EDIT_EVENT_NAME:
+                if ((e = lookup(m.string(0))) != null)
+                    editEventName(e, m.string(1));
+                break;
+            case RENAME_SERIES:
+                EventSeries renamed = searchSeriesByName(m.string(0));
+                if (renamed != null)
+                    changeNameTo(renamed, m.string(1));
+                break;
+            case DELETE_SERIES:
+                EventSeries deleted = searchSeriesByName(m.string(0));
+                if (deleted != null)
+                    deleteEventSeries(deleted);
+                break;
+        }
+    }
+
+    /**
+     * This method finds an event by its name, including the events that are only kept in a series, to be changed.
+     * An occurrence worked out from the rule of a series is made a real event.
+     * @param name the name of the event
+     * @return the event if found
+     *          null otherwise
+     */
+    private Event find(String name) {
+        Event e = lookup(name);
+        return e == null ? null : take(e);
+    }
+
+    /**
+     * This method finds an event by its name, including the events that are only kept in a series. An occurrence
+     * worked out from the rule of a series is left as it is, for the changes that the series keeps by itself.
+     * @param name the name of the event
+     * @return the event if found
+     *          null otherwise
+     */
+    private Event lookup(String name) {
+        Event e = events.get(name);
+        if (e != null)
+            return e;
+        for (EventSeries es : series)
+            for (Event event : es.getSeries())
+                if (event.getName().equals(name))
+                    return event;
+        return occurrence(name);
     }
 }
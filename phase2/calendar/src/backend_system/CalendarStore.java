@@ -0,0 +1,92 @@
+package backend_system;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class keeps each calendar of a user in its own snapshot and log, so that a calendar is only read when it is
+ * first used and is saved independently of the other calendars. The files of a calendar are named by its position in
+ * the list of calendars of the user.
+ */
+class CalendarStore {
+    private final File dir;
+    private final boolean logging;
+    private final List<Journal<Calendar>> journals = new ArrayList<>();
+    private Checkpointer checkpointer;
+
+    /**
+     * Constructor of the class.
+     * @param dir the directory of the calendars of the user
+     * @param logging true if the changes to the calendars are appended to logs
+     */
+    CalendarStore(File dir, boolean logging) {
+        this.dir = dir;
+        this.logging = logging;
+    }
+
+    /**
+     * This method reads a calendar from its files.
+     * @param index the position of the calendar
+     * @param name the name of the calendar, used if it has no files yet
+     * @return the calendar, which records its changes from now on
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    Calendar load(int index, String name) throws IOException, ClassNotFoundException {
+        return open(index, new Calendar(name));
+    }
+
+    /**
+     * This method replaces the files of a calendar with the given calendar.
+     * @param index the position of the calendar
+     * @param calendar the calendar
+     * @return the calendar read back from the files, which records its changes from now on
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    Calendar save(int index, Calendar calendar) throws IOException, ClassNotFoundException {
+        Journal.delete(snapshot(index), log(index));
+        return open(index, calendar);
+    }
+
+    private Calendar open(int index, Calendar initial) throws IOException, ClassNotFoundException {
+        Journal<Calendar> journal = new Journal<>(snapshot(index), log(index), initial, logging,
+                BinaryFormat.CALENDAR);
+        Calendar calendar = journal.load(Calendar::apply);
+        calendar.setJournal(journal);
+        journals.add(journal);
+        if (checkpointer != null)
+            checkpointer.add(journal);
+        return calendar;
+    }
+
+    /**
+     * This is the getter of the journals of the calendars read so far.
+     * @return the journals
+     */
+    List<Journal<Calendar>> getJournals() {
+        return journals;
+    }
+
+    /**
+     * This method hands the journals of the calendars read so far, and those read later, to the background
+     * checkpoints.
+     * @param checkpointer the checkpointer; null if the checkpoints have stopped
+     */
+    void setCheckpointer(Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+        if (checkpointer != null)
+            for (Journal<Calendar> journal : journals)
+                checkpointer.add(journal);
+    }
+
+    private File snapshot(int index) {
+        return new File(dir, "calendar" + index + ".ser");
+    }
+
+    private File log(int index) {
+        return new File(dir, "calendar" + index + ".log");
+    }
+}
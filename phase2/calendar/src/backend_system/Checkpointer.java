@@ -0,0 +1,111 @@
+package backend_system;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * This class checkpoints journals in the background. At every interval the changed journals are captured through the
+ * given executor, which should run on the thread that changes them, and the snapshots are then written to the disk on
+ * a thread of this class, so the capturing thread never waits for the disk.
+ */
+class Checkpointer {
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "checkpointer");
+        t.setDaemon(true);
+        return t;
+    });
+    private final List<Journal<?>> journals = new CopyOnWriteArrayList<>();
+    private final Executor captureExecutor;
+
+    /**
+     * Constructor of the class.
+     * @param interval the time between two checkpoints
+     * @param captureExecutor the executor that runs the capture of the journals
+     */
+    Checkpointer(Duration interval, Executor captureExecutor) {
+        this.captureExecutor = captureExecutor;
+        long ms = interval.toMillis();
+        writer.scheduleWithFixedDelay(this::tick, ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method adds a journal to be checkpointed.
+     * @param journal the journal
+     */
+    void add(Journal<?> journal) {
+        journals.add(journal);
+    }
+
+    /**
+     * This method stops checkpointing a journal.
+     * @param journal the journal
+     */
+    void remove(Journal<?> journal) {
+        journals.remove(journal);
+    }
+
+    private void tick() {
+        try {
+            captureExecutor.execute(() -> {
+                for (Journal<?> journal : journals)
+                    if (journal.isDirty())
+                        checkpoint(journal);
+            });
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method captures a journal on the calling thread and writes its snapshot in the background.
+     * @param journal the journal
+     */
+    void checkpoint(Journal<?> journal) {
+        Journal.Checkpoint checkpoint;
+        try {
+            checkpoint = journal.capture();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Runnable write = () -> {
+            try {
+                checkpoint.write();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        };
+        try {
+            writer.execute(write);
+        } catch (RejectedExecutionException e) {
+            write.run();
+        }
+    }
+
+    /**
+     * This method waits until all the snapshots captured so far have been written.
+     */
+    void sync() {
+        try {
+            writer.submit(() -> { }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * This method stops the checkpoints and waits until all the snapshots captured so far have been written.
+     */
+    void stop() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,22 +1,40 @@
 package backend_system;
 
-import backend_system.entities.Event;
+import backend_system.entities.*;
+import backend_system.managers.MemoManager;
+import backend_system.managers.NoteManager;
+import clock.Clock;
 import clock.Time;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * This class represents a common calendar that is shared by all the users. Each events in this calendar are shared by
  * some of the users. It is a subclass of Calendar.
+ *
+ * One common calendar can be used by many sessions at once, each through the view given by session() for its own
+ * user. Every method takes a read-write lock on the whole calendar, so the changes are made one at a time and each is
+ * seen in full or not at all, while reading goes on in parallel. The lists returned are copies, which stay as they are
+ * whatever other sessions do. The methods without a user act on the calendar as a whole: an event added that way is
+ * shared with no one until addUser, and an event deleted that way is taken away from everyone.
  */
 public class CommonCalendar extends Calendar implements Serializable {
+    private static final long serialVersionUID = -6058607381156219337L;
 
-    private String username;
     private Map<String, List<String>> eventToUsers = new HashMap<>();
+    // the events each user has access to, in ascending start time, so that the events of a user are found without
+    // going through those of everyone else
+    private transient Map<String, TreeSet<Event>> userToEvents = new HashMap<>();
+    private transient ReadWriteLock lock = new ReentrantReadWriteLock();
 
     /**
      * This is the constructor. It takes a String as the name of the Calendar.
@@ -26,12 +44,74 @@ public class CommonCalendar extends Calendar implements Serializable {
         super(name);
     }
 
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        lock = new ReentrantReadWriteLock();
+        reindex();
+    }
+
+    private void reindex() {
+        userToEvents = new HashMap<>();
+        for (Map.Entry<String, List<String>> entry : eventToUsers.entrySet()) {
+            Event e = super.getEvent(entry.getKey());
+            if (e != null)
+                for (String user : entry.getValue())
+                    userToEvents.computeIfAbsent(user, k -> new TreeSet<>()).add(e);
+        }
+    }
+
+    /**
+     * This method takes an event out of the index before its name or time changes, and puts it back afterward.
+     */
+    private void reindex(Event event, Runnable change) {
+        List<String> us = super.owns(event) ? eventToUsers.get(event.getName()) : null;
+        if (us == null) {
+            change.run();
+            return;
+        }
+        for (String user : us)
+            userToEvents.get(user).remove(event);
+        try {
+            change.run();
+        } finally {
+            for (String user : us)
+                userToEvents.get(user).add(event);
+        }
+    }
+
+    private <T> T reading(Supplier<T> action) {
+        lock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private <T> T writing(Supplier<T> action) {
+        lock.writeLock().lock();
+        try {
+            return action.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void writing(Runnable action) {
+        writing(() -> {
+            action.run();
+            return null;
+        });
+    }
+
     /**
-     * This method edits the user name
-     * @param username the new user name
+     * This method returns a view of this calendar for one user, which shows and changes the events of that user
+     * without touching the user of the other sessions.
+     * @param user the user name
+     * @return a Calendar
      */
-    public void setUsername(String username) {
-        this.username = username;
+    public Calendar session(String user) {
+        return new Session(this, user);
     }
 
     /**
@@ -42,18 +122,17 @@ public class CommonCalendar extends Calendar implements Serializable {
      *          -1 if unsuccessful
      */
     public int addUser(String event, String user) {
-        if (super.getEvent(event) == null)
-            return -1;
-        if (eventToUsers.containsKey(event)) {
-            List<String> us = eventToUsers.get(event);
-            if (!us.contains(user))
+        return writing(() -> {
+            if (super.getEvent(event) == null)
+                return -1;
+            List<String> us = eventToUsers.computeIfAbsent(event, k -> new ArrayList<>());
+            if (!us.contains(user)) {
                 us.add(user);
-        } else {
-            List<String> us = new ArrayList<>();
-            us.add(user);
-            eventToUsers.put(event, us);
-        }
-        return 1;
+                userToEvents.computeIfAbsent(user, k -> new TreeSet<>()).add(super.getEvent(event));
+            }
+            record(Mutation.Op.ADD_USER, event, user);
+            return 1;
+        });
     }
 
     /**
@@ -62,10 +141,22 @@ public class CommonCalendar extends Calendar implements Serializable {
      * @param user the target user name
      */
     public void removeUser(String event, String user) {
-        List<String> us = eventToUsers.get(event);
-        us.remove(user);
-        if (us.isEmpty())
-            deleteEvent(event);
+        writing(() -> {
+            List<String> us = eventToUsers.get(event);
+            if (us == null)
+                return;
+            if (us.remove(user)) {
+                TreeSet<Event> joined = userToEvents.get(user);
+                joined.remove(super.getEvent(event));
+                if (joined.isEmpty())
+                    userToEvents.remove(user);
+            }
+            record(Mutation.Op.REMOVE_USER, event, user);
+            if (us.isEmpty()) {
+                eventToUsers.remove(event);
+                mute(() -> super.deleteEvent(super.getEvent(event)));
+            }
+        });
     }
 
     /**
@@ -76,55 +167,686 @@ public class CommonCalendar extends Calendar implements Serializable {
      *          false if the user does not have the access to the event
      */
     public boolean contains(String event, String user) {
-        if (eventToUsers.containsKey(event)) {
+        return reading(() -> {
             List<String> us = eventToUsers.get(event);
-            return us.contains(user);
+            return us != null && us.contains(user);
+        });
+    }
+
+    /**
+     * This method keeps the events of a list that a user has access to, in the same order. It is called under the lock.
+     */
+    private List<Event> shared(List<Event> events, String user) {
+        List<Event> es = new ArrayList<>();
+        for (Event e : events) {
+            List<String> us = eventToUsers.get(e.getName());
+            if (us != null && us.contains(user))
+                es.add(e);
         }
-        return false;
+        return es;
     }
 
     /**
-     * This method adds an event into the calendar
+     * This method returns whether a user has access to any event of a series. It is called under the lock.
+     */
+    private boolean shared(EventSeries es, String user) {
+        return !shared(es.getEventList(), user).isEmpty();
+    }
+
+    /**
+     * This method adds an event into the calendar, shared with no one yet
      * @param event the event to be added
      */
     @Override
     public void addEvent(Event event) {
-        super.addEvent(event);
-        addUser(event.getName(), username);
+        writing(() -> super.addEvent(event));
+    }
+
+    /**
+     * This method adds an event into the calendar for a user
+     * @param event the event to be added
+     * @param user the user name
+     */
+    public void addEvent(Event event, String user) {
+        writing(() -> {
+            super.addEvent(event);
+            addUser(event.getName(), user);
+        });
+    }
+
+    /**
+     * This method creates a series of events in the calendar for a user
+     * @param name       the name of the new events
+     * @param startTime  the start time of the new event
+     * @param endTime    the end time of the new event
+     * @param seriesName the name of the series
+     * @param duration   the frequency of the events in the series
+     * @param number     total number of events in the series
+     * @param user       the user name
+     */
+    public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName,
+                            Duration duration, int number, String user) {
+        writing(() -> {
+            boolean added = super.searchSeriesByName(seriesName) == null;
+            super.createEvent(name, startTime, endTime, seriesName, duration, number);
+            // only a new series puts its events in the calendar, see Calendar.createEvent
+            EventSeries es = super.searchSeriesByName(seriesName);
+            if (added && es != null)
+                for (Event e : es.getEventList())
+                    addUser(e.getName(), user);
+        });
     }
 
     /**
-     * This method removes an event from this calendar
+     * The events of the common calendar are shared with the users one by one, so its series keep all their events.
+     * @return false
+     */
+    @Override
+    boolean keepsRules() {
+        return false;
+    }
+
+    /**
+     * This method removes an event from this calendar, for all the users who have access to it
      * @param event the event going to be removed
      */
     @Override
     public void deleteEvent(Event event) {
-        removeUser(event.getName(), username);
+        writing(() -> {
+            List<String> us = eventToUsers.get(event.getName());
+            if (us == null)
+                super.deleteEvent(event);
+            else
+                for (String user : new ArrayList<>(us))
+                    removeUser(event.getName(), user);
+        });
     }
 
     /**
-     * This method shows all the event in the given period of time
+     * This method removes an event from this calendar for a user, who no longer has the access to it
+     * @param event the event going to be removed
+     * @param user the user name
+     */
+    public void deleteEvent(Event event, String user) {
+        removeUser(event.getName(), user);
+    }
+
+    /**
+     * This method shows all the event in the given period of time, whoever has access to them
      * @param time the target time period
      * @return a List of Events
      */
     @Override
     public List<Event> getEvents(Time time) {
-        List<Event> es = new ArrayList<>();
-        for (Event e: super.getEvents(time))
-            if (contains(e.getName(), username))
-                es.add(e);
-        return es;
+        return reading(() -> new ArrayList<>(super.getEvents(time)));
     }
 
     /**
-     * This is the getter of event with given name
+     * This method shows all the event of a user in the given period of time
+     * @param time the target time period
+     * @param user the user name
+     * @return a List of Events
+     */
+    public List<Event> getEvents(Time time, String user) {
+        return reading(() -> {
+            TreeSet<Event> joined = userToEvents.get(user);
+            List<Event> es = new ArrayList<>();
+            if (joined == null)
+                return es;
+            LocalDateTime now = Clock.getTime();
+            if (time == Time.ALL) {
+                es.addAll(joined);
+            } else if (time == Time.FUTURE) {
+                // the events that have not started are the last ones
+                for (Iterator<Event> it = joined.descendingIterator(); it.hasNext(); ) {
+                    Event e = it.next();
+                    if (!now.isBefore(e.getStartDateTime()))
+                        break;
+                    es.add(e);
+                }
+                Collections.reverse(es);
+            } else {
+                for (Event e : joined) {
+                    if (now.isBefore(e.getStartDateTime()))
+                        break;
+                    if (now.isBefore(e.getEndDateTime()) == (time == Time.ONGOING))
+                        es.add(e);
+                }
+            }
+            return es;
+        });
+    }
+
+    /**
+     * This is the getter of event with given name, whoever has access to it
      * @param name the target name in String
      * @return an Event if such event exists
      *          null if no such event exists
      */
     @Override
     public Event getEvent(String name) {
-        Event e = super.getEvent(name);
-        return contains(name, username) ? e : null;
+        return reading(() -> super.getEvent(name));
+    }
+
+    /**
+     * This is the getter of event of a user with given name
+     * @param name the target name in String
+     * @param user the user name
+     * @return an Event if such event exists
+     *          null if no such event exists
+     */
+    public Event getEvent(String name, String user) {
+        return reading(() -> contains(name, user) ? super.getEvent(name) : null);
+    }
+
+    /**
+     * This method renames an event and moves the users who have access to it to the new name.
+     * @param event the target event
+     * @param name the new name
+     */
+    @Override
+    public void editEventName(Event event, String name) {
+        writing(() -> reindex(event, () -> {
+            List<String> us = eventToUsers.remove(event.getName());
+            if (us != null)
+                eventToUsers.put(name, us);
+            super.editEventName(event, name);
+        }));
+    }
+
+    /*
+     * The rest of the methods of Calendar, each under the lock
+     */
+
+    @Override
+    public void setAlert(Event event, String name, LocalDateTime time) {
+        writing(() -> super.setAlert(event, name, time));
+    }
+
+    @Override
+    public void setAlert(Event event, String name, LocalDateTime time, Duration duration) {
+        writing(() -> super.setAlert(event, name, time, duration));
+    }
+
+    @Override
+    public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime) {
+        writing(() -> super.createEvent(name, startTime, endTime));
+    }
+
+    @Override
+    public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName,
+                            Duration duration, int number) {
+        writing(() -> super.createEvent(name, startTime, endTime, seriesName, duration, number));
+    }
+
+    @Override
+    public void addIntoSeries(Event event, String seriesName) {
+        writing(() -> super.addIntoSeries(event, seriesName));
+    }
+
+    @Override
+    public List<Event> searchByName(String name) {
+        return reading(() -> super.searchByName(name));
+    }
+
+    @Override
+    public List<Event> searchBySeriesName(String name) {
+        return reading(() -> super.searchBySeriesName(name));
+    }
+
+    @Override
+    public List<Event> searchByTag(String tagName) {
+        return reading(() -> super.searchByTag(tagName));
+    }
+
+    @Override
+    public List<Event> searchByTag(String tagName, boolean ignoreCase, boolean prefix) {
+        return reading(() -> super.searchByTag(tagName, ignoreCase, prefix));
+    }
+
+    @Override
+    public List<Event> searchByDate(LocalDate date) {
+        return reading(() -> super.searchByDate(date));
+    }
+
+    @Override
+    public List<Event> searchOverlapping(LocalDateTime from, LocalDateTime to) {
+        return reading(() -> super.searchOverlapping(from, to));
+    }
+
+    @Override
+    public LocalDateTime nextBoundary(LocalDateTime t) {
+        return reading(() -> super.nextBoundary(t));
+    }
+
+    @Override
+    public EventSeries searchSeriesByName(String name) {
+        return reading(() -> super.searchSeriesByName(name));
+    }
+
+    @Override
+    public void addTagToEvent(String tagName, Event event) {
+        writing(() -> super.addTagToEvent(tagName, event));
+    }
+
+    @Override
+    public void addMemoToEvent(String memoName, Event event) {
+        writing(() -> super.addMemoToEvent(memoName, event));
+    }
+
+    @Override
+    public List<Event> searchByMemo(String query) {
+        return reading(() -> super.searchByMemo(query));
+    }
+
+    @Override
+    List<Map.Entry<Double, List<Event>>> rankByMemo(String query) {
+        return reading(() -> super.rankByMemo(query));
+    }
+
+    @Override
+    MemoManager.Corpus countMemos(String query) {
+        return reading(() -> super.countMemos(query));
+    }
+
+    @Override
+    List<Map.Entry<Double, List<Event>>> rankByMemo(String query, MemoManager.Corpus corpus) {
+        return reading(() -> super.rankByMemo(query, corpus));
+    }
+
+    @Override
+    public List<Note> getAllMemos() {
+        return reading(() -> new ArrayList<>(super.getAllMemos()));
+    }
+
+    @Override
+    public List<Tag> viewTag(Event event) {
+        return reading(() -> new ArrayList<>(super.viewTag(event)));
+    }
+
+    @Override
+    public List<Alert> viewAlert(Event event) {
+        return reading(() -> new ArrayList<>(super.viewAlert(event)));
+    }
+
+    @Override
+    public List<Alert> viewAlert(Event event, LocalDateTime from, int max) {
+        return reading(() -> new ArrayList<>(super.viewAlert(event, from, max)));
+    }
+
+    @Override
+    public List<Memo> viewMemo(Event event) {
+        return reading(() -> new ArrayList<>(super.viewMemo(event)));
+    }
+
+    @Override
+    public void editTagForOne(Tag tag, String newTagName, Event event) {
+        writing(() -> super.editTagForOne(tag, newTagName, event));
+    }
+
+    @Override
+    public void editEntireTag(Tag tag, String newTagName) {
+        writing(() -> super.editEntireTag(tag, newTagName));
+    }
+
+    @Override
+    public void editMemoForOne(Memo memo, String newMemoName, Event event) {
+        writing(() -> super.editMemoForOne(memo, newMemoName, event));
+    }
+
+    @Override
+    public void editEntireMemo(Memo memo, String newMemoName) {
+        writing(() -> super.editEntireMemo(memo, newMemoName));
+    }
+
+    @Override
+    public void deleteEntireTag(Tag tag) {
+        writing(() -> super.deleteEntireTag(tag));
+    }
+
+    @Override
+    public void deleteEntireMemo(Memo memo) {
+        writing(() -> super.deleteEntireMemo(memo));
+    }
+
+    @Override
+    public void deleteTagFromEvent(Event event, Tag tag) {
+        writing(() -> super.deleteTagFromEvent(event, tag));
+    }
+
+    @Override
+    public void deleteMemoFromEvent(Event event, Memo memo) {
+        writing(() -> super.deleteMemoFromEvent(event, memo));
+    }
+
+    @Override
+    public void deleteAlert(Event event, Alert alert) {
+        writing(() -> super.deleteAlert(event, alert));
+    }
+
+    @Override
+    public void deleteEvent(String event) {
+        writing(() -> super.deleteEvent(event));
+    }
+
+    @Override
+    boolean owns(Event event) {
+        return reading(() -> super.owns(event));
+    }
+
+    @Override
+    public boolean hasEventWithSameName(String name) {
+        return reading(() -> super.hasEventWithSameName(name));
+    }
+
+    @Override
+    public List<EventSeries> getAllEventSeries() {
+        return reading(() -> new ArrayList<>(super.getAllEventSeries()));
+    }
+
+    @Override
+    public void editEventTime(Event event, LocalDateTime endTime, LocalDateTime startTime) {
+        writing(() -> reindex(event, () -> super.editEventTime(event, endTime, startTime)));
+    }
+
+    @Override
+    public Map<String, Event> getEventsMapping() {
+        return reading(() -> new HashMap<>(super.getEventsMapping()));
+    }
+
+    @Override
+    public List<String> getContentOfAllTags() {
+        return reading(() -> super.getContentOfAllTags());
+    }
+
+    @Override
+    public List<String> getContentOfAllMemos() {
+        return reading(() -> super.getContentOfAllMemos());
+    }
+
+    @Override
+    public void changeNameTo(EventSeries currentEventSeries, String text) {
+        writing(() -> super.changeNameTo(currentEventSeries, text));
+    }
+
+    @Override
+    public void deleteEventSeries(EventSeries currentEventSeries) {
+        writing(() -> super.deleteEventSeries(currentEventSeries));
+    }
+
+    @Override
+    public List<Event> getEventsOfMemo(Memo memo) {
+        return reading(() -> new ArrayList<>(super.getEventsOfMemo(memo)));
+    }
+
+    @Override
+    public List<Event> getEventsOfTag(Tag currentTag) {
+        return reading(() -> new ArrayList<>(super.getEventsOfTag(currentTag)));
+    }
+
+    @Override
+    public void setAlertInfo(Alert a, String name, LocalDateTime dt) {
+        writing(() -> super.setAlertInfo(a, name, dt));
+    }
+
+    @Override
+    public void setAlertInfo(Event event, Alert a, String name, LocalDateTime dt) {
+        writing(() -> super.setAlertInfo(event, a, name, dt));
+    }
+
+    /**
+     * This method writes this calendar with the users of each event in the binary format.
+     * @param out the output
+     */
+    @Override
+    void write(BinaryFormat.Writer out) {
+        lock.readLock().lock();
+        try {
+            writeLocked(out);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void writeLocked(BinaryFormat.Writer out) {
+        super.write(out);
+        // the user of the calendar before the sessions, which is not kept any more
+        out.writeString(null);
+        out.writeVarInt(eventToUsers.size());
+        for (Map.Entry<String, List<String>> entry : eventToUsers.entrySet()) {
+            out.writeString(entry.getKey());
+            out.writeVarInt(entry.getValue().size());
+            for (String user : entry.getValue())
+                out.writeString(user);
+        }
+    }
+
+    /**
+     * This method fills this empty calendar with a calendar read in the binary format.
+     * @param in the input
+     * @throws IOException an exception in file I/O
+     */
+    @Override
+    void read(BinaryFormat.Reader in) throws IOException {
+        super.read(in);
+        in.readString();
+        for (int i = in.readVarInt(); i > 0; --i) {
+            String event = in.readString();
+            List<String> users = new ArrayList<>();
+            for (int j = in.readVarInt(); j > 0; --j)
+                users.add(in.readString());
+            eventToUsers.put(event, users);
+        }
+        reindex();
+    }
+
+    /**
+     * This method applies a change read back from the journal.
+     * @param m the change
+     */
+    @Override
+    void apply(Mutation m) {
+        switch (m.op) {
+            case SET_USER:
+                // the user of the calendar before the sessions, which is not kept any more
+                break;
+            case ADD_USER:
+                addUser(m.string(0), m.string(1));
+                break;
+            case REMOVE_USER:
+                if (eventToUsers.containsKey(m.string(0)))
+                    removeUser(m.string(0), m.string(1));
+                break;
+            default:
+                super.apply(m);
+        }
+    }
+
+    /**
+     * The view of the common calendar for one user. The events are read and changed in the common calendar, which
+     * takes care of the lock; only the events the user has access to are shown, and every search and lookup is kept to
+     * them, as are the series, tags and memos.
+     */
+    private static final class Session extends MergedCalendar {
+        private static final long serialVersionUID = 6687556366337168627L;
+
+        private final CommonCalendar common;
+        private final String user;
+
+        private Session(CommonCalendar common, String user) {
+            super(Collections.singletonList(common));
+            this.common = common;
+            this.user = user;
+        }
+
+        @Override
+        Calendar owner(Event event) {
+            if (!owns(event))
+                throw new IllegalArgumentException("The event " + event.getName() + " is not shared with " + user + ".");
+            return common;
+        }
+
+        @Override
+        boolean owns(Event event) {
+            return common.contains(event.getName(), user) && common.owns(event);
+        }
+
+        @Override
+        public String getCalendarName() {
+            return common.getCalendarName();
+        }
+
+        @Override
+        public Event getEvent(String name) {
+            return common.getEvent(name, user);
+        }
+
+        @Override
+        public List<Event> getEvents(Time time) {
+            return common.getEvents(time, user);
+        }
+
+        @Override
+        public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime) {
+            common.addEvent(new Event(name, startTime, endTime), user);
+        }
+
+        @Override
+        public void addEvent(Event event) {
+            common.addEvent(event, user);
+        }
+
+        @Override
+        public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName,
+                                Duration duration, int number) {
+            common.createEvent(name, startTime, endTime, seriesName, duration, number, user);
+        }
+
+        @Override
+        public void deleteEvent(Event e) {
+            common.deleteEvent(e, user);
+        }
+
+        private List<Event> shared(List<Event> events) {
+            return events == null ? null : common.shared(events, user);
+        }
+
+        /**
+         * A series is found if the user has access to any of its events; only those are returned.
+         */
+        @Override
+        public List<Event> searchBySeriesName(String name) {
+            return common.reading(() -> {
+                List<Event> events = shared(common.searchBySeriesName(name));
+                return events == null || events.isEmpty() ? null : events;
+            });
+        }
+
+        @Override
+        public List<Event> searchByTag(String tagName) {
+            return common.reading(() -> shared(common.searchByTag(tagName)));
+        }
+
+        @Override
+        public List<Event> searchByTag(String tagName, boolean ignoreCase, boolean prefix) {
+            return common.reading(() -> shared(common.searchByTag(tagName, ignoreCase, prefix)));
+        }
+
+        @Override
+        public List<Event> searchOverlapping(LocalDateTime from, LocalDateTime to) {
+            return common.reading(() -> shared(common.searchOverlapping(from, to)));
+        }
+
+        @Override
+        public EventSeries searchSeriesByName(String name) {
+            return common.reading(() -> {
+                EventSeries es = common.searchSeriesByName(name);
+                return es != null && common.shared(es, user) ? es : null;
+            });
+        }
+
+        // the memos are counted over the whole common calendar, as counting only those of the user would mean going
+        // through all of them for each search
+        @Override
+        List<Map.Entry<Double, List<Event>>> rankByMemo(String query, MemoManager.Corpus corpus) {
+            return common.reading(() -> {
+                List<Map.Entry<Double, List<Event>>> ranked = new ArrayList<>();
+                for (Map.Entry<Double, List<Event>> entry : common.rankByMemo(query, corpus)) {
+                    List<Event> es = shared(entry.getValue());
+                    if (!es.isEmpty())
+                        ranked.add(new AbstractMap.SimpleEntry<>(entry.getKey(), es));
+                }
+                return ranked;
+            });
+        }
+
+        @Override
+        public List<Note> getAllMemos() {
+            return getManager("memo").getAllNotes();
+        }
+
+        @Override
+        public boolean hasEventWithSameName(String name) {
+            return common.contains(name, user);
+        }
+
+        @Override
+        public List<EventSeries> getAllEventSeries() {
+            return common.reading(() -> {
+                List<EventSeries> series = new ArrayList<>();
+                for (EventSeries es : common.getAllEventSeries())
+                    if (common.shared(es, user))
+                        series.add(es);
+                return series;
+            });
+        }
+
+        @Override
+        public Map<String, Event> getEventsMapping() {
+            Map<String, Event> events = new HashMap<>();
+            for (Event e : getEvents(Time.ALL))
+                events.put(e.getName(), e);
+            return events;
+        }
+
+        /**
+         * The notes of the manager are those on the events the user has access to.
+         */
+        @Override
+        public NoteManager getManager(String type) {
+            return common.reading(() -> {
+                NoteManager m = common.getManager(type);
+                if (m == null)
+                    return null;
+                HashMap<Note, List<Event>> notes = new HashMap<>();
+                List<Note> noteList = new ArrayList<>();
+                for (Note note : m.getAllNotes()) {
+                    List<Event> es = shared(m.getNotes().getOrDefault(note, Collections.emptyList()));
+                    if (!es.isEmpty() && notes.put(note, es) == null)
+                        noteList.add(note);
+                }
+                return new NoteManager(notes, noteList);
+            });
+        }
+
+        @Override
+        public List<String> getContentOfAllTags() {
+            return getManager("tag").getContentOfAllNotes();
+        }
+
+        @Override
+        public List<String> getContentOfAllMemos() {
+            return getManager("memo").getContentOfAllNotes();
+        }
+
+        @Override
+        public List<Event> getEventsOfMemo(Memo memo) {
+            return common.reading(() -> shared(common.getEventsOfMemo(memo)));
+        }
+
+        @Override
+        public List<Event> getEventsOfTag(Tag currentTag) {
+            return common.reading(() -> shared(common.getEventsOfTag(currentTag)));
+        }
     }
 }
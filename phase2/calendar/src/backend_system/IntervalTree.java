@@ -0,0 +1,277 @@
+package backend_system;
+
+import backend_system.entities.Event;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * This class keeps events in a given order and indexes them by position and by the period [start, end) they take. It
+ * is a treap where every node also keeps the size of its subtree, so an event can be found by its position in
+ * O(log n), and the latest end time in its subtree, so a search for the events overlapping a period skips every
+ * subtree that ends before the period.
+ */
+class IntervalTree {
+
+    private static final class Node {
+        private final Event event;
+        private final int priority;
+        private LocalDateTime maxEnd;
+        private int size = 1;
+        private Node left, right;
+
+        private Node(Event event, int priority) {
+            this.event = event;
+            this.priority = priority;
+            maxEnd = event.getEndDateTime();
+        }
+    }
+
+    private final Comparator<Event> order;
+    private Node root;
+    private int seed = 0x9E3779B9;
+
+    /**
+     * Constructor of the class.
+     * @param order the order of the events; events that compare equal are kept only once
+     */
+    IntervalTree(Comparator<Event> order) {
+        this.order = order;
+    }
+
+    /**
+     * This method adds an event. The start and end time of the event must not change while it is in the tree.
+     * @param event the event
+     * @return true if added;
+     *         false if an event that compares equal to it is already in the tree
+     */
+    boolean add(Event event) {
+        int before = size();
+        root = insert(root, new Node(event, nextPriority()));
+        return size() != before;
+    }
+
+    /**
+     * This method removes the event that compares equal to the given one.
+     * @param event the event
+     * @return true if removed
+     */
+    boolean remove(Event event) {
+        int before = size();
+        root = delete(root, event);
+        return size() != before;
+    }
+
+    /**
+     * This is the getter of the number of events in the tree.
+     * @return the number of events
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * This method returns the event at a position.
+     * @param i the position
+     * @return the event
+     */
+    Event get(int i) {
+        if (i < 0 || i >= size())
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+        Node n = root;
+        while (true) {
+            int l = size(n.left);
+            if (i < l) {
+                n = n.left;
+            } else if (i == l) {
+                return n.event;
+            } else {
+                i -= l + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * This method counts the leading events that satisfy a condition, by binary search.
+     * @param before the condition; if it holds for an event, it must hold for all the events before it
+     * @return the number of events that satisfy the condition
+     */
+    int count(Predicate<Event> before) {
+        int count = 0;
+        Node n = root;
+        while (n != null) {
+            if (before.test(n.event)) {
+                count += size(n.left) + 1;
+                n = n.right;
+            } else {
+                n = n.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * This method returns the position of an event.
+     * @param event the event
+     * @return the number of events before it
+     */
+    int indexOf(Event event) {
+        return count(e -> order.compare(e, event) < 0);
+    }
+
+    /**
+     * This method iterates through the events in a range of positions.
+     * @param from the first position, inclusive
+     * @param to the last position, exclusive
+     * @return the iterator
+     */
+    Iterator<Event> iterator(int from, int to) {
+        Deque<Node> path = new ArrayDeque<>();
+        Node n = root;
+        int i = from;
+        while (n != null) {
+            int l = size(n.left);
+            if (i < l) {
+                path.push(n);
+                n = n.left;
+            } else if (i == l) {
+                path.push(n);
+                break;
+            } else {
+                i -= l + 1;
+                n = n.right;
+            }
+        }
+        return new Iterator<Event>() {
+            private int position = from;
+
+            @Override
+            public boolean hasNext() {
+                return position < to && !path.isEmpty();
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                Node n = path.pop();
+                for (Node m = n.right; m != null; m = m.left)
+                    path.push(m);
+                ++position;
+                return n.event;
+            }
+        };
+    }
+
+    /**
+     * This method finds the events that take any time within a period. It requires the tree to be ordered by start
+     * time.
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @return a list of Event in the order of the tree
+     */
+    List<Event> overlapping(LocalDateTime from, LocalDateTime to) {
+        List<Event> result = new ArrayList<>();
+        collect(root, from, to, result);
+        return result;
+    }
+
+    private static void collect(Node n, LocalDateTime from, LocalDateTime to, List<Event> result) {
+        if (n == null || !n.maxEnd.isAfter(from))
+            return;
+        collect(n.left, from, to, result);
+        if (!n.event.getStartDateTime().isBefore(to))
+            return;
+        if (n.event.getEndDateTime().isAfter(from))
+            result.add(n.event);
+        collect(n.right, from, to, result);
+    }
+
+    private Node insert(Node n, Node x) {
+        if (n == null)
+            return x;
+        int cmp = order.compare(x.event, n.event);
+        if (cmp < 0) {
+            n.left = insert(n.left, x);
+            if (n.left.priority > n.priority)
+                n = rotateRight(n);
+        } else if (cmp > 0) {
+            n.right = insert(n.right, x);
+            if (n.right.priority > n.priority)
+                n = rotateLeft(n);
+        }
+        update(n);
+        return n;
+    }
+
+    private Node delete(Node n, Event event) {
+        if (n == null)
+            return null;
+        int cmp = order.compare(event, n.event);
+        if (cmp < 0)
+            n.left = delete(n.left, event);
+        else if (cmp > 0)
+            n.right = delete(n.right, event);
+        else
+            return merge(n.left, n.right);
+        update(n);
+        return n;
+    }
+
+    /**
+     * This method joins two trees where every event of the first one comes before every event of the second one.
+     */
+    private static Node merge(Node a, Node b) {
+        if (a == null)
+            return b;
+        if (b == null)
+            return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        return r;
+    }
+
+    private static int size(Node n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static void update(Node n) {
+        LocalDateTime end = n.event.getEndDateTime();
+        if (n.left != null && n.left.maxEnd.isAfter(end))
+            end = n.left.maxEnd;
+        if (n.right != null && n.right.maxEnd.isAfter(end))
+            end = n.right.maxEnd;
+        n.maxEnd = end;
+        n.size = size(n.left) + size(n.right) + 1;
+    }
+
+    private int nextPriority() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,273 @@
+package backend_system;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * This class persists an object as a snapshot plus an append-only log of the mutations made since the snapshot was
+ * taken. Loading reads the snapshot and replays the log; a checkpoint folds the log back into the snapshot once it
+ * has grown long enough.
+ *
+ * The log is split into numbered segments. A checkpoint starts a new segment and stores that segment's number with
+ * the snapshot, so after a crash at any point the segments that are already in the snapshot can be told apart from
+ * those that still have to be replayed.
+ * @param <T> the type of the journaled object
+ */
+class Journal<T extends Serializable> {
+
+    /**
+     * Applies a mutation read from the log to the loaded object.
+     * @param <T> the type of the journaled object
+     */
+    interface Replayer<T> {
+        void apply(T root, Mutation m);
+    }
+
+    /**
+     * The disk I/O of a checkpoint, which may run on another thread than the one that captured it.
+     */
+    interface Checkpoint {
+        void write() throws IOException;
+    }
+
+    /**
+     * The number of logged mutations after which a checkpoint rewrites the snapshot.
+     */
+    static final int COMPACT_THRESHOLD = 4096;
+
+    private final SerHelper<T> snapshot;
+    private final File log;
+    private final boolean logging;
+    private DataOutputStream out;
+    private T root;
+    private long generation;
+    private volatile long snapshotGeneration;
+    private int pending;
+    private boolean untracked;
+    private volatile boolean writeFailed;
+
+    /**
+     * Constructor of the class.
+     * @param snapshotFile the file stores the snapshot
+     * @param logFile the file stores the first segment of the log; later segments get a number appended
+     * @param initial the object written as the snapshot if the snapshot file does not exist yet
+     * @param logging true if mutations are appended to the log;
+     *                false if every checkpoint rewrites the snapshot instead
+     * @param codec the codec of the binary format of the snapshot; null for the default serialization
+     * @throws IOException an exception in file I/O
+     */
+    Journal(File snapshotFile, File logFile, T initial, boolean logging, BinaryFormat.Codec<T> codec)
+            throws IOException {
+        snapshot = new SerHelper<>(snapshotFile, initial, codec);
+        log = logFile;
+        this.logging = logging;
+    }
+
+    /**
+     * This method reads the snapshot and replays the log on top of it. A torn record at the end of the log, left by a
+     * crash in the middle of an append, is cut off.
+     * @param replayer the function that applies one mutation
+     * @return the loaded object
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    T load(Replayer<T> replayer) throws IOException, ClassNotFoundException {
+        root = snapshot.read();
+        generation = snapshotGeneration = snapshot.getGeneration();
+        pending = 0;
+        for (long n : segments()) {
+            if (n < generation) {
+                delete(segment(n));
+            } else {
+                replay(segment(n), replayer);
+                generation = n;
+            }
+        }
+        return root;
+    }
+
+    private void replay(File segment, Replayer<T> replayer) throws IOException {
+        long length = segment.length(), valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+            while (valid + 8 <= length) {
+                int n = in.readInt(), crc = in.readInt();
+                if (n < 0 || valid + 8 + n > length)
+                    break;
+                byte[] record = new byte[n];
+                in.readFully(record);
+                if (checksum(record) != crc)
+                    break;
+                replayer.apply(root, Mutation.read(new DataInputStream(new ByteArrayInputStream(record))));
+                valid += 8 + n;
+                ++pending;
+            }
+        }
+        if (valid < length) {
+            try (RandomAccessFile f = new RandomAccessFile(segment, "rw")) {
+                f.setLength(valid);
+            }
+        }
+    }
+
+    /**
+     * This method appends a mutation to the log. If the log cannot be written, the mutation is still counted so that
+     * the next checkpoint rewrites the snapshot.
+     * @param m the mutation
+     */
+    void append(Mutation m) {
+        ++pending;
+        if (!logging || untracked)
+            return;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            m.write(new DataOutputStream(bytes));
+            byte[] record = bytes.toByteArray();
+            if (out == null)
+                out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment(generation), true)));
+            out.writeInt(record.length);
+            out.writeInt(checksum(record));
+            out.write(record);
+            out.flush();
+        } catch (IOException e) {
+            untracked = true;
+        }
+    }
+
+    /**
+     * This method records that the object was changed in a way the log cannot describe, so the next checkpoint has to
+     * rewrite the snapshot.
+     */
+    void markUntracked() {
+        ++pending;
+        untracked = true;
+    }
+
+    /**
+     * This method returns whether the object has changed since the last checkpoint.
+     * @return true if there are changes that are not in the snapshot
+     */
+    boolean isDirty() {
+        return pending > 0 || writeFailed;
+    }
+
+    /**
+     * This method makes the changes made so far durable, rewriting the snapshot only if the log is disabled, too long
+     * or incomplete.
+     * @throws IOException an exception in file I/O
+     */
+    void checkpoint() throws IOException {
+        if (needsCompaction())
+            capture().write();
+        else if (out != null)
+            out.flush();
+    }
+
+    /**
+     * This method returns whether the changes made so far can only be made durable by rewriting the snapshot.
+     * @return true if the log is disabled, too long or incomplete
+     */
+    boolean needsCompaction() {
+        return isDirty() && (!logging || untracked || writeFailed || pending >= COMPACT_THRESHOLD);
+    }
+
+    /**
+     * This method takes a consistent copy of the object for a new snapshot and starts a new log segment. It must run on
+     * the thread that changes the object; the returned checkpoint only does disk I/O and can run anywhere.
+     * @return the checkpoint that writes the snapshot and removes the segments it covers
+     * @throws IOException an exception in serialization
+     */
+    Checkpoint capture() throws IOException {
+        long from = snapshotGeneration, to = generation + 1;
+        byte[] data = snapshot.serialize(root, to);
+        close();
+        generation = to;
+        pending = 0;
+        untracked = false;
+        writeFailed = false;
+        return () -> {
+            try {
+                snapshot.write(data);
+            } catch (IOException e) {
+                writeFailed = true;
+                throw e;
+            }
+            snapshotGeneration = to;
+            for (long n = from; n < to; ++n)
+                delete(segment(n));
+        };
+    }
+
+    /**
+     * This method closes the log.
+     * @throws IOException an exception in file I/O
+     */
+    void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    private File segment(long n) {
+        return segment(log, n);
+    }
+
+    private static File segment(File log, long n) {
+        return n == 0 ? log : new File(log.getPath() + "." + n);
+    }
+
+    /**
+     * This method lists the numbers of the existing log segments.
+     * @return the numbers in ascending order
+     */
+    private List<Long> segments() {
+        return segments(log);
+    }
+
+    private static List<Long> segments(File log) {
+        List<Long> ns = new ArrayList<>();
+        File dir = log.getAbsoluteFile().getParentFile();
+        String[] names = dir == null ? null : dir.list();
+        if (names == null)
+            return ns;
+        String prefix = log.getName() + ".";
+        for (String name : names) {
+            if (name.equals(log.getName())) {
+                ns.add(0L);
+            } else if (name.startsWith(prefix)) {
+                try {
+                    ns.add(Long.parseLong(name.substring(prefix.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        Collections.sort(ns);
+        return ns;
+    }
+
+    /**
+     * This method deletes the snapshot and all the log segments of a journal that is not open.
+     * @param snapshotFile the file stores the snapshot
+     * @param logFile the file stores the first segment of the log
+     * @throws IOException an exception in file I/O
+     */
+    static void delete(File snapshotFile, File logFile) throws IOException {
+        for (long n : segments(logFile))
+            delete(segment(logFile, n));
+        delete(snapshotFile);
+    }
+
+    private static void delete(File file) throws IOException {
+        if (file.exists() && !file.delete())
+            throw new IOException("Cannot delete " + file);
+    }
+
+    static int checksum(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,479 @@
+package backend_system;
+
+import backend_system.entities.*;
+import backend_system.managers.MemoManager;
+import backend_system.managers.NoteManager;
+import clock.Time;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * This class shows several calendars as one without copying them. Nothing is kept here but the calendars themselves:
+ * the events are read by merging the sorted events of the calendars as they are gone through, and the tags, memos and
+ * series are looked up in each calendar. A change to an event is made in the calendar it belongs to, so that it is
+ * recorded there; an event cannot be created here, as it would belong to none of them.
+ */
+class MergedCalendar extends Calendar {
+    private static final long serialVersionUID = -8500947663145891616L;
+
+    private final List<Calendar> members;
+
+    /**
+     * Constructor of the class.
+     * @param members the calendars shown as one
+     */
+    MergedCalendar(List<Calendar> members) {
+        super(" ");
+        this.members = new ArrayList<>(members);
+    }
+
+    /**
+     * This method finds the calendar an event belongs to.
+     */
+    Calendar owner(Event event) {
+        for (Calendar c : members)
+            if (c.owns(event))
+                return c;
+        throw new IllegalArgumentException("The event " + event.getName() + " is in none of the calendars.");
+    }
+
+    /**
+     * This method finds the calendar a series belongs to.
+     */
+    private Calendar owner(EventSeries es) {
+        for (Calendar c : members)
+            for (EventSeries s : c.getAllEventSeries())
+                if (s == es)
+                    return c;
+        throw new IllegalArgumentException("The series " + es.getSeriesName() + " is in none of the calendars.");
+    }
+
+    @Override
+    boolean owns(Event event) {
+        for (Calendar c : members)
+            if (c.owns(event))
+                return true;
+        return false;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Events cannot be created when several calendars are shown.");
+    }
+
+    @Override
+    public Event getEvent(String name) {
+        for (Calendar c : members) {
+            Event e = c.getEvent(name);
+            if (e != null)
+                return e;
+        }
+        return null;
+    }
+
+    @Override
+    public List<Event> getEvents(Time time) {
+        List<List<Event>> parts = new ArrayList<>(members.size());
+        for (Calendar c : members)
+            parts.add(c.getEvents(time));
+        return new Merge(parts);
+    }
+
+    @Override
+    public void setAlert(Event event, String name, LocalDateTime time) {
+        owner(event).setAlert(event, name, time);
+    }
+
+    @Override
+    public void setAlert(Event event, String name, LocalDateTime time, Duration duration) {
+        owner(event).setAlert(event, name, time, duration);
+    }
+
+    @Override
+    public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addEvent(Event event) {
+        throw readOnly();
+    }
+
+    @Override
+    public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName,
+                            Duration duration, int number) {
+        throw readOnly();
+    }
+
+    @Override
+    public void addIntoSeries(Event event, String seriesName) {
+        owner(event).addIntoSeries(event, seriesName);
+    }
+
+    @Override
+    public List<Event> searchByName(String name) {
+        List<Event> events = new ArrayList<>();
+        for (Event event : getEvents(Time.ALL))
+            if (event.getName().equals(name))
+                events.add(event);
+        return events;
+    }
+
+    @Override
+    public List<Event> searchBySeriesName(String name) {
+        List<Event> events = null;
+        for (Calendar c : members) {
+            List<Event> found = c.searchBySeriesName(name);
+            if (found != null)
+                events = found;
+        }
+        return events;
+    }
+
+    @Override
+    public List<Event> searchByTag(String tagName) {
+        List<List<Event>> parts = new ArrayList<>(members.size());
+        for (Calendar c : members)
+            parts.add(c.searchByTag(tagName));
+        return new Merge(parts);
+    }
+
+    @Override
+    public List<Event> searchByTag(String tagName, boolean ignoreCase, boolean prefix) {
+        List<List<Event>> parts = new ArrayList<>(members.size());
+        for (Calendar c : members)
+            parts.add(c.searchByTag(tagName, ignoreCase, prefix));
+        return new Merge(parts);
+    }
+
+    @Override
+    public List<Event> searchOverlapping(LocalDateTime from, LocalDateTime to) {
+        List<List<Event>> parts = new ArrayList<>(members.size());
+        for (Calendar c : members)
+            parts.add(c.searchOverlapping(from, to));
+        return new Merge(parts);
+    }
+
+    @Override
+    public LocalDateTime nextBoundary(LocalDateTime t) {
+        LocalDateTime next = null;
+        for (Calendar c : members) {
+            LocalDateTime b = c.nextBoundary(t);
+            if (b != null && (next == null || b.isBefore(next)))
+                next = b;
+        }
+        return next;
+    }
+
+    @Override
+    public EventSeries searchSeriesByName(String name) {
+        for (Calendar c : members) {
+            EventSeries es = c.searchSeriesByName(name);
+            if (es != null)
+                return es;
+        }
+        return null;
+    }
+
+    @Override
+    public void addTagToEvent(String tagName, Event event) {
+        owner(event).addTagToEvent(tagName, event);
+    }
+
+    @Override
+    public void addMemoToEvent(String memoName, Event event) {
+        owner(event).addMemoToEvent(memoName, event);
+    }
+
+    @Override
+    public List<Event> searchByMemo(String query) {
+        return eventsOfRanked(rankByMemo(query));
+    }
+
+    /**
+     * The memos of all the calendars are counted together, so that their scores are worked out from the same numbers.
+     */
+    @Override
+    MemoManager.Corpus countMemos(String query) {
+        MemoManager.Corpus corpus = new MemoManager.Corpus();
+        for (Calendar c : members)
+            corpus.add(c.countMemos(query));
+        return corpus;
+    }
+
+    /**
+     * The memos of all the calendars are ranked together by their scores.
+     */
+    @Override
+    List<Map.Entry<Double, List<Event>>> rankByMemo(String query, MemoManager.Corpus corpus) {
+        List<Map.Entry<Double, List<Event>>> ranked = new ArrayList<>();
+        for (Calendar c : members)
+            ranked.addAll(c.rankByMemo(query, corpus));
+        // a stable sort keeps the memos with the same score in the order of the calendars
+        ranked.sort((e, f) -> Double.compare(f.getKey(), e.getKey()));
+        return ranked;
+    }
+
+    @Override
+    public List<Note> getAllMemos() {
+        Set<Note> memos = new LinkedHashSet<>();
+        for (Calendar c : members)
+            memos.addAll(c.getAllMemos());
+        return new ArrayList<>(memos);
+    }
+
+    @Override
+    public void editTagForOne(Tag tag, String newTagName, Event event) {
+        owner(event).editTagForOne(tag, newTagName, event);
+    }
+
+    @Override
+    public void editEntireTag(Tag tag, String newTagName) {
+        for (Calendar c : members)
+            c.editEntireTag(tag, newTagName);
+    }
+
+    @Override
+    public void editMemoForOne(Memo memo, String newMemoName, Event event) {
+        owner(event).editMemoForOne(memo, newMemoName, event);
+    }
+
+    @Override
+    public void editEntireMemo(Memo memo, String newMemoName) {
+        for (Calendar c : members)
+            c.editEntireMemo(memo, newMemoName);
+    }
+
+    @Override
+    public void deleteEntireTag(Tag tag) {
+        for (Calendar c : members)
+            c.deleteEntireTag(tag);
+    }
+
+    @Override
+    public void deleteEntireMemo(Memo memo) {
+        for (Calendar c : members)
+            c.deleteEntireMemo(memo);
+    }
+
+    @Override
+    public void deleteTagFromEvent(Event event, Tag tag) {
+        owner(event).deleteTagFromEvent(event, tag);
+    }
+
+    @Override
+    public void deleteMemoFromEvent(Event event, Memo memo) {
+        owner(event).deleteMemoFromEvent(event, memo);
+    }
+
+    @Override
+    public void deleteAlert(Event event, Alert alert) {
+        owner(event).deleteAlert(event, alert);
+    }
+
+    @Override
+    public void deleteEvent(String event) {
+        Event e = getEvent(event);
+        if (e != null)
+            deleteEvent(e);
+    }
+
+    @Override
+    public void deleteEvent(Event e) {
+        owner(e).deleteEvent(e);
+    }
+
+    @Override
+    public boolean hasEventWithSameName(String name) {
+        for (Calendar c : members)
+            if (c.hasEventWithSameName(name))
+                return true;
+        return false;
+    }
+
+    @Override
+    public List<EventSeries> getAllEventSeries() {
+        List<EventSeries> series = new ArrayList<>();
+        for (Calendar c : members)
+            series.addAll(c.getAllEventSeries());
+        return series;
+    }
+
+    @Override
+    public void editEventTime(Event event, LocalDateTime endTime, LocalDateTime startTime) {
+        owner(event).editEventTime(event, endTime, startTime);
+    }
+
+    @Override
+    public void editEventName(Event event, String name) {
+        owner(event).editEventName(event, name);
+    }
+
+    @Override
+    public Map<String, Event> getEventsMapping() {
+        Map<String, Event> events = new HashMap<>();
+        for (int i = members.size() - 1; i >= 0; --i)
+            events.putAll(members.get(i).getEventsMapping());
+        return events;
+    }
+
+    @Override
+    public NoteManager getManager(String type) {
+        List<NoteManager> managers = new ArrayList<>();
+        for (Calendar c : members)
+            managers.add(c.getManager(type));
+        return managers.contains(null) ? null : Calendar.mergeNoteManager(managers);
+    }
+
+    @Override
+    public List<String> getContentOfAllTags() {
+        Set<String> tags = new LinkedHashSet<>();
+        for (Calendar c : members)
+            tags.addAll(c.getContentOfAllTags());
+        return new ArrayList<>(tags);
+    }
+
+    @Override
+    public List<String> getContentOfAllMemos() {
+        Set<String> memos = new LinkedHashSet<>();
+        for (Calendar c : members)
+            memos.addAll(c.getContentOfAllMemos());
+        return new ArrayList<>(memos);
+    }
+
+    @Override
+    public void changeNameTo(EventSeries currentEventSeries, String text) {
+        owner(currentEventSeries).changeNameTo(currentEventSeries, text);
+    }
+
+    @Override
+    public void deleteEventSeries(EventSeries currentEventSeries) {
+        owner(currentEventSeries).deleteEventSeries(currentEventSeries);
+    }
+
+    @Override
+    public List<Event> getEventsOfMemo(Memo memo) {
+        List<Event> events = new ArrayList<>();
+        for (Calendar c : members)
+            events.addAll(c.getEventsOfMemo(memo));
+        return events;
+    }
+
+    @Override
+    public List<Event> getEventsOfTag(Tag currentTag) {
+        List<Event> events = new ArrayList<>();
+        for (Calendar c : members)
+            events.addAll(c.getEventsOfTag(currentTag));
+        return events;
+    }
+
+    @Override
+    public void setAlertInfo(Alert a, String name, LocalDateTime dt) {
+        for (Calendar c : members) {
+            for (Event event : c.getEventsMapping().values()) {
+                if (event.hasAlert(a)) {
+                    c.setAlertInfo(event, a, name, dt);
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void setAlertInfo(Event event, Alert a, String name, LocalDateTime dt) {
+        owner(event).setAlertInfo(event, a, name, dt);
+    }
+
+    /**
+     * A read-only view of several lists of events in ascending start time, merged into one in the same order as it
+     * is gone through. Getting an event by its position goes on from the one got last, so that going through the
+     * list by position takes no longer than with its iterator; going back starts again from the first event.
+     */
+    static final class Merge extends AbstractList<Event> {
+        private final List<List<Event>> parts;
+        // the position of the event got last, the event, and the events after it
+        private int at = -1;
+        private Event last;
+        private Iterator<Event> rest;
+
+        Merge(List<List<Event>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (List<Event> part : parts)
+                size += part.size();
+            return size;
+        }
+
+        @Override
+        public Event get(int i) {
+            if (i < 0)
+                throw new IndexOutOfBoundsException("Index: " + i);
+            if (rest == null || i < at) {
+                rest = iterator();
+                at = -1;
+            }
+            while (at < i && rest.hasNext()) {
+                last = rest.next();
+                ++at;
+            }
+            if (at != i)
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            return last;
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            return new Iterator<Event>() {
+                // the next event of each list, the earliest first; ties go to the list that comes first
+                private final PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, parts.size()));
+
+                {
+                    for (int i = 0; i < parts.size(); ++i)
+                        push(i, parts.get(i).iterator());
+                }
+
+                private void push(int index, Iterator<Event> it) {
+                    if (it.hasNext())
+                        heads.add(new Head(index, it.next(), it));
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return !heads.isEmpty();
+                }
+
+                @Override
+                public Event next() {
+                    Head head = heads.poll();
+                    if (head == null)
+                        throw new NoSuchElementException();
+                    push(head.index, head.rest);
+                    return head.event;
+                }
+            };
+        }
+    }
+
+    private static final class Head implements Comparable<Head> {
+        private final int index;
+        private final Event event;
+        private final Iterator<Event> rest;
+
+        private Head(int index, Event event, Iterator<Event> rest) {
+            this.index = index;
+            this.event = event;
+            this.rest = rest;
+        }
+
+        @Override
+        public int compareTo(Head o) {
+            int cmp = event.compareTo(o.event);
+            return cmp == 0 ? Integer.compare(index, o.index) : cmp;
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package backend_system;
+
+import backend_system.entities.Inboxes;
+import backend_system.entities.Message;
+
+import java.io.*;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class keeps the messages sent to each user in an append-only log of its own and a cursor marking how far the
+ * user has received them. Sending a message appends it to the log of its receiver and receiving messages moves the
+ * cursor, so neither touches the messages of the other users or rewrites what is already on the disk.
+ *
+ * The log of a user is split into numbered segments and is only read when the user first receives, checks or
+ * subscribes to its messages, and then only from the cursor on. A segment the cursor has passed is deleted once it is
+ * older than the retention.
+ */
+class MessageStore {
+
+    /**
+     * The size after which a new segment is started.
+     */
+    static final long SEGMENT_BYTES = 64 * 1024;
+
+    /**
+     * The default time a segment is kept after all its messages have been received.
+     */
+    static final Duration RETENTION = Duration.ofDays(7);
+
+    private final File dir;
+    private final long retention;
+    // the messages not received yet of the users whose logs have been read
+    private final Inboxes inboxes = new Inboxes();
+    private final ConcurrentHashMap<String, Mailbox> mailboxes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor of the class.
+     * @param dir the directory that has a directory of segments for each user
+     * @param retention the time a segment is kept after all its messages have been received
+     */
+    MessageStore(File dir, Duration retention) {
+        this.dir = dir;
+        this.retention = retention.toMillis();
+    }
+
+    /**
+     * This method appends a message to the log of its receiver. The sessions that subscribe to the receiver are told
+     * at once, on the thread that sends it.
+     * @param msg the message
+     * @throws IOException an exception in file I/O; the message is not sent
+     */
+    void send(Message msg) throws IOException {
+        mailbox(msg.getReceiver()).append(msg);
+    }
+
+    /**
+     * This method takes at most the given number of the earliest messages sent to a user and moves its cursor past
+     * them.
+     * @param user the name of the user
+     * @param max the largest number of messages to take
+     * @return the messages in the order they were sent; empty if there is none
+     */
+    List<Message> receive(String user, int max) {
+        return mailbox(user).take(max);
+    }
+
+    /**
+     * This method checks whether there are messages for a user that have not been received.
+     * @param user the name of the user
+     * @return true if there are
+     */
+    boolean hasMessages(String user) {
+        return mailbox(user).hasMessages();
+    }
+
+    /**
+     * This method lets a listener be told whenever a message is sent to a user. The listener runs on the thread that
+     * sends the message, so it should only hand the work over to another thread.
+     * @param user the name of the user
+     * @param listener the listener
+     */
+    void subscribe(String user, Runnable listener) {
+        mailbox(user).subscribe(listener);
+    }
+
+    /**
+     * This method stops telling a listener added by subscribe.
+     * @param user the name of the user
+     * @param listener the listener
+     */
+    void unsubscribe(String user, Runnable listener) {
+        inboxes.unsubscribe(user, listener);
+    }
+
+    /**
+     * This method closes the segments open for appending. They are opened again by the next message.
+     */
+    void close() {
+        for (Mailbox mailbox : mailboxes.values())
+            mailbox.close();
+    }
+
+    private Mailbox mailbox(String user) {
+        return mailboxes.computeIfAbsent(user, Mailbox::new);
+    }
+
+    /**
+     * The log and the cursor of one user. Every record is the length and the checksum of a mutation followed by the
+     * mutation itself, as in a journal; the cursor is the segment and the offset of the first record not received.
+     */
+    private final class Mailbox {
+        private final String user;
+        private final File home;
+        private DataOutputStream out;
+        private long last = -1, length;
+        // the segment and the offset after each message in the inbox, once the log has been read
+        private ArrayDeque<long[]> ends;
+        private long[] cursor;
+        private long oldest;
+
+        private Mailbox(String user) {
+            this.user = user;
+            home = new File(dir, user);
+        }
+
+        synchronized void append(Message msg) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new Mutation(Mutation.Op.SEND, null, msg.getSender(), msg.getReceiver(), msg.getMessage(), msg.getEvent())
+                    .write(new DataOutputStream(bytes));
+            byte[] record = bytes.toByteArray();
+            if (out == null || length >= SEGMENT_BYTES)
+                open();
+            out.writeInt(record.length);
+            out.writeInt(Journal.checksum(record));
+            out.write(record);
+            out.flush();
+            length += 8 + record.length;
+            if (ends != null) {
+                ends.add(new long[] {last, length});
+                inboxes.send(msg);
+            }
+        }
+
+        /**
+         * This method opens the last segment for appending, or starts a new one if it is full. A torn record at the
+         * end of the last segment, left by a crash in the middle of an append, is cut off first.
+         */
+        private void open() throws IOException {
+            close();
+            if (last < 0) {
+                home.mkdirs();
+                List<Long> ns = segments();
+                last = ns.isEmpty() ? 0 : ns.get(ns.size() - 1);
+                length = read(last, 0, null);
+                try (RandomAccessFile f = new RandomAccessFile(segment(last), "rw")) {
+                    f.setLength(length);
+                }
+            }
+            if (length >= SEGMENT_BYTES) {
+                ++last;
+                length = 0;
+            }
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(segment(last), true)));
+        }
+
+        synchronized List<Message> take(int max) {
+            load();
+            List<Message> ms = inboxes.receive(user, max);
+            if (ms.isEmpty())
+                return ms;
+            long[] end = null;
+            for (int i = 0; i < ms.size(); ++i)
+                end = ends.poll();
+            cursor = end;
+            try {
+                writeCursor();
+            } catch (IOException e) {
+                // the messages are received again after a restart unless a later cursor is written
+                e.printStackTrace();
+            }
+            expire();
+            return ms;
+        }
+
+        synchronized boolean hasMessages() {
+            load();
+            return inboxes.hasMessages(user);
+        }
+
+        synchronized void subscribe(Runnable listener) {
+            load();
+            inboxes.subscribe(user, listener);
+        }
+
+        synchronized void close() {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                out = null;
+            }
+        }
+
+        /**
+         * This method reads the messages after the cursor into the inbox, the first time it is called.
+         */
+        private void load() {
+            if (ends != null)
+                return;
+            try {
+                List<Long> ns = segments();
+                cursor = readCursor(ns.isEmpty() ? 0 : ns.get(0));
+                oldest = ns.isEmpty() ? cursor[0] : ns.get(0);
+                ArrayDeque<long[]> found = new ArrayDeque<>();
+                for (long n : ns)
+                    if (n >= cursor[0])
+                        read(n, n == cursor[0] ? cursor[1] : 0, found);
+                ends = found;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * This method reads the records of a segment from an offset on.
+         * @param n the number of the segment
+         * @param from the offset of the first record
+         * @param found the queue the offsets after the messages are added to, while the messages are put into the
+         *              inbox; null if the records are only checked
+         * @return the offset after the last whole record
+         */
+        private long read(long n, long from, ArrayDeque<long[]> found) throws IOException {
+            File segment = segment(n);
+            long size = segment.length(), valid = from;
+            if (size <= from)
+                return Math.min(size, from);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+                in.skipNBytes(from);
+                while (valid + 8 <= size) {
+                    int k = in.readInt(), crc = in.readInt();
+                    if (k < 0 || valid + 8 + k > size)
+                        break;
+                    byte[] record = new byte[k];
+                    in.readFully(record);
+                    if (Journal.checksum(record) != crc)
+                        break;
+                    valid += 8 + k;
+                    if (found != null) {
+                        Mutation m = Mutation.read(new DataInputStream(new ByteArrayInputStream(record)));
+                        found.add(new long[] {n, valid});
+                        inboxes.send(new Message(m.string(0), m.string(1), m.string(2), m.string(3)));
+                    }
+                }
+            }
+            return valid;
+        }
+
+        /**
+         * This method reads the cursor. A cursor torn by a crash is taken to be at the start of the log, so that no
+         * message is lost.
+         * @param first the number of the first segment
+         */
+        private long[] readCursor(long first) throws IOException {
+            File file = new File(home, "cursor");
+            if (file.length() == 20) {
+                try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+                    byte[] position = new byte[16];
+                    in.readFully(position);
+                    if (Journal.checksum(position) == in.readInt()) {
+                        DataInputStream p = new DataInputStream(new ByteArrayInputStream(position));
+                        return new long[] {p.readLong(), p.readLong()};
+                    }
+                }
+            }
+            return new long[] {first, 0};
+        }
+
+        private void writeCursor() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream p = new DataOutputStream(bytes);
+            p.writeLong(cursor[0]);
+            p.writeLong(cursor[1]);
+            byte[] position = bytes.toByteArray();
+            home.mkdirs();
+            try (RandomAccessFile f = new RandomAccessFile(new File(home, "cursor"), "rw")) {
+                f.write(position);
+                f.writeInt(Journal.checksum(position));
+            }
+        }
+
+        /**
+         * This method deletes the segments before the cursor that are older than the retention, the oldest first.
+         */
+        private void expire() {
+            long before = System.currentTimeMillis() - retention;
+            for (; oldest < cursor[0]; ++oldest) {
+                File segment = segment(oldest);
+                if (segment.exists() && segment.lastModified() > before)
+                    return;
+                if (segment.exists() && !segment.delete())
+                    return;
+            }
+        }
+
+        private File segment(long n) {
+            return new File(home, n + ".log");
+        }
+
+        /**
+         * This method lists the numbers of the existing segments.
+         * @return the numbers in ascending order
+         */
+        private List<Long> segments() {
+            List<Long> ns = new ArrayList<>();
+            String[] names = home.list();
+            if (names == null)
+                return ns;
+            for (String name : names) {
+                if (name.endsWith(".log")) {
+                    try {
+                        ns.add(Long.parseLong(name.substring(0, name.length() - 4)));
+                    } catch (NumberFormatException ignored) {
+                    }
+                }
+            }
+            Collections.sort(ns);
+            return ns;
+        }
+    }
+}
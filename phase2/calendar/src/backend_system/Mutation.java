@@ -0,0 +1,157 @@
+package backend_system;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * This class represents one change made to a journaled object. A mutation is written to the journal as a compact
+ * record and applied again to the last snapshot when the object is loaded.
+ */
+final class Mutation {
+
+    /**
+     * The kinds of mutations. The ordinal is written to the journal, so new kinds must only be appended at the end.
+     */
+    enum Op {
+        ADD_EVENT, CREATE_SERIES, ADD_INTO_SERIES, ADD_TAG, ADD_MEMO,
+        EDIT_TAG_ONE, EDIT_TAG_ALL, EDIT_MEMO_ONE, EDIT_MEMO_ALL,
+        DELETE_TAG_ALL, DELETE_MEMO_ALL, DELETE_TAG, DELETE_MEMO,
+        SET_ALERT, SET_FREQUENCY_ALERT, DELETE_ALERT, SET_ALERT_INFO,
+        DELETE_EVENT, EDIT_EVENT_TIME, EDIT_EVENT_NAME, RENAME_SERIES, DELETE_SERIES,
+        SET_USER, ADD_USER, REMOVE_USER,
+        ADD_CALENDAR, ALARM_ADD, ALARM_ADD_RANGE, ALARM_REMOVE, ALARM_POP,
+        SEND, RECEIVE
+    }
+
+    private static final byte NULL = 0, STRING = 1, TIME = 2, DURATION = 3, INT = 4;
+
+    final Op op;
+    final String target;
+    private final Object[] args;
+
+    /**
+     * Constructor of the class.
+     * @param op the kind of the mutation
+     * @param target the name of the calendar the mutation applies to; null if it applies to the root object
+     * @param args the arguments of the mutation; each one is a String, LocalDateTime, Duration, Integer or null
+     */
+    Mutation(Op op, String target, Object... args) {
+        this.op = op;
+        this.target = target;
+        this.args = args;
+    }
+
+    String string(int i) {
+        return (String) args[i];
+    }
+
+    LocalDateTime time(int i) {
+        return (LocalDateTime) args[i];
+    }
+
+    Duration duration(int i) {
+        return (Duration) args[i];
+    }
+
+    int integer(int i) {
+        return (Integer) args[i];
+    }
+
+    int count() {
+        return args.length;
+    }
+
+    /**
+     * This method writes the mutation in its binary form.
+     * @param out the destination
+     * @throws IOException an exception in file I/O
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeByte(op.ordinal());
+        writeString(out, target);
+        out.writeByte(args.length);
+        for (Object arg : args) {
+            if (arg == null) {
+                out.writeByte(NULL);
+            } else if (arg instanceof String) {
+                out.writeByte(STRING);
+                writeString(out, (String) arg);
+            } else if (arg instanceof LocalDateTime) {
+                LocalDateTime t = (LocalDateTime) arg;
+                out.writeByte(TIME);
+                out.writeLong(t.toEpochSecond(ZoneOffset.UTC));
+                out.writeInt(t.getNano());
+            } else if (arg instanceof Duration) {
+                Duration d = (Duration) arg;
+                out.writeByte(DURATION);
+                out.writeLong(d.getSeconds());
+                out.writeInt(d.getNano());
+            } else if (arg instanceof Integer) {
+                out.writeByte(INT);
+                out.writeInt((Integer) arg);
+            } else {
+                throw new IllegalArgumentException("Cannot journal " + arg.getClass());
+            }
+        }
+    }
+
+    /**
+     * This method reads a mutation written by write.
+     * @param in the source
+     * @return the mutation
+     * @throws IOException an exception in file I/O, or a malformed record
+     */
+    static Mutation read(DataInput in) throws IOException {
+        int op = in.readUnsignedByte();
+        if (op >= Op.values().length)
+            throw new StreamCorruptedException("Unknown mutation " + op);
+        String target = readString(in);
+        Object[] args = new Object[in.readUnsignedByte()];
+        for (int i = 0; i < args.length; ++i) {
+            byte type = in.readByte();
+            switch (type) {
+                case NULL:
+                    break;
+                case STRING:
+                    args[i] = readString(in);
+                    break;
+                case TIME:
+                    long sec = in.readLong();
+                    args[i] = LocalDateTime.ofEpochSecond(sec, in.readInt(), ZoneOffset.UTC);
+                    break;
+                case DURATION:
+                    long s = in.readLong();
+                    args[i] = Duration.ofSeconds(s, in.readInt());
+                    break;
+                case INT:
+                    args[i] = in.readInt();
+                    break;
+                default:
+                    throw new StreamCorruptedException("Unknown argument type " + type);
+            }
+        }
+        return new Mutation(Op.values()[op], target, args);
+    }
+
+    private static void writeString(DataOutput out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+        } else {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int n = in.readInt();
+        if (n < 0)
+            return null;
+        byte[] bytes = new byte[n];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
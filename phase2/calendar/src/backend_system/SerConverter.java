@@ -0,0 +1,66 @@
+package backend_system;
+
+import clock.Clock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * A tool that converts the users and the common calendar saved by the default serialization into the binary format,
+ * moving the calendars of each user into their own files. Old files are also converted one by one when they are
+ * loaded, so running this is only needed to convert all of them at once.
+ */
+public class SerConverter {
+
+    /**
+     * This method converts a file if it holds a user or the common calendar in the old format. The log next to it is
+     * replayed first and folded into the converted snapshot.
+     * @param file the file
+     * @return true if the file was converted
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    static boolean convert(File file) throws IOException, ClassNotFoundException {
+        SerHelper<Serializable> legacy = new SerHelper<>(file, null);
+        if (!legacy.isLegacy())
+            return false;
+        Serializable x = legacy.read();
+        String base = file.getPath().substring(0, file.getPath().length() - ".ser".length());
+        File log = new File(base + ".log");
+        if (x instanceof CommonCalendar) {
+            Journal<CommonCalendar> journal = new Journal<>(file, log, null, true, BinaryFormat.COMMON);
+            journal.load(CommonCalendar::apply);
+            journal.capture().write();
+        } else if (x instanceof User) {
+            Journal<User> journal = new Journal<>(file, log, null, true, BinaryFormat.USER);
+            User user = journal.load(User::apply);
+            user.setStore(new CalendarStore(new File(base), true));
+            journal.capture().write();
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * This method converts all the files in a directory.
+     * @param args the directory; "usr" if not given
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        Clock.init(null);
+        File dir = new File(args.length > 0 ? args[0] : "usr");
+        File[] files = dir.listFiles((d, name) -> name.endsWith(".ser"));
+        if (files == null) {
+            System.out.println("No such directory: " + dir);
+            return;
+        }
+        for (File file : files) {
+            long before = file.length();
+            if (convert(file))
+                System.out.println(file + ": " + before + " -> " + file.length() + " bytes");
+        }
+    }
+}
@@ -1,13 +1,27 @@
 package backend_system;
 
+import metrics.Metrics;
+import metrics.PersistenceEvent;
+import metrics.Timer;
+
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 /**
- * This is the helper class for serialization
+ * This is the helper class for serialization. Objects with a codec are written in the compact binary format; files
+ * written by the default serialization can still be read. The time and the bytes of every read and write are recorded
+ * by the timers of the group SerHelper, and as PersistenceEvent when the flight recorder is on.
  * @param <T> the object to be serialized
  */
 class SerHelper<T extends Serializable> {
+    private static final Timer READ = Metrics.timer("SerHelper", "read"),
+            WRITE = Metrics.timer("SerHelper", "write"),
+            SERIALIZE = Metrics.timer("SerHelper", "serialize");
+
     private File file;
+    private final BinaryFormat.Codec<T> codec;
+    private long generation;
 
     /**
      * Constructor of the class.
@@ -16,7 +30,19 @@ class SerHelper<T extends Serializable> {
      * @throws IOException an exception in file I/O
      */
     SerHelper(File file, T x) throws IOException {
+        this(file, x, null);
+    }
+
+    /**
+     * Constructor of the class.
+     * @param file the file stores the serialized data
+     * @param x the object to be serialized
+     * @param codec the codec of the binary format; null for the default serialization
+     * @throws IOException an exception in file I/O
+     */
+    SerHelper(File file, T x, BinaryFormat.Codec<T> codec) throws IOException {
         this.file = file;
+        this.codec = codec;
 
         File parent = file.getParentFile();
         if (parent != null)
@@ -33,9 +59,57 @@ class SerHelper<T extends Serializable> {
      * @throws ClassNotFoundException an exception in serialization
      */
     T read() throws IOException, ClassNotFoundException {
-        try (InputStream is = new BufferedInputStream(new FileInputStream(file));
-             ObjectInput in = new ObjectInputStream(is)) {
-            return (T) in.readObject();
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long start = System.nanoTime();
+        byte[] data = null;
+        try {
+            data = Files.readAllBytes(file.toPath());
+            return decode(data);
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            READ.error();
+            throw e;
+        } finally {
+            recorded(READ, "read", event, start, data == null ? 0 : data.length);
+        }
+    }
+
+    private T decode(byte[] data) throws IOException, ClassNotFoundException {
+        if (BinaryFormat.isBinary(data)) {
+            if (codec == null)
+                throw new StreamCorruptedException("No codec for the binary format of " + file);
+            BinaryFormat.Reader in = new BinaryFormat.Reader(data);
+            T x = codec.read(in);
+            generation = in.getGeneration();
+            return x;
+        }
+        try (ObjectInput in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            T x = (T) in.readObject();
+            try {
+                generation = in.readLong();
+            } catch (EOFException e) {
+                generation = 0;
+            }
+            return x;
+        }
+    }
+
+    /**
+     * This is the getter of the generation stored along with the object by the last read.
+     * @return the generation; 0 if the file was written without one
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * This method returns whether the file was written by the default serialization rather than the binary format.
+     * @return true if the file is in the old format
+     * @throws IOException an exception in file I/O
+     */
+    boolean isLegacy() throws IOException {
+        try (InputStream is = new FileInputStream(file)) {
+            return !BinaryFormat.isBinary(is.readNBytes(BinaryFormat.headerLength()));
         }
     }
 
@@ -45,10 +119,77 @@ class SerHelper<T extends Serializable> {
      * @throws IOException an exception in file I/O
      */
     void write(T x) throws IOException {
-        if (file == null) return;
-        try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
-             ObjectOutput out = new ObjectOutputStream(os)) {
+        write(serialize(x, 0));
+    }
+
+    /**
+     * This method serializes an object in memory, so that it can be written later from another thread.
+     * @param x the object to be serialized
+     * @param generation the generation stored along with the object
+     * @return the serialized data
+     * @throws IOException an exception in serialization
+     */
+    byte[] serialize(T x, long generation) throws IOException {
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long start = System.nanoTime();
+        byte[] data = null;
+        try {
+            data = encode(x, generation);
+            return data;
+        } catch (IOException | RuntimeException e) {
+            SERIALIZE.error();
+            throw e;
+        } finally {
+            recorded(SERIALIZE, "serialize", event, start, data == null ? 0 : data.length);
+        }
+    }
+
+    private byte[] encode(T x, long generation) throws IOException {
+        if (codec != null)
+            return BinaryFormat.encode(codec, x, generation);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
             out.writeObject(x);
+            out.writeLong(generation);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * This method replaces the file with the given serialized data. The data is written to a temporary file and synced
+     * to the disk first, then renamed over the file, so the file always holds either the old or the new data.
+     * @param data the serialized data
+     * @throws IOException an exception in file I/O
+     */
+    void write(byte[] data) throws IOException {
+        if (file == null) return;
+        PersistenceEvent event = new PersistenceEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            File tmp = new File(file.getPath() + ".tmp");
+            try (FileOutputStream os = new FileOutputStream(tmp)) {
+                os.write(data);
+                os.getFD().sync();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            WRITE.error();
+            throw e;
+        } finally {
+            recorded(WRITE, "write", event, start, data.length);
+        }
+    }
+
+    private void recorded(Timer timer, String operation, PersistenceEvent event, long start, long bytes) {
+        timer.record(System.nanoTime() - start, bytes);
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.file = file == null ? null : file.getPath();
+            event.bytes = bytes;
+            event.commit();
         }
     }
 
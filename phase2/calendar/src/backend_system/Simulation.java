@@ -0,0 +1,84 @@
+package backend_system;
+
+import backend_system.entities.Alert;
+import clock.Clock;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * This class fast-forwards the Clock by discrete events. Instead of letting the Clock run at a high speed and looking at
+ * the alarm from time to time, the Clock is moved straight to the next time when something happens: an alert goes off,
+ * or an event of one of the calendars starts or ends. The times are gone through one by one in order, and the alerts of
+ * each time are handed over before the Clock moves on, so however far the Clock goes, no alert is late or out of order.
+ */
+class Simulation {
+    private final List<Calendar> calendars;
+    private final Alarm alarm;
+    private final Consumer<List<Alert>> receiver;
+
+    /**
+     * Constructor of the class.
+     * @param calendars the calendars whose events are gone through
+     * @param alarm the alarm whose alerts are handed over; null if there is none
+     * @param receiver the receiver of the alerts that go off at the same time
+     */
+    Simulation(List<Calendar> calendars, Alarm alarm, Consumer<List<Alert>> receiver) {
+        this.calendars = calendars;
+        this.alarm = alarm;
+        this.receiver = receiver;
+    }
+
+    /**
+     * This method finds the next time when something happens.
+     * @return the time; the current time if some alerts are already due; null if nothing happens any more
+     */
+    LocalDateTime nextBoundary() {
+        LocalDateTime now = Clock.getTime();
+        LocalDateTime next = alarm == null ? null : alarm.getNextTime();
+        if (next != null && next.isBefore(now))
+            next = now;
+        for (Calendar calendar : calendars) {
+            LocalDateTime t = calendar.nextBoundary(now);
+            if (t != null && (next == null || t.isBefore(next)))
+                next = t;
+        }
+        return next;
+    }
+
+    /**
+     * This method moves the Clock through every time when something happens up to a given time, and then to that
+     * time. It should be called on the thread that changes the data, and the Clock goes on at its old speed afterward.
+     * @param until the time to stop at
+     * @return the number of times gone through
+     */
+    int runUntil(LocalDateTime until) {
+        int steps = 0;
+        Clock.startSimulation();
+        try {
+            for (LocalDateTime t = nextBoundary(); t != null && !t.isAfter(until); t = nextBoundary()) {
+                Clock.advanceTo(t);
+                deliver();
+                ++steps;
+            }
+            if (until.isAfter(Clock.getTime()))
+                Clock.advanceTo(until);
+            deliver();
+        } finally {
+            Clock.endSimulation();
+        }
+        return steps;
+    }
+
+    private void deliver() {
+        if (alarm == null)
+            return;
+        List<Alert> due = new ArrayList<>();
+        while (alarm.hasNext())
+            due.add(alarm.next());
+        if (!due.isEmpty())
+            receiver.accept(due);
+    }
+}
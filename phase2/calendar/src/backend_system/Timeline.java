@@ -0,0 +1,202 @@
+package backend_system;
+
+import backend_system.entities.Event;
+import clock.Time;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * This class keeps all the events of a calendar on one timeline: one index in the order of start time and one in the
+ * order of end time. Whether an event is past, ongoing or future is never stored; it is worked out from the current
+ * time by binary search on the two indexes, so time going by moves no data.
+ */
+class Timeline {
+    private final Comparator<Event> endOrder;
+    private final IntervalTree byStart;
+    private final IntervalTree byEnd;
+
+    /**
+     * Constructor of the class.
+     * @param endOrder the order of end time; ties are broken by the natural order of the events
+     */
+    Timeline(Comparator<Event> endOrder) {
+        this.endOrder = endOrder;
+        byStart = new IntervalTree(Event::compareTo);
+        byEnd = new IntervalTree(endOrder.thenComparing(Event::compareTo));
+    }
+
+    /**
+     * This is the getter of the order of end time given to the constructor.
+     * @return the comparator
+     */
+    Comparator<Event> getEndOrder() {
+        return endOrder;
+    }
+
+    /**
+     * This method adds an event. The time of the event must not change while it is on the timeline.
+     * @param event the event
+     * @return true if added;
+     *         false if there is already an event with the same name and start time
+     */
+    boolean add(Event event) {
+        if (!byStart.add(event))
+            return false;
+        byEnd.add(event);
+        return true;
+    }
+
+    /**
+     * This method removes an event.
+     * @param event the event
+     * @return true if removed
+     */
+    boolean remove(Event event) {
+        if (!byStart.remove(event))
+            return false;
+        byEnd.remove(event);
+        return true;
+    }
+
+    /**
+     * This method finds the events that take any time within a period.
+     * @param from the start of the period, inclusive
+     * @param to the end of the period, exclusive
+     * @return a list of Event in ascending start time
+     */
+    List<Event> overlapping(LocalDateTime from, LocalDateTime to) {
+        return byStart.overlapping(from, to);
+    }
+
+    /**
+     * This method finds the first time after a given time when an event starts or ends, which is when the status of
+     * an event changes.
+     * @param t the time
+     * @return the time; null if no event starts or ends after it
+     */
+    LocalDateTime nextBoundary(LocalDateTime t) {
+        int started = byStart.count(e -> !t.isBefore(e.getStartDateTime()));
+        int ended = byEnd.count(e -> !t.isBefore(e.getEndDateTime()));
+        LocalDateTime next = started < byStart.size() ? byStart.get(started).getStartDateTime() : null;
+        if (ended < byEnd.size()) {
+            LocalDateTime end = byEnd.get(ended).getEndDateTime();
+            if (next == null || end.isBefore(next))
+                next = end;
+        }
+        return next;
+    }
+
+    /**
+     * This method returns the events of a status at a time as a read-only view in ascending start time. The view
+     * reflects later changes to the timeline, but must not be iterated while the timeline changes.
+     * @param time the status of the events
+     * @param t the time the status is worked out at
+     * @return the view
+     */
+    List<Event> view(Time time, LocalDateTime t) {
+        return new View(time, t);
+    }
+
+    private final class View extends AbstractList<Event> {
+        private final Time time;
+        private final LocalDateTime t;
+
+        private View(Time time, LocalDateTime t) {
+            this.time = time;
+            this.t = t;
+        }
+
+        private int started() {
+            return byStart.count(e -> !t.isBefore(e.getStartDateTime()));
+        }
+
+        private int ended() {
+            return byEnd.count(e -> !t.isBefore(e.getEndDateTime()));
+        }
+
+        private List<Event> ongoing() {
+            return byStart.overlapping(t, t.plusNanos(1));
+        }
+
+        @Override
+        public int size() {
+            switch (time) {
+                case PAST:
+                    return ended();
+                case ONGOING:
+                    return started() - ended();
+                case FUTURE:
+                    return byStart.size() - started();
+                default:
+                    return byStart.size();
+            }
+        }
+
+        @Override
+        public Event get(int i) {
+            if (i < 0 || i >= size())
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            switch (time) {
+                case PAST:
+                    // skip the ongoing events among those that have started
+                    for (Event e : ongoing()) {
+                        if (byStart.indexOf(e) > i)
+                            break;
+                        ++i;
+                    }
+                    return byStart.get(i);
+                case ONGOING:
+                    return ongoing().get(i);
+                case FUTURE:
+                    return byStart.get(started() + i);
+                default:
+                    return byStart.get(i);
+            }
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            switch (time) {
+                case PAST:
+                    return filter(byStart.iterator(0, started()), e -> !t.isBefore(e.getEndDateTime()));
+                case ONGOING:
+                    return Collections.unmodifiableList(ongoing()).iterator();
+                case FUTURE:
+                    return byStart.iterator(started(), byStart.size());
+                default:
+                    return byStart.iterator(0, byStart.size());
+            }
+        }
+    }
+
+    private static Iterator<Event> filter(Iterator<Event> it, Predicate<Event> p) {
+        return new Iterator<Event>() {
+            private Event next = advance();
+
+            private Event advance() {
+                while (it.hasNext()) {
+                    Event e = it.next();
+                    if (p.test(e))
+                        return e;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Event next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                Event e = next;
+                next = advance();
+                return e;
+            }
+        };
+    }
+}
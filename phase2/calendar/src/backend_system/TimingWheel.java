@@ -0,0 +1,214 @@
+package backend_system;
+
+import backend_system.entities.Alert;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * This class keeps alerts in a hierarchical timing wheel keyed on the time of the Clock, in seconds. Level k has 64
+ * slots of 64^k seconds each, and an alert sits on the highest level where its time and the current time of the wheel
+ * differ, in the slot given by the digit of its time on that level. Adding and removing an alert take O(1); moving the
+ * wheel forward, however far, only empties the slots passed over and moves their alerts down to lower levels. The
+ * alerts whose second has come are handed to a small queue in the order they go off.
+ *
+ * The wheel moves with the time of the Clock rather than real time, so the speed of the Clock does not matter. When
+ * the Clock jumps back, the alerts are laid out again from the new time.
+ */
+class TimingWheel {
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+    // an array of a generic type cannot be created; every map put in it is a Map<Alert, Integer>
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private final Map<Alert, Integer>[][] slots = new Map[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    private final PriorityQueue<Alert> due = new PriorityQueue<>();
+    // the current second, with the sign bit flipped so that the keys compare as unsigned numbers
+    private long cursor = 0;
+    private int size = 0;
+
+    /**
+     * This method adds an alert.
+     * @param a the alert
+     */
+    void add(Alert a) {
+        place(a, 1);
+        ++size;
+    }
+
+    /**
+     * This method removes an alert that is equal to the given one.
+     * @param a the alert
+     * @return true if removed
+     */
+    boolean remove(Alert a) {
+        long key = key(a.getAlertDateTime());
+        boolean removed;
+        if (Long.compareUnsigned(key, cursor) <= 0) {
+            removed = due.remove(a);
+        } else {
+            int level = level(key);
+            removed = take(level, digit(key, level), a);
+        }
+        if (removed)
+            --size;
+        return removed;
+    }
+
+    private boolean take(int level, int slot, Alert a) {
+        Map<Alert, Integer> alerts = slots[level][slot];
+        if (alerts == null)
+            return false;
+        Integer n = alerts.get(a);
+        if (n == null)
+            return false;
+        if (n > 1) {
+            alerts.put(a, n - 1);
+        } else {
+            alerts.remove(a);
+            if (alerts.isEmpty()) {
+                slots[level][slot] = null;
+                occupied[level] &= ~(1L << slot);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * This is the getter of the number of alerts.
+     * @return the number of alerts
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * This method moves the wheel to a time, handing the alerts whose second has come to the queue of due alerts.
+     * @param now the time
+     */
+    void advance(LocalDateTime now) {
+        long t = key(now);
+        if (t == cursor)
+            return;
+        if (Long.compareUnsigned(t, cursor) < 0) {
+            List<Alert> all = toList();
+            Arrays.stream(slots).forEach(level -> Arrays.fill(level, null));
+            Arrays.fill(occupied, 0);
+            due.clear();
+            cursor = t;
+            for (Alert a : all)
+                place(a, 1);
+            return;
+        }
+        // every alert below the highest level where the two times differ is due, and so is every alert on that
+        // level up to the slot of the new time, which has to be laid out again from the new time
+        int top = level(t);
+        List<Map<Alert, Integer>> passed = new ArrayList<>();
+        for (int level = 0; level < top; ++level)
+            drain(level, occupied[level], passed);
+        long upTo = digit(t, top) == SLOTS - 1 ? -1L : (1L << (digit(t, top) + 1)) - 1;
+        drain(top, occupied[top] & upTo, passed);
+        cursor = t;
+        for (Map<Alert, Integer> alerts : passed)
+            for (Map.Entry<Alert, Integer> entry : alerts.entrySet())
+                place(entry.getKey(), entry.getValue());
+    }
+
+    private void drain(int level, long mask, List<Map<Alert, Integer>> passed) {
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            int slot = Long.numberOfTrailingZeros(bits);
+            passed.add(slots[level][slot]);
+            slots[level][slot] = null;
+        }
+        occupied[level] &= ~mask;
+    }
+
+    /**
+     * This is the getter of the earliest alert whose second has come, as of the last advance.
+     * @return the alert; null if there is none
+     */
+    Alert peek() {
+        return due.peek();
+    }
+
+    /**
+     * This method removes the earliest alert whose second has come, as of the last advance.
+     * @return the alert; null if there is none
+     */
+    Alert poll() {
+        Alert a = due.poll();
+        if (a != null)
+            --size;
+        return a;
+    }
+
+    /**
+     * This is the getter of the time of the earliest alert. Every alert on a level goes off before those on the levels
+     * above it, so only the first slot of the lowest level in use is looked at.
+     * @return the time; null if there is no alert
+     */
+    LocalDateTime firstTime() {
+        if (!due.isEmpty())
+            return due.peek().getAlertDateTime();
+        for (int level = 0; level < LEVELS; ++level) {
+            if (occupied[level] != 0) {
+                LocalDateTime first = null;
+                for (Alert a : slots[level][Long.numberOfTrailingZeros(occupied[level])].keySet())
+                    if (first == null || a.getAlertDateTime().isBefore(first))
+                        first = a.getAlertDateTime();
+                return first;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * This method lists all the alerts, in no particular order.
+     * @return a list of Alert
+     */
+    List<Alert> toList() {
+        List<Alert> all = new ArrayList<>(size);
+        all.addAll(due);
+        for (Map<Alert, Integer>[] level : slots)
+            for (Map<Alert, Integer> alerts : level)
+                if (alerts != null)
+                    for (Map.Entry<Alert, Integer> entry : alerts.entrySet())
+                        for (int i = 0; i < entry.getValue(); ++i)
+                            all.add(entry.getKey());
+        return all;
+    }
+
+    private void place(Alert a, int count) {
+        long key = key(a.getAlertDateTime());
+        if (Long.compareUnsigned(key, cursor) <= 0) {
+            for (int i = 0; i < count; ++i)
+                due.add(a);
+            return;
+        }
+        int level = level(key);
+        int slot = digit(key, level);
+        if (slots[level][slot] == null) {
+            slots[level][slot] = new HashMap<>();
+            occupied[level] |= 1L << slot;
+        }
+        slots[level][slot].merge(a, count, Integer::sum);
+    }
+
+    /**
+     * This method finds the highest level where a key and the current time of the wheel differ.
+     */
+    private int level(long key) {
+        return (Long.SIZE - 1 - Long.numberOfLeadingZeros(key ^ cursor)) / BITS;
+    }
+
+    private static int digit(long key, int level) {
+        return (int) (key >>> (level * BITS)) & (SLOTS - 1);
+    }
+
+    private static long key(LocalDateTime t) {
+        return t.toEpochSecond(ZoneOffset.UTC) ^ Long.MIN_VALUE;
+    }
+}
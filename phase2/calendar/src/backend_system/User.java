@@ -1,15 +1,24 @@
 package backend_system;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 /**
  * a class for an account of a user
  */
 public class User implements Serializable {
+    private static final long serialVersionUID = -1172064790826439994L;
+
     private String username, password;
     private Alarm alarm;
     private List<Calendar> calenders;
+    private transient List<String> names;
+    private transient boolean split;
+    private transient CalendarStore store;
+    private transient Journal<User> journal;
 
     /**
      * This is the constructor of the class. It contains the name, password and all the calendars created by this user.
@@ -21,6 +30,15 @@ public class User implements Serializable {
         this.password = password;
         alarm = new Alarm();
         calenders = new ArrayList<>();
+        names = new ArrayList<>();
+        split = true;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        names = new ArrayList<>();
+        for (Calendar calendar : calenders)
+            names.add(calendar.getCalendarName());
     }
 
     /**
@@ -46,7 +64,20 @@ public class User implements Serializable {
      * @param calendarName the name of the new calendar
      */
     public void addCalender(String calendarName){
-        calenders.add(new Calendar(calendarName));
+        Calendar calendar = new Calendar(calendarName);
+        if (store != null) {
+            try {
+                calendar = store.save(calenders.size(), calendar);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        names.add(calendarName);
+        calenders.add(calendar);
+        if (journal != null)
+            journal.append(new Mutation(Mutation.Op.ADD_CALENDAR, null, calendarName));
     }
 
     /**
@@ -54,25 +85,31 @@ public class User implements Serializable {
      * @return a List that contains all the names of the calendars created by the user.
      */
     public ArrayList<String> getCalendarsNames(){
-        ArrayList<String> arrayList = new ArrayList<>();
-        for(Calendar eventManager: calenders){
-            arrayList.add(eventManager.getCalendarName());
-        }
-        return arrayList;
+        return new ArrayList<>(names);
     }
 
     /**
-     * get the calendar with given name, or null if no such calendar exists
+     * get the calendar with given name, or null if no such calendar exists. The calendar is read from its files the
+     * first time it is asked for.
      * @param name the wanted name of the calendar
      * @return an Calendar
      */
     public Calendar getCalender(String name){
-        for (Calendar em:calenders){
-            if(em.getCalendarName().equals(name)){
-                return em;
+        int i = names.indexOf(name);
+        if (i < 0)
+            return null;
+        Calendar calendar = calenders.get(i);
+        if (calendar == null && store != null) {
+            try {
+                calendar = store.load(i, name);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException(e);
             }
+            calenders.set(i, calendar);
         }
-        return null;
+        return calendar;
     }
 
     /**
@@ -82,4 +119,101 @@ public class User implements Serializable {
     public Alarm getAlarm() {
         return alarm;
     }
+
+    /**
+     * This method attaches the journal that records the changes made to this user and its alarm. The calendars record
+     * their changes in their own journals.
+     * @param journal the journal; null to stop recording
+     */
+    void setJournal(Journal<User> journal) {
+        this.journal = journal;
+        alarm.setJournal(journal);
+    }
+
+    /**
+     * This method attaches the files the calendars are read from. A user saved by an earlier version holds all its
+     * calendars; they are moved into their own files here.
+     * @param store the files of the calendars
+     * @return true if calendars were moved, so the user has to be saved again without them
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    boolean setStore(CalendarStore store) throws IOException, ClassNotFoundException {
+        this.store = store;
+        if (split)
+            return false;
+        for (int i = 0; i < calenders.size(); ++i)
+            calenders.set(i, store.save(i, calenders.get(i)));
+        split = true;
+        return true;
+    }
+
+    /**
+     * This method writes this user with its alarm in the binary format, followed by the names of its calendars, or by
+     * the calendars themselves if they have not been moved into their own files yet.
+     * @param out the output
+     */
+    void write(BinaryFormat.Writer out) {
+        out.writeString(username);
+        out.writeString(password);
+        alarm.write(out);
+        out.writeVarInt(split ? 1 : 0);
+        out.writeVarInt(names.size());
+        for (int i = 0; i < names.size(); ++i) {
+            if (split)
+                out.writeString(names.get(i));
+            else
+                calenders.get(i).write(out);
+        }
+    }
+
+    /**
+     * This method reads a user written by write.
+     * @param in the input
+     * @return the user
+     * @throws IOException an exception in file I/O
+     */
+    static User read(BinaryFormat.Reader in) throws IOException {
+        String username = in.readString();
+        User user = new User(username, in.readString());
+        user.alarm.read(in);
+        user.split = in.getVersion() > 1 && in.readVarInt() == 1;
+        for (int i = in.readVarInt(); i > 0; --i) {
+            if (user.split) {
+                user.names.add(in.readString());
+                user.calenders.add(null);
+            } else {
+                Calendar calendar = new Calendar(null);
+                calendar.read(in);
+                user.names.add(calendar.getCalendarName());
+                user.calenders.add(calendar);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * This method applies a change read back from the journal.
+     * @param m the change
+     */
+    void apply(Mutation m) {
+        switch (m.op) {
+            case ADD_CALENDAR:
+                // a calendar in its own files is only read when it is asked for
+                names.add(m.string(0));
+                calenders.add(split ? null : new Calendar(m.string(0)));
+                break;
+            case ALARM_ADD:
+            case ALARM_ADD_RANGE:
+            case ALARM_REMOVE:
+            case ALARM_POP:
+                alarm.apply(m);
+                break;
+            default:
+                // only logs written before the calendars had their own files hold changes to them
+                int i = names.indexOf(m.target);
+                if (i >= 0 && calenders.get(i) != null)
+                    calenders.get(i).apply(m);
+        }
+    }
 }
@@ -4,29 +4,176 @@ import backend_system.entities.*;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 /**
  * a class for the interactions between users
  */
 public class UserSystem {
+    /**
+     * The largest number of messages handed over at a time as they arrive.
+     */
+    public static final int MESSAGE_BATCH = 100;
+
+    private final boolean journaled;
     private User user;
     private CommonCalendar common;
-    private Inboxes inboxes;
-    private SerHelper<User> userSer;
-    private SerHelper<CommonCalendar> calSer;
-    private SerHelper<Inboxes> boxSer;
+    private Calendar commonSession;
+    private MessageStore messages;
+    private Journal<User> userJournal;
+    private CalendarStore calendars;
+    private Journal<CommonCalendar> calJournal;
+    private Checkpointer checkpointer;
+    private AlertDispatcher dispatcher;
+    private Runnable mailListener;
 
     /**
-     * This method initialize the user system by setting up serializable files and common calendars and inboxes.
+     * This method initialize the user system in journaled mode, so that every change is appended to a log instead of
+     * rewriting all the data at log off.
      * @throws IOException An exception in file I/O
      * @throws ClassNotFoundException An exception in serializable
      */
     public UserSystem() throws IOException, ClassNotFoundException {
-        calSer = new SerHelper<>(new File("usr/common.ser"), new CommonCalendar("Common"));
-        common = calSer.read();
-        boxSer = new SerHelper<>(new File("usr/inbox.ser"), new Inboxes());
-        inboxes = boxSer.read();
+        this(true);
+    }
+
+    /**
+     * This method initialize the user system by setting up serializable files and common calendars and inboxes. The
+     * messages are always appended to the log of their receivers; the inboxes saved by earlier versions are moved into
+     * the logs.
+     * @param journaled true if changes are appended to a log and folded into the serialized files periodically;
+     *                  false if the serialized files are rewritten at every log off
+     * @throws IOException An exception in file I/O
+     * @throws ClassNotFoundException An exception in serializable
+     */
+    public UserSystem(boolean journaled) throws IOException, ClassNotFoundException {
+        this.journaled = journaled;
+        calJournal = new Journal<>(new File("usr/common.ser"), new File("usr/common.log"),
+                new CommonCalendar("Common"), journaled, BinaryFormat.COMMON);
+        common = calJournal.load(CommonCalendar::apply);
+        common.setJournal(calJournal);
+        messages = new MessageStore(new File("usr/inbox"), MessageStore.RETENTION);
+        File boxes = new File("usr/inbox.ser"), boxLog = new File("usr/inbox.log");
+        if (boxes.exists() || boxLog.exists()) {
+            Inboxes inboxes = new Journal<>(boxes, boxLog, new Inboxes(), false, null).load(UserSystem::deliver);
+            // a crash before the old files are deleted moves the messages again, but loses none of them
+            for (String receiver : inboxes.getReceivers())
+                for (Message m : inboxes.receive(receiver))
+                    messages.send(m);
+            Journal.delete(boxes, boxLog);
+        }
+    }
+
+    /**
+     * This method starts saving the logged in user and the common calendar in the background whenever they have
+     * changed. The messages are written as they are sent.
+     * @param interval the time between two checkpoints
+     * @param captureExecutor the executor that runs on the thread which changes the data, e.g. the UI thread; it only
+     *                        copies the data in memory, and the copy is written to the disk on a background thread
+     */
+    public void startCheckpoints(Duration interval, Executor captureExecutor) {
+        stopCheckpoints();
+        checkpointer = new Checkpointer(interval, captureExecutor);
+        checkpointer.add(calJournal);
+        if (isLoggedIn()) {
+            checkpointer.add(userJournal);
+            if (calendars != null)
+                calendars.setCheckpointer(checkpointer);
+        }
+    }
+
+    /**
+     * This method stops the background checkpoints and waits until the pending ones are written.
+     */
+    public void stopCheckpoints() {
+        if (checkpointer != null) {
+            checkpointer.stop();
+            checkpointer = null;
+            if (calendars != null)
+                calendars.setCheckpointer(null);
+        }
+    }
+
+    /**
+     * This method starts handing over the alerts of the logged in user as they go off, instead of waiting for them to
+     * be asked for.
+     * @param deliverExecutor the executor that runs on the thread which changes the data, e.g. the UI thread
+     * @param receiver the receiver of the alerts that have gone off, called through the executor with all the alerts
+     *                 that are due at the same time
+     */
+    public void startAlerts(Executor deliverExecutor, Consumer<List<Alert>> receiver) {
+        stopAlerts();
+        dispatcher = new AlertDispatcher(deliverExecutor, receiver);
+        if (isLoggedIn())
+            dispatcher.setAlarm(user.getAlarm());
+    }
+
+    /**
+     * This method stops handing over the alerts.
+     */
+    public void stopAlerts() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+            dispatcher = null;
+        }
+    }
+
+    /**
+     * This method fast-forwards the Clock to a time through every time in between when an alert goes off or an event
+     * of the common calendar or of a calendar of the logged in user starts or ends, in order. It should be called on
+     * the thread that changes the data.
+     * @param until the time to stop at
+     * @param receiver the receiver of the alerts of the logged in user that go off at the same time, called as soon
+     *                 as they do
+     * @return the number of times gone through
+     */
+    public int simulate(LocalDateTime until, Consumer<List<Alert>> receiver) {
+        List<Calendar> loaded = new ArrayList<>();
+        loaded.add(isLoggedIn() ? commonSession : common);
+        if (isLoggedIn())
+            for (String name : user.getCalendarsNames())
+                loaded.add(user.getCalender(name));
+        return new Simulation(loaded, isLoggedIn() ? user.getAlarm() : null, receiver).runUntil(until);
+    }
+
+    /**
+     * This method starts handing over the messages sent to the logged in user as soon as they arrive, instead of
+     * waiting for them to be asked for. The messages that are already there are handed over at once.
+     * @param deliverExecutor the executor that runs on the thread which changes the data, e.g. the UI thread
+     * @param receiver the receiver of the messages, called through the executor with at most MESSAGE_BATCH messages
+     *                 at a time in the order they were sent
+     */
+    public void startMessages(Executor deliverExecutor, Consumer<List<Message>> receiver) {
+        stopMessages();
+        mailListener = () -> deliverExecutor.execute(() -> {
+            if (mailListener == null || !isLoggedIn())
+                return;
+            List<Message> ms = receiveMessages(MESSAGE_BATCH);
+            if (!ms.isEmpty())
+                receiver.accept(ms);
+            // the rest of the messages are handed over in later tasks, so that each task stays short
+            if (messages.hasMessages(user.getName()))
+                mailListener.run();
+        });
+        if (isLoggedIn()) {
+            messages.subscribe(user.getName(), mailListener);
+            mailListener.run();
+        }
+    }
+
+    /**
+     * This method stops handing over the messages as they arrive.
+     */
+    public void stopMessages() {
+        if (mailListener != null) {
+            if (isLoggedIn())
+                messages.unsubscribe(user.getName(), mailListener);
+            mailListener = null;
+        }
     }
 
     /**
@@ -51,6 +198,7 @@ public class UserSystem {
 
     /**
      * This method takes an user name and a password to let the user log in if the user name and the password matches.
+     * Only the names of the calendars of the user are read here; each calendar is read when it is first asked for.
      * @param username the user name in String
      * @param password the password in String
      * @return 1 if logged in successfully
@@ -61,10 +209,26 @@ public class UserSystem {
     public int login(String username, String password) throws IOException, ClassNotFoundException {
         if (!userExists(username))
             return -1;
-        userSer = new SerHelper<>(new File("usr/" + username + ".ser"), null);
-        user = userSer.read();
+        if (checkpointer != null)
+            checkpointer.sync();
+        userJournal = new Journal<>(new File("usr/" + username + ".ser"), new File("usr/" + username + ".log"),
+                null, journaled, BinaryFormat.USER);
+        user = userJournal.load(User::apply);
         if (user.match(password)) {
-            common.setUsername(username);
+            calendars = new CalendarStore(new File("usr/" + username), journaled);
+            if (user.setStore(calendars))
+                userJournal.capture().write();
+            user.setJournal(userJournal);
+            calendars.setCheckpointer(checkpointer);
+            if (checkpointer != null)
+                checkpointer.add(userJournal);
+            commonSession = common.session(username);
+            if (dispatcher != null)
+                dispatcher.setAlarm(user.getAlarm());
+            if (mailListener != null) {
+                messages.subscribe(username, mailListener);
+                mailListener.run();
+            }
             return 1;
         } else {
             logoff();
@@ -88,21 +252,58 @@ public class UserSystem {
         return common;
     }
 
+    /**
+     * This is the getter of the view of the common calendar for the currently logged in user
+     * @return the events of the common calendar shared with the user; null if no one has logged in
+     */
+    public Calendar getCommonSession() {
+        return commonSession;
+    }
+
     /**
      * This method lets the currently logged in user log off.
      * @throws IOException an exception in file I/O
      */
     public void logoff() throws IOException {
         if (isLoggedIn()) {
-            userSer.write(user);
+            if (dispatcher != null)
+                dispatcher.setAlarm(null);
+            if (mailListener != null)
+                messages.unsubscribe(user.getName(), mailListener);
+            if (calendars != null) {
+                for (Journal<Calendar> journal : calendars.getJournals()) {
+                    if (checkpointer != null)
+                        checkpointer.remove(journal);
+                    checkpoint(journal);
+                    journal.close();
+                }
+                calendars = null;
+            }
+            if (checkpointer != null)
+                checkpointer.remove(userJournal);
+            checkpoint(userJournal);
+            userJournal.close();
             user = null;
-            userSer = null;
-            calSer.write(common);
-            common.setUsername(null);
-            boxSer.write(inboxes);
+            userJournal = null;
+            commonSession = null;
+            checkpoint(calJournal);
+            messages.close();
         }
     }
 
+    /**
+     * This method makes the changes in a journal durable, leaving the snapshot to the background checkpoints if they
+     * are running.
+     * @param journal the journal
+     * @throws IOException an exception in file I/O
+     */
+    private void checkpoint(Journal<?> journal) throws IOException {
+        if (checkpointer != null && journal.needsCompaction())
+            checkpointer.checkpoint(journal);
+        else
+            journal.checkpoint();
+    }
+
     /**
      * This method takes an user name and a password to set up a new account for an user.
      * @param username the user name in String
@@ -110,7 +311,7 @@ public class UserSystem {
      * @throws IOException an exception in file I/O
      */
     public void createAccount(String username, String password) throws IOException {
-        new SerHelper<>(new File("usr/" + username + ".ser"), new User(username, password));
+        new SerHelper<>(new File("usr/" + username + ".ser"), new User(username, password), BinaryFormat.USER);
     }
 
     /**
@@ -120,15 +321,19 @@ public class UserSystem {
      * @param event     the name of the event
      * @return  1       if the delivery succeeds;
      *          -1      if the receiver does not exist;
-     *          -2      if there is not such event in the common calendar.
+     *          -2      if there is not such event in the common calendar;
+     *          -3      if the message cannot be saved.
      */
     public int sendMessage(String receiver, String message, String event) {
         if (!userExists(receiver))
             return -1;
         if (event != null && !common.contains(event, user.getName()))
             return -2;
-        Message msg = new Message(user.getName(), receiver, message, event);
-        inboxes.send(msg);
+        try {
+            messages.send(new Message(user.getName(), receiver, message, event));
+        } catch (IOException e) {
+            return -3;
+        }
         return 1;
     }
 
@@ -137,6 +342,28 @@ public class UserSystem {
      * @return A List contains all the messages that receiver is the user currently logged in
      */
     public List<Message> receiveMessages() {
-        return inboxes.receive(user.getName());
+        return receiveMessages(Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method let the user currently logged in receive at most the given number of the earliest messages.
+     * @param max the largest number of messages to receive
+     * @return A List contains the messages in the order they were sent
+     */
+    public List<Message> receiveMessages(int max) {
+        return messages.receive(user.getName(), max);
+    }
+
+    /**
+     * This method applies a change of the inboxes saved by earlier versions, read back from their journal.
+     * @param inboxes the inboxes
+     * @param m the change
+     */
+    private static void deliver(Inboxes inboxes, Mutation m) {
+        if (m.op == Mutation.Op.SEND)
+            inboxes.send(new Message(m.string(0), m.string(1), m.string(2), m.string(3)));
+        else if (m.op == Mutation.Op.RECEIVE)
+            // the changes written by earlier versions receive all the messages
+            inboxes.receive(m.string(0), m.count() > 1 ? m.integer(1) : Integer.MAX_VALUE);
     }
 }
@@ -31,8 +31,7 @@ public class Alert implements Comparable<Alert>, Serializable {
      * @return whether the time for this alert is up or not
      */
     public boolean timeIsUp() {
-        LocalDateTime t = Clock.getTime();
-        return alertDateTime.isBefore(t) || alertDateTime.isEqual(t);
+        return Clock.epochNanos(alertDateTime) <= Clock.nowEpochNanos();
     }
 
     /**
@@ -0,0 +1,269 @@
+package backend_system.entities;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The class AlertRule represents alerts that go off again and again at a fixed interval. The alerts are not kept one
+ * by one; each of them is worked out from the rule when it is needed, so a rule takes the same space however many
+ * times it goes off. The alerts that have gone off are worked out in the same way, from the time of the first of them.
+ * Only the alerts removed one by one are remembered.
+ */
+public class AlertRule implements Serializable {
+    private static final long serialVersionUID = -4412391727853466043L;
+
+    private final String name;
+    private LocalDateTime next;
+    private final LocalDateTime until;
+    private final Duration interval;
+    private final TreeSet<LocalDateTime> skipped = new TreeSet<>();
+    private LocalDateTime rungFrom;
+    private TreeSet<LocalDateTime> removed = new TreeSet<>();
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // the rules saved by earlier versions do not know which of their alerts have gone off
+        if (removed == null)
+            removed = new TreeSet<>();
+    }
+
+    /**
+     * Creates an AlertRule.
+     *
+     * @param name     the message of the alerts.
+     * @param from     the time of the first alert.
+     * @param until    the time before which the last alert goes off.
+     * @param interval the time between two alerts; must be positive.
+     */
+    public AlertRule(String name, LocalDateTime from, LocalDateTime until, Duration interval) {
+        if (interval.isNegative() || interval.isZero())
+            throw new IllegalArgumentException("The interval between two alerts should be positive.");
+        this.name = name;
+        this.next = from;
+        this.until = until;
+        this.interval = interval;
+    }
+
+    /**
+     * Returns the alert message of this AlertRule.
+     *
+     * @return the message of the alerts.
+     */
+    public String getAlertName() {
+        return name;
+    }
+
+    /**
+     * Returns the time of the first alert that has not gone off or been removed, whether or not it is skipped.
+     *
+     * @return the time.
+     */
+    public LocalDateTime getFrom() {
+        return next;
+    }
+
+    /**
+     * Returns the time before which the last alert goes off.
+     *
+     * @return the time.
+     */
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    /**
+     * Returns the time between two alerts.
+     *
+     * @return the interval.
+     */
+    public Duration getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the times of the alerts after getFrom() that have been removed one by one.
+     *
+     * @return a sorted set of the times.
+     */
+    public TreeSet<LocalDateTime> getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Returns the time of the first alert at or after a given time.
+     *
+     * @param t the time.
+     * @return the time of the alert; null if there is none.
+     */
+    public LocalDateTime first(LocalDateTime t) {
+        LocalDateTime candidate = next;
+        if (t.isAfter(next)) {
+            long k = Duration.between(next, t).dividedBy(interval);
+            candidate = next.plus(interval.multipliedBy(k));
+            if (candidate.isBefore(t))
+                candidate = candidate.plus(interval);
+        }
+        while (candidate.isBefore(until) && skipped.contains(candidate))
+            candidate = candidate.plus(interval);
+        return candidate.isBefore(until) ? candidate : null;
+    }
+
+    /**
+     * Returns the time of the first alert that has not gone off or been removed.
+     *
+     * @return the time of the alert; null if there is none.
+     */
+    public LocalDateTime first() {
+        return first(next);
+    }
+
+    /**
+     * Check if an alert of this rule goes off at a given time.
+     *
+     * @param t the time.
+     * @return true if it does.
+     */
+    public boolean occursAt(LocalDateTime t) {
+        return t.equals(first(t));
+    }
+
+    /**
+     * Check if an alert is one of the alerts of this rule.
+     *
+     * @param a the alert.
+     * @return true if it is.
+     */
+    public boolean contains(Alert a) {
+        return name.equals(a.getAlertName()) && occursAt(a.getAlertDateTime());
+    }
+
+    /**
+     * Removes the alert at a given time, if there is one.
+     *
+     * @param t the time of the alert.
+     * @return true if removed.
+     */
+    public boolean skip(LocalDateTime t) {
+        if (!occursAt(t))
+            return false;
+        if (t.equals(first())) {
+            passTo(t);
+            if (rungFrom != null)
+                removed.add(t);
+        } else
+            skipped.add(t);
+        return true;
+    }
+
+    /**
+     * Forgets the alerts up to a given time, after they have gone off.
+     *
+     * @param t the time.
+     */
+    public void passTo(LocalDateTime t) {
+        if (t.isBefore(next))
+            return;
+        next = first(t.plusNanos(1));
+        if (next == null)
+            next = until;
+        SortedSet<LocalDateTime> passed = skipped.headSet(next);
+        if (rungFrom != null)
+            removed.addAll(passed.tailSet(rungFrom));
+        passed.clear();
+    }
+
+    /**
+     * Forgets the alerts up to a given time, after the alert at that time has gone off. The alerts that have gone off
+     * can be had back from pastAlerts().
+     *
+     * @param t the time of the alert.
+     */
+    public void goOff(LocalDateTime t) {
+        if (rungFrom == null)
+            rungFrom = t;
+        passTo(t);
+    }
+
+    /**
+     * Check if every alert of this rule has gone off or been removed.
+     *
+     * @return true if there is no alert left.
+     */
+    public boolean isOver() {
+        return first() == null;
+    }
+
+    /**
+     * Returns the alerts at or after a given time, one by one as they are asked for.
+     *
+     * @param from the time.
+     * @return an iterator of Alert in the order they go off.
+     */
+    public Iterator<Alert> iterator(LocalDateTime from) {
+        return new Iterator<Alert>() {
+            private LocalDateTime t = first(from);
+
+            @Override
+            public boolean hasNext() {
+                return t != null;
+            }
+
+            @Override
+            public Alert next() {
+                if (t == null)
+                    throw new NoSuchElementException();
+                Alert a = new Alert(name, t);
+                t = first(t.plus(interval));
+                return a;
+            }
+        };
+    }
+
+    /**
+     * Returns the alerts that have gone off, one by one as they are asked for.
+     *
+     * @return an iterator of Alert in the order they went off.
+     */
+    public Iterator<Alert> pastAlerts() {
+        return new Iterator<Alert>() {
+            private LocalDateTime t = past(rungFrom);
+
+            @Override
+            public boolean hasNext() {
+                return t != null;
+            }
+
+            @Override
+            public Alert next() {
+                if (t == null)
+                    throw new NoSuchElementException();
+                Alert a = new Alert(name, t);
+                t = past(t.plus(interval));
+                return a;
+            }
+        };
+    }
+
+    private LocalDateTime past(LocalDateTime t) {
+        while (t != null && t.isBefore(next) && removed.contains(t))
+            t = t.plus(interval);
+        return t != null && t.isBefore(next) ? t : null;
+    }
+
+    /**
+     * Return the rule as a string.
+     *
+     * @return the message, the first time, the interval and the end of the alerts.
+     */
+    @Override
+    public String toString() {
+        return name + " every " + interval + " from " + next + " until " + until;
+    }
+}
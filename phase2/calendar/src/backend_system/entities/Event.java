@@ -16,6 +16,8 @@ import java.util.Objects;
  * alerts that are related to this event.
  */
 public class Event implements Comparable, Serializable {
+    private static final long serialVersionUID = 431549453484987094L;
+
     private ArrayList<Tag> tags;
     private ArrayList<Memo> memos;
     private AlertManager alertManager;
@@ -79,6 +81,17 @@ public class Event implements Comparable, Serializable {
         this.alertManager.createNormalAlert(name, dt);
     }
 
+    /**
+     * Creates a single alert for this event as if it were created at the given time.
+     *
+     * @param name the name of the alert.
+     * @param dt   the time and date of this alert.
+     * @param now  the time when the alert is created.
+     */
+    public void createIndividualAlert(String name, LocalDateTime dt, LocalDateTime now) {
+        this.alertManager.createNormalAlert(name, dt, now);
+    }
+
     /**
      * Creates a series of alerts according frequency that is in seconds.
      *
@@ -91,6 +104,20 @@ public class Event implements Comparable, Serializable {
         this.alertManager.createFrequencyAlert(name, dt, untilWhen, temporalAmount);
     }
 
+    /**
+     * Creates a series of alerts as if they were created at the given time.
+     *
+     * @param name           the name of the alert.
+     * @param dt             the first time and date of this alert.
+     * @param untilWhen      the last time and date of this alert
+     * @param temporalAmount the time between two alerts in seconds.
+     * @param now            the time when the alerts are created.
+     */
+    public void createFrequencyAlert(String name, LocalDateTime dt, LocalDateTime untilWhen, Duration temporalAmount,
+                                     LocalDateTime now) {
+        this.alertManager.createFrequencyAlert(name, dt, untilWhen, temporalAmount, now);
+    }
+
     /**
      * Return all the tags that are related to this event.
      *
@@ -178,6 +205,27 @@ public class Event implements Comparable, Serializable {
         alertManager.deleteAlert(a);
     }
 
+    /**
+     * Change the message and the time of an alert using alertManager.
+     *
+     * @param a    the alert to be changed
+     * @param name the new message of the alert
+     * @param dt   the new time of the alert
+     */
+    public void editAlert(Alert a, String name, LocalDateTime dt) {
+        alertManager.editAlert(a, name, dt);
+    }
+
+    /**
+     * Check if an alert is related to this Event.
+     *
+     * @param a the alert
+     * @return true if it is
+     */
+    public boolean hasAlert(Alert a) {
+        return alertManager.hasAlert(a);
+    }
+
     /**
      * Compare two Event objects for ordering.
      *
@@ -241,6 +289,44 @@ public class Event implements Comparable, Serializable {
         return this.alertManager.getAlertList();
     }
 
+    /**
+     * Return a page of the alerts that are related to this Event.
+     *
+     * @param from the time of the first alert on the page
+     * @param max  the largest number of alerts on the page
+     * @return a list of alerts of this Event in the order they go off.
+     */
+    public ArrayList<Alert> getAllAlerts(LocalDateTime from, int max) {
+        return this.alertManager.getAlertList(from, max);
+    }
+
+    /**
+     * Return the alerts of this Event that go off only once.
+     *
+     * @return a list of alerts.
+     */
+    public List<Alert> getSingleAlerts() {
+        return this.alertManager.getSingleAlerts();
+    }
+
+    /**
+     * Return the rules of the alerts of this Event that go off again and again.
+     *
+     * @return a list of rules.
+     */
+    public List<AlertRule> getAlertRules() {
+        return this.alertManager.getAlertRules();
+    }
+
+    /**
+     * Add a rule of alerts that go off again and again.
+     *
+     * @param rule the rule
+     */
+    public void addAlertRule(AlertRule rule) {
+        this.alertManager.addAlertRule(rule);
+    }
+
     /**
      * The new overriding version of equals. It compares tags, memos, name, start time and end time.
      * @param o the Event to be compared
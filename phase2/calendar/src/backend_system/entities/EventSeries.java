@@ -1,18 +1,63 @@
 package backend_system.entities;
 
+import clock.Clock;
+import clock.Time;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.time.DateTimeException;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TreeSet;
+import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * The class EventSeries represents a series of events with a specified name.
+ *
+ * A series made by repeating() keeps only its rule: the first occurrence, the time between two occurrences and how
+ * many there are. Its occurrences are worked out from the rule when the events of a period are asked for, as
+ * Occurrence, which only costs the occurrences in the period however long the series runs. An occurrence that is
+ * cancelled, or given another name or time, stays in the rule: the change is kept as an OccurrenceChange by its
+ * position and applied when the occurrence is worked out. An occurrence that a tag, memo or alert is attached to is
+ * taken out of the rule and kept among the events of the series, as the real event it has become.
+ *
+ * A series can also go on FOREVER. Then only the occurrences that start by HORIZON after the current time of the Clock
+ * are listed, so the future events, the events of a date and the next time something happens are found among them;
+ * an occurrence further out can still be found by its name.
  */
 public class EventSeries implements Serializable {
+    private static final long serialVersionUID = 5431705983964959068L;
+
+    /**
+     * The number of occurrences of a series without end.
+     */
+    public static final int FOREVER = Integer.MAX_VALUE;
+
+    /**
+     * How far after the current time the occurrences of a series without end are listed.
+     */
+    public static final Duration HORIZON = Duration.ofDays(365);
+
     private TreeSet<Event> seriesEvents = new TreeSet<>();
     private String seriesName;
+    // the rule of the occurrences; the period is null for a series that only has the events added to it
+    private String eventName;
+    private LocalDateTime firstStart;
+    private LocalDateTime firstEnd;
+    private Duration period;
+    private int count;
+    // the occurrences taken out of the rule by their position, as the real events they have become
+    private TreeMap<Integer, Event> taken;
+    // the occurrences of the rule that are cancelled or have another name or time, by their position
+    private TreeMap<Integer, OccurrenceChange> changes;
+    // the positions of the changes by the names given to the occurrences, and by the starts of the occurrences given
+    // another time, so that neither is looked for among all the changes
+    private transient HashMap<String, TreeSet<Integer>> byName;
+    private transient TreeMap<LocalDateTime, TreeSet<Integer>> byStart;
+    // at least as long as any occurrence given another time, so those that take any time after a time t start after
+    // t minus it
+    private transient Duration longest;
 
     /**
      * Create a series representation with its specified name.
@@ -45,13 +90,531 @@ public class EventSeries implements Serializable {
         }
     }
 
+    /**
+     * Create a series that repeats by a rule a given number of times. The occurrences are named after the events with
+     * their position from 1, as in the series made by the constructor.
+     *
+     * @param name          the name of the events in this series.
+     * @param startDateTime the start date and time of the first occurrence.
+     * @param endDateTime   the end date and time of the first occurrence.
+     * @param seriesName    the name of the series.
+     * @param period        the time between the starts of two occurrences.
+     * @param count         the number of occurrences; FOREVER for a series without end.
+     * @return the series.
+     */
+    public static EventSeries repeating(String name, LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                        String seriesName, Duration period, int count) {
+        if (!endDateTime.isAfter(startDateTime) || period.isNegative() || period.isZero() || count < 0)
+            throw new IllegalArgumentException("A series needs events that take some time, a positive period and a " +
+                    "number of events that is not negative.");
+        EventSeries es = new EventSeries(seriesName);
+        es.eventName = name;
+        es.firstStart = startDateTime;
+        es.firstEnd = endDateTime;
+        es.period = period;
+        es.count = count;
+        es.taken = new TreeMap<>();
+        es.changes = new TreeMap<>();
+        es.index();
+        return es;
+    }
+
+    /**
+     * Create a series that repeats by a rule until a given time.
+     *
+     * @param name          the name of the events in this series.
+     * @param startDateTime the start date and time of the first occurrence.
+     * @param endDateTime   the end date and time of the first occurrence.
+     * @param seriesName    the name of the series.
+     * @param period        the time between the starts of two occurrences.
+     * @param until         the latest start date and time of an occurrence.
+     * @return the series.
+     */
+    public static EventSeries repeatingUntil(String name, LocalDateTime startDateTime, LocalDateTime endDateTime,
+                                             String seriesName, Duration period, LocalDateTime until) {
+        EventSeries es = repeating(name, startDateTime, endDateTime, seriesName, period, Integer.MAX_VALUE);
+        es.count = es.countBy(startDateTime, until);
+        return es;
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        if (taken != null && changes == null) {
+            // the series saved before the changes were kept had the deleted occurrences among the taken ones
+            changes = new TreeMap<>();
+            for (Iterator<Map.Entry<Integer, Event>> it = taken.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Event> entry = it.next();
+                if (entry.getValue() == null) {
+                    changes.put(entry.getKey(), OccurrenceChange.CANCELLED);
+                    it.remove();
+                }
+            }
+        }
+        if (changes != null)
+            index();
+    }
+
+    /**
+     * Index all the changes by the names and the times they give.
+     */
+    private void index() {
+        byName = new HashMap<>();
+        byStart = new TreeMap<>();
+        longest = Duration.ZERO;
+        for (Map.Entry<Integer, OccurrenceChange> entry : changes.entrySet())
+            index(entry.getKey(), entry.getValue());
+    }
+
+    private void index(int index, OccurrenceChange change) {
+        if (change.isCancelled())
+            return;
+        if (change.getName() != null)
+            byName.computeIfAbsent(change.getName(), k -> new TreeSet<>()).add(index);
+        if (change.getStartDateTime() != null) {
+            byStart.computeIfAbsent(change.getStartDateTime(), k -> new TreeSet<>()).add(index);
+            Duration d = Duration.between(change.getStartDateTime(), change.getEndDateTime());
+            if (d.compareTo(longest) > 0)
+                longest = d;
+        }
+    }
+
+    private void unindex(int index, OccurrenceChange change) {
+        if (change == null || change.isCancelled())
+            return;
+        if (change.getName() != null)
+            unindex(byName, change.getName(), index);
+        if (change.getStartDateTime() != null)
+            unindex(byStart, change.getStartDateTime(), index);
+    }
+
+    private static <K> void unindex(Map<K, TreeSet<Integer>> map, K key, int index) {
+        TreeSet<Integer> indexes = map.get(key);
+        indexes.remove(index);
+        if (indexes.isEmpty())
+            map.remove(key);
+    }
+
+    /**
+     * Keep the change of an occurrence of the rule, as it was read back; the change it had before is not kept.
+     *
+     * @param index  the position of the occurrence.
+     * @param change the change.
+     */
+    public void setChange(int index, OccurrenceChange change) {
+        unindex(index, changes.put(index, change));
+        index(index, change);
+    }
+
+    private void removeChange(int index) {
+        unindex(index, changes.remove(index));
+    }
+
+    /**
+     * Return whether the occurrences of this series are worked out from a rule.
+     *
+     * @return true if they are.
+     */
+    public boolean hasRule() {
+        return period != null;
+    }
+
     /**
      * Return all the events in this series.
      *
-     * @return a list of events in this series.
+     * @return a list of events in this series, in ascending start time.
      */
     public List<Event> getEventList() {
-        return new ArrayList<>(seriesEvents);
+        List<Event> events = new ArrayList<>(seriesEvents);
+        if (hasRule()) {
+            LocalDateTime now = Clock.getTime();
+            events.addAll(range(0, listed(now), null, null, e -> shown(e, now)));
+            events.sort(Event::compareTo);
+        }
+        return events;
+    }
+
+    /**
+     * Return the occurrences worked out from the rule that have a status at a time, with their changes applied. The
+     * occurrences taken out of the rule or cancelled are not among them, nor those of a series without end that start
+     * more than HORIZON after the time.
+     *
+     * @param time the status of the occurrences.
+     * @param t    the time the status is worked out at.
+     * @return a read-only list of the occurrences in ascending start time; empty if this series has no rule.
+     */
+    public List<Event> getOccurrences(Time time, LocalDateTime t) {
+        if (!hasRule())
+            return Collections.emptyList();
+        int started = countBy(firstStart, t), ended = countBy(firstEnd, t);
+        switch (time) {
+            case PAST:
+                return range(0, ended, null, t, e -> !e.getEndDateTime().isAfter(t));
+            case ONGOING:
+                return range(ended, started, t.minus(longest), t,
+                        e -> !e.getStartDateTime().isAfter(t) && e.getEndDateTime().isAfter(t));
+            case FUTURE:
+                return range(started, listed(t), t, null, e -> e.getStartDateTime().isAfter(t) && shown(e, t));
+            default:
+                return range(0, listed(t), null, null, e -> shown(e, t));
+        }
+    }
+
+    /**
+     * Return the occurrences worked out from the rule that take any time within a period, with their changes applied.
+     * Those of a series without end are only listed up to HORIZON after the current time of the Clock.
+     *
+     * @param from the start of the period, inclusive.
+     * @param to   the end of the period, exclusive.
+     * @return a read-only list of the occurrences in ascending start time; empty if this series has no rule.
+     */
+    public List<Event> getOccurrences(LocalDateTime from, LocalDateTime to) {
+        if (!hasRule() || !to.isAfter(from))
+            return Collections.emptyList();
+        LocalDateTime now = Clock.getTime();
+        return range(countBy(firstEnd, from), Math.min(countBy(firstStart, to.minusNanos(1)), listed(now)),
+                from.minus(longest), to,
+                e -> e.getEndDateTime().isAfter(from) && e.getStartDateTime().isBefore(to) && shown(e, now));
+    }
+
+    /**
+     * Return the occurrence worked out from the rule with a given name.
+     *
+     * @param name the name of the occurrence, e.g. "standup 3", or the name it has been given instead.
+     * @return the occurrence; null if there is none, or it has been taken out of the rule or cancelled.
+     */
+    public Occurrence getOccurrence(String name) {
+        if (!hasRule())
+            return null;
+        TreeSet<Integer> renamed = byName.get(name);
+        if (renamed != null)
+            return occurrence(renamed.first());
+        if (!name.startsWith(eventName + " "))
+            return null;
+        String number = name.substring(eventName.length() + 1);
+        int index;
+        try {
+            index = Integer.parseInt(number) - 1;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        if (index < 0 || index >= count || taken.containsKey(index) || !number.equals(Integer.toString(index + 1)))
+            return null;
+        OccurrenceChange change = changes.get(index);
+        if (change != null && (change.isCancelled() || change.getName() != null))
+            return null;
+        try {
+            return occurrence(index);
+        } catch (DateTimeException | ArithmeticException e) {
+            // beyond the times that can be written
+            return null;
+        }
+    }
+
+    /**
+     * Return the first time after a given time when an occurrence worked out from the rule starts or ends, among the
+     * occurrences listed at that time.
+     *
+     * @param t the time.
+     * @return the time; null if no occurrence starts or ends after it.
+     */
+    public LocalDateTime nextBoundary(LocalDateTime t) {
+        if (!hasRule())
+            return null;
+        int started = countBy(firstStart, t), ended = countBy(firstEnd, t), listed = listed(t);
+        LocalDateTime next = started < listed ? firstStart.plus(period.multipliedBy(started)) : null;
+        if (ended < listed) {
+            LocalDateTime end = firstEnd.plus(period.multipliedBy(ended));
+            if (next == null || end.isBefore(next))
+                next = end;
+        }
+        // the occurrences given another time may be anywhere: those that have started by t end after it, and the
+        // first one that starts after t; the others start and end as the rule has it
+        for (TreeSet<Integer> indexes : byStart.subMap(t.minus(longest), true, t, true).values())
+            for (int i : indexes) {
+                LocalDateTime end = occurrence(i).getEndDateTime();
+                if (end.isAfter(t) && (next == null || end.isBefore(next)))
+                    next = end;
+            }
+        Map.Entry<LocalDateTime, TreeSet<Integer>> first = byStart.higherEntry(t);
+        if (first != null && shown(occurrence(first.getValue().first()), t)
+                && (next == null || first.getKey().isBefore(next)))
+            next = first.getKey();
+        return next;
+    }
+
+    /**
+     * Take an occurrence out of the rule, to be kept among the events of this series as a real event from now on. Its
+     * change, if any, is applied to it and is not kept any more.
+     *
+     * @param occurrence the occurrence of this series.
+     * @return the occurrence itself; the event it had already become if it was taken out before; null if it has been
+     * cancelled.
+     */
+    public Event take(Occurrence occurrence) {
+        int index = occurrence.getIndex();
+        if (taken.containsKey(index))
+            return taken.get(index);
+        OccurrenceChange change = changes.get(index);
+        if (change != null) {
+            if (change.isCancelled())
+                return null;
+            Event changed = occurrence(index);
+            occurrence.setName(changed.getName());
+            occurrence.setTime(changed.getEndDateTime(), changed.getStartDateTime());
+            removeChange(index);
+        }
+        taken.put(index, occurrence);
+        seriesEvents.add(occurrence);
+        return occurrence;
+    }
+
+    /**
+     * Cancel an occurrence that is still worked out from the rule.
+     *
+     * @param occurrence the occurrence of this series.
+     */
+    public void cancel(Occurrence occurrence) {
+        setChange(occurrence.getIndex(), OccurrenceChange.CANCELLED);
+    }
+
+    /**
+     * Give another name to an occurrence that is still worked out from the rule.
+     *
+     * @param occurrence the occurrence of this series.
+     * @param name       the new name.
+     */
+    public void rename(Occurrence occurrence, String name) {
+        int index = occurrence.getIndex();
+        change(index, changeOf(index).withName(name.equals(eventName + " " + (index + 1)) ? null : name));
+    }
+
+    /**
+     * Give another time to an occurrence that is still worked out from the rule.
+     *
+     * @param occurrence    the occurrence of this series.
+     * @param startDateTime the new start date and time.
+     * @param endDateTime   the new end date and time.
+     */
+    public void reschedule(Occurrence occurrence, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        int index = occurrence.getIndex();
+        Duration offset = period.multipliedBy(index);
+        boolean asRule = startDateTime.equals(firstStart.plus(offset)) && endDateTime.equals(firstEnd.plus(offset));
+        change(index, changeOf(index).withTime(asRule ? null : startDateTime, asRule ? null : endDateTime));
+    }
+
+    private OccurrenceChange changeOf(int index) {
+        return changes.getOrDefault(index, OccurrenceChange.NONE);
+    }
+
+    /**
+     * Keep the change of an occurrence, unless it is cancelled; a change back to the rule is not kept.
+     */
+    private void change(int index, OccurrenceChange change) {
+        if (changeOf(index).isCancelled())
+            return;
+        if (change.isNone())
+            removeChange(index);
+        else
+            setChange(index, change);
+    }
+
+    /**
+     * Return the number of positions i below count such that base + i * period is not after t.
+     */
+    private int countBy(LocalDateTime base, LocalDateTime t) {
+        if (t.isBefore(base))
+            return 0;
+        return (int) Math.min(count, Duration.between(base, t).dividedBy(period) + 1);
+    }
+
+    /**
+     * Return the number of occurrences listed at a time: all of them, or for a series without end those that start by
+     * HORIZON after the time.
+     */
+    private int listed(LocalDateTime t) {
+        return count == FOREVER ? countBy(firstStart, t.plus(HORIZON)) : count;
+    }
+
+    /**
+     * Return whether a changed occurrence is listed at a time, as listed() has the others.
+     */
+    private boolean shown(Event e, LocalDateTime t) {
+        return count != FOREVER || !e.getStartDateTime().isAfter(t.plus(HORIZON));
+    }
+
+    private Occurrence occurrence(int index) {
+        Duration offset = period.multipliedBy(index);
+        String name = eventName + " " + (index + 1);
+        LocalDateTime start = firstStart.plus(offset), end = firstEnd.plus(offset);
+        OccurrenceChange change = changes.get(index);
+        if (change != null) {
+            if (change.getName() != null)
+                name = change.getName();
+            if (change.getStartDateTime() != null) {
+                start = change.getStartDateTime();
+                end = change.getEndDateTime();
+            }
+        }
+        return new Occurrence(this, index, name, start, end);
+    }
+
+    /**
+     * Return the occurrences that have a change but are not cancelled and pass a filter, in ascending start time:
+     * those from one position to another that keep the time of the rule, and those given another time that start
+     * within a period.
+     *
+     * @param from  the first position.
+     * @param to    the position after the last.
+     * @param after the earliest start of those given another time; null for no limit.
+     * @param until the latest start of those given another time; null for no limit.
+     */
+    private List<Event> changed(int from, int to, LocalDateTime after, LocalDateTime until, Predicate<Event> filter) {
+        if (changes.isEmpty())
+            return Collections.emptyList();
+        List<Event> events = new ArrayList<>();
+        for (Map.Entry<Integer, OccurrenceChange> entry : changes.subMap(from, to).entrySet()) {
+            OccurrenceChange change = entry.getValue();
+            if (change.isCancelled() || change.getStartDateTime() != null)
+                continue;
+            Occurrence o = occurrence(entry.getKey());
+            if (filter.test(o))
+                events.add(o);
+        }
+        NavigableMap<LocalDateTime, TreeSet<Integer>> moved = byStart;
+        if (after != null)
+            moved = moved.tailMap(after, true);
+        if (until != null)
+            moved = moved.headMap(until, true);
+        for (TreeSet<Integer> indexes : moved.values())
+            for (int i : indexes) {
+                Occurrence o = occurrence(i);
+                if (filter.test(o))
+                    events.add(o);
+            }
+        events.sort(Event::compareTo);
+        return events;
+    }
+
+    /**
+     * Return the occurrences from one position to another that are neither taken out of the rule nor changed, merged
+     * with the changed occurrences that pass a filter wherever the change has moved them, as a list that works them out
+     * as they are read. The occurrences given another time are only looked for among those that start within a period,
+     * which must hold all of them that pass the filter.
+     */
+    private List<Event> range(int from, int to, LocalDateTime after, LocalDateTime until, Predicate<Event> filter) {
+        int last = Math.max(from, to);
+        List<Event> moved = changed(from, last, after, until, filter);
+        if (last == from && moved.isEmpty())
+            return Collections.emptyList();
+        return new Range(from, last, moved);
+    }
+
+    /**
+     * The list of range. The positions the rule skips and the places of the moved occurrences are found when it is
+     * made, so that an occurrence is found by its index with a binary search instead of going through those before it.
+     */
+    private final class Range extends AbstractList<Event> {
+        private final int from, last;
+        // the positions from from to last that are taken out of the rule or changed, in ascending order
+        private final int[] skipped;
+        private final List<Event> moved;
+        // the index in this list of each moved occurrence, in ascending order
+        private final int[] movedAt;
+
+        private Range(int from, int last, List<Event> moved) {
+            this.from = from;
+            this.last = last;
+            this.moved = moved;
+            TreeSet<Integer> out = new TreeSet<>(taken.subMap(from, last).keySet());
+            out.addAll(changes.subMap(from, last).keySet());
+            skipped = out.stream().mapToInt(Integer::intValue).toArray();
+            movedAt = new int[moved.size()];
+            for (int c = 0, lo = 0; c < movedAt.length; ++c) {
+                // the occurrences of the rule that come before it are those the iterator gives first
+                Event e = moved.get(c);
+                int hi = rules();
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (occurrence(position(mid)).compareTo(e) <= 0)
+                        lo = mid + 1;
+                    else
+                        hi = mid;
+                }
+                movedAt[c] = lo + c;
+            }
+        }
+
+        /**
+         * Return the number of the occurrences of the rule in the list.
+         */
+        private int rules() {
+            return last - from - skipped.length;
+        }
+
+        /**
+         * Return the position of the k-th occurrence of the rule in the list.
+         */
+        private int position(int k) {
+            // the first skipped position with more than k positions of the list before it
+            int lo = 0, hi = skipped.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (skipped[mid] - from - mid <= k)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return from + k + lo;
+        }
+
+        @Override
+        public int size() {
+            return rules() + moved.size();
+        }
+
+        @Override
+        public Event get(int i) {
+            if (i < 0 || i >= size())
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            int c = Arrays.binarySearch(movedAt, i);
+            return c >= 0 ? moved.get(c) : occurrence(position(i + c + 1));
+        }
+
+        @Override
+        public Iterator<Event> iterator() {
+            return new Iterator<Event>() {
+                private int skip = 0;
+                private int next = skip(from);
+                private Event rule = next < last ? occurrence(next) : null;
+                private int change = 0;
+
+                private int skip(int i) {
+                    while (skip < skipped.length && skipped[skip] == i) {
+                        ++skip;
+                        ++i;
+                    }
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return rule != null || change < moved.size();
+                }
+
+                @Override
+                public Event next() {
+                    if (rule != null && (change == moved.size() || rule.compareTo(moved.get(change)) <= 0)) {
+                        Event e = rule;
+                        next = skip(next + 1);
+                        rule = next < last ? occurrence(next) : null;
+                        return e;
+                    }
+                    if (change < moved.size())
+                        return moved.get(change++);
+                    throw new NoSuchElementException();
+                }
+            };
+        }
     }
 
     /**
@@ -73,20 +636,93 @@ public class EventSeries implements Serializable {
     }
 
     /**
-     * Return all the events in this series.
+     * Return the events kept in this series: those added to it, and the occurrences taken out of the rule.
      *
-     * @return a TreeSet of all the events in this series.
+     * @return a TreeSet of the events kept in this series.
      */
     public TreeSet<Event> getSeries() {
         return seriesEvents;
     }
 
     /**
-     * This method removes a given event from the series
+     * Return the name of the events of the rule.
+     *
+     * @return the name; null if this series has no rule.
+     */
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * Return the start date and time of the first occurrence of the rule.
+     *
+     * @return the start; null if this series has no rule.
+     */
+    public LocalDateTime getFirstStart() {
+        return firstStart;
+    }
+
+    /**
+     * Return the end date and time of the first occurrence of the rule.
+     *
+     * @return the end; null if this series has no rule.
+     */
+    public LocalDateTime getFirstEnd() {
+        return firstEnd;
+    }
+
+    /**
+     * Return the time between the starts of two occurrences of the rule.
+     *
+     * @return the period; null if this series has no rule.
+     */
+    public Duration getPeriod() {
+        return period;
+    }
+
+    /**
+     * Return the number of occurrences of the rule, including those taken out of it.
+     *
+     * @return the number; FOREVER for a series without end.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Return the occurrences taken out of the rule by their position, as the real events they have become.
+     *
+     * @return the map; null if this series has no rule.
+     */
+    public TreeMap<Integer, Event> getTaken() {
+        return taken;
+    }
+
+    /**
+     * Return the changes of the occurrences of the rule by their position: those cancelled, and those with another
+     * name or time. They are changed by setChange.
+     *
+     * @return a read-only view of the map; null if this series has no rule.
+     */
+    public SortedMap<Integer, OccurrenceChange> getChanges() {
+        return changes == null ? null : Collections.unmodifiableSortedMap(changes);
+    }
+
+    /**
+     * This method removes a given event from the series. An occurrence taken out of the rule is cancelled, so that it
+     * is not worked out again.
      * @param event the target event
      */
     public void removeEventFromSeries(Event event){
         seriesEvents.remove(event);
+        if (taken != null)
+            for (Iterator<Map.Entry<Integer, Event>> it = taken.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<Integer, Event> entry = it.next();
+                if (entry.getValue() == event) {
+                    setChange(entry.getKey(), OccurrenceChange.CANCELLED);
+                    it.remove();
+                }
+            }
     }
 
     /**
@@ -1,31 +1,62 @@
 package backend_system.entities;
 
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
- * A class contains all the message of in the system and is responsible for the manipulation of the messages.
+ * A class contains all the message of in the system and is responsible for the manipulation of the messages. Each user
+ * has a queue of the messages sent to it, so messages can be sent and received from any thread at once without
+ * waiting for each other. A session can subscribe to the messages of a user to be told as soon as one arrives.
  */
 public class Inboxes implements Serializable {
-    private Map<String, List<Message> > boxes = new HashMap<>();
+    private static final long serialVersionUID = 3266530558546794341L;
 
     /**
-     * This method send a message into the system so that other user may receive it.
+     * The fields of the serialized form, which still has the lists of messages that earlier versions kept.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("boxes", Map.class)
+    };
+
+    private transient ConcurrentHashMap<String, Queue<Message>> boxes = new ConcurrentHashMap<>();
+    private transient ConcurrentHashMap<String, List<Runnable>> listeners = new ConcurrentHashMap<>();
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        @SuppressWarnings("unchecked")
+        Map<String, List<Message>> saved = (Map<String, List<Message>>) fields.get("boxes", null);
+        boxes = new ConcurrentHashMap<>();
+        listeners = new ConcurrentHashMap<>();
+        if (saved != null)
+            for (Map.Entry<String, List<Message>> entry : saved.entrySet())
+                boxes.put(entry.getKey(), new ConcurrentLinkedQueue<>(entry.getValue()));
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        HashMap<String, List<Message>> saved = new HashMap<>();
+        for (Map.Entry<String, Queue<Message>> entry : boxes.entrySet())
+            if (!entry.getValue().isEmpty())
+                saved.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("boxes", saved);
+        out.writeFields();
+    }
+
+    /**
+     * This method send a message into the system so that other user may receive it. The sessions that subscribe to
+     * the receiver are told at once, on the thread that sends it.
      * @param msg the message to be sent
      */
     public void send(Message msg) {
         String receiver = msg.getReceiver();
-        if (boxes.containsKey(receiver)) {
-            List<Message> inbox = boxes.get(receiver);
-            inbox.add(msg);
-        } else {
-            List<Message> inbox = new ArrayList<>();
-            inbox.add(msg);
-            boxes.put(receiver, inbox);
-        }
+        boxes.computeIfAbsent(receiver, k -> new ConcurrentLinkedQueue<>()).add(msg);
+        List<Runnable> ls = listeners.get(receiver);
+        if (ls != null)
+            for (Runnable listener : ls)
+                listener.run();
     }
 
     /**
@@ -35,12 +66,66 @@ public class Inboxes implements Serializable {
      * messages have been sent to the target user.
      */
     public List<Message> receive(String user) {
-        if (boxes.containsKey(user)) {
-            List<Message> inbox = boxes.get(user), ms = new ArrayList<>(inbox);
-            inbox.clear();
+        return receive(user, Integer.MAX_VALUE);
+    }
+
+    /**
+     * This method takes at most the given number of the earliest messages sent to a given user out of its inbox.
+     * @param user the name of the user who attempts to receive messages
+     * @param max the largest number of messages to take
+     * @return an ArrayList containing the messages in the order they were sent; empty if there is none
+     */
+    public List<Message> receive(String user, int max) {
+        List<Message> ms = new ArrayList<>();
+        Queue<Message> inbox = boxes.get(user);
+        if (inbox == null)
             return ms;
-        } else {
-            return new ArrayList<>();
-        }
+        Message m;
+        while (ms.size() < max && (m = inbox.poll()) != null)
+            ms.add(m);
+        return ms;
+    }
+
+    /**
+     * This method returns the users who have messages that have not been received.
+     * @return the names of the users
+     */
+    public Set<String> getReceivers() {
+        Set<String> users = new HashSet<>();
+        for (Map.Entry<String, Queue<Message>> entry : boxes.entrySet())
+            if (!entry.getValue().isEmpty())
+                users.add(entry.getKey());
+        return users;
+    }
+
+    /**
+     * This method checks whether there are messages for a user that have not been received.
+     * @param user the name of the user
+     * @return true if there are
+     */
+    public boolean hasMessages(String user) {
+        Queue<Message> inbox = boxes.get(user);
+        return inbox != null && !inbox.isEmpty();
+    }
+
+    /**
+     * This method lets a listener be told whenever a message is sent to a user. The listener runs on the thread that
+     * sends the message, so it should only hand the work over to another thread.
+     * @param user the name of the user
+     * @param listener the listener
+     */
+    public void subscribe(String user, Runnable listener) {
+        listeners.computeIfAbsent(user, k -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    /**
+     * This method stops telling a listener added by subscribe.
+     * @param user the name of the user
+     * @param listener the listener
+     */
+    public void unsubscribe(String user, Runnable listener) {
+        List<Runnable> ls = listeners.get(user);
+        if (ls != null)
+            ls.remove(listener);
     }
 }
@@ -0,0 +1,49 @@
+package backend_system.entities;
+
+import java.time.LocalDateTime;
+
+/**
+ * The class Occurrence represents one event of a series that repeats by a rule. It is worked out from the rule of the
+ * series when the events of a period are asked for and is dropped afterwards. When it is deleted or given another
+ * name or time, the series keeps the change and applies it to the occurrence from then on. When a tag, memo or alert
+ * is attached to it, the calendar keeps it as a real event from then on.
+ */
+public class Occurrence extends Event {
+    private static final long serialVersionUID = -5207046383212398420L;
+
+    private final EventSeries series;
+    private final int index;
+
+    /**
+     * Create an occurrence of a series.
+     *
+     * @param series        the series that repeats by a rule.
+     * @param index         the position of this occurrence in the series, from 0.
+     * @param name          the name of this occurrence.
+     * @param startDateTime the start date and time of this occurrence.
+     * @param endDateTime   the end date and time of this occurrence.
+     */
+    Occurrence(EventSeries series, int index, String name, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        super(name, startDateTime, endDateTime);
+        this.series = series;
+        this.index = index;
+    }
+
+    /**
+     * Return the series this occurrence is worked out from.
+     *
+     * @return the series.
+     */
+    public EventSeries getEventSeries() {
+        return series;
+    }
+
+    /**
+     * Return the position of this occurrence in its series.
+     *
+     * @return the position, from 0.
+     */
+    public int getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,109 @@
+package backend_system.entities;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * The class OccurrenceChange represents how one occurrence of a series that repeats by a rule differs from the rule:
+ * it is cancelled, or it has another name or time. The series keeps it by the position of the occurrence, which is
+ * still worked out from the rule with the change applied, so the occurrence never has to become a real event.
+ */
+public class OccurrenceChange implements Serializable {
+    private static final long serialVersionUID = 2870411356349146305L;
+
+    /**
+     * The change of an occurrence that is cancelled.
+     */
+    public static final OccurrenceChange CANCELLED = new OccurrenceChange(true, null, null, null);
+
+    /**
+     * The change of an occurrence that is as the rule has it.
+     */
+    public static final OccurrenceChange NONE = new OccurrenceChange(false, null, null, null);
+
+    private final boolean cancelled;
+    private final String name;
+    private final LocalDateTime startDateTime;
+    private final LocalDateTime endDateTime;
+
+    /**
+     * Create a change of an occurrence.
+     *
+     * @param cancelled     whether the occurrence is cancelled.
+     * @param name          the name of the occurrence; null if it is as the rule has it.
+     * @param startDateTime the start date and time of the occurrence; null if the time is as the rule has it.
+     * @param endDateTime   the end date and time of the occurrence; null if the time is as the rule has it.
+     */
+    public OccurrenceChange(boolean cancelled, String name, LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        this.cancelled = cancelled;
+        this.name = name;
+        this.startDateTime = startDateTime;
+        this.endDateTime = endDateTime;
+    }
+
+    /**
+     * Return whether the occurrence is cancelled.
+     *
+     * @return true if it is.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Return the name of the occurrence.
+     *
+     * @return the name; null if it is as the rule has it.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Return the start date and time of the occurrence.
+     *
+     * @return the start; null if the time is as the rule has it.
+     */
+    public LocalDateTime getStartDateTime() {
+        return startDateTime;
+    }
+
+    /**
+     * Return the end date and time of the occurrence.
+     *
+     * @return the end; null if the time is as the rule has it.
+     */
+    public LocalDateTime getEndDateTime() {
+        return endDateTime;
+    }
+
+    /**
+     * Return this change with another name of the occurrence.
+     *
+     * @param name the name; null if it is as the rule has it.
+     * @return the change.
+     */
+    public OccurrenceChange withName(String name) {
+        return new OccurrenceChange(cancelled, name, startDateTime, endDateTime);
+    }
+
+    /**
+     * Return this change with another time of the occurrence.
+     *
+     * @param startDateTime the start date and time; null if the time is as the rule has it.
+     * @param endDateTime   the end date and time; null if the time is as the rule has it.
+     * @return the change.
+     */
+    public OccurrenceChange withTime(LocalDateTime startDateTime, LocalDateTime endDateTime) {
+        return new OccurrenceChange(cancelled, name, startDateTime, endDateTime);
+    }
+
+    /**
+     * Return whether the occurrence is as the rule has it.
+     *
+     * @return true if nothing is changed.
+     */
+    public boolean isNone() {
+        return !cancelled && name == null && startDateTime == null;
+    }
+}
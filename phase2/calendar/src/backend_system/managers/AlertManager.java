@@ -1,21 +1,47 @@
 package backend_system.managers;
 
 import backend_system.entities.Alert;
+import backend_system.entities.AlertRule;
 import clock.Clock;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TreeSet;
+import java.util.*;
 
 /**
- * A class contains all the alert created by the user the manipulates alerts.
+ * A class contains all the alert created by the user the manipulates alerts. An alert that goes off again and again is
+ * kept as one AlertRule, and its alerts, those to come and those that have gone off, are only made when they are asked
+ * for.
  */
 public class AlertManager implements Serializable {
+    private static final long serialVersionUID = 2002599146738209979L;
+
     private TreeSet<Alert> alst = new TreeSet<>();
     private TreeSet<Alert> history = new TreeSet<>();
+    private List<AlertRule> rules = new ArrayList<>();
+    private List<AlertRule> finished = new ArrayList<>();
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // the managers saved by earlier versions have every alert in alst
+        if (rules == null)
+            rules = new ArrayList<>();
+        if (finished == null)
+            finished = new ArrayList<>();
+    }
+
+    /**
+     * keep a rule with no alert left for the alerts that have gone off, if there are any
+     *
+     * @param rule the rule
+     */
+    private void finish(AlertRule rule) {
+        if (rule.pastAlerts().hasNext())
+            finished.add(rule);
+    }
 
     /**
      * create several frequency alert with given information
@@ -26,10 +52,58 @@ public class AlertManager implements Serializable {
      * @param temporalAmount the number of hours between two consecutive alerts
      */
     public void createFrequencyAlert(String name, LocalDateTime dt, LocalDateTime untilWhen, Duration temporalAmount) {
-        while (dt.isBefore(untilWhen)) {
-            createNormalAlert(name, dt);
-            dt = dt.plus(temporalAmount);
+        createFrequencyAlert(name, dt, untilWhen, temporalAmount, Clock.getTime());
+    }
+
+    /**
+     * create several frequency alert with given information as if they were created at the given time. Only the
+     * alerts after that time are kept.
+     *
+     * @param name           the name of the alert
+     * @param dt             the triggered time of the event
+     * @param untilWhen      the time when the last alert could possibly be triggered
+     * @param temporalAmount the number of hours between two consecutive alerts
+     * @param now            the time when the alerts are created
+     */
+    public void createFrequencyAlert(String name, LocalDateTime dt, LocalDateTime untilWhen, Duration temporalAmount,
+                                     LocalDateTime now) {
+        if (!dt.isBefore(untilWhen))
+            return;
+        AlertRule rule = new AlertRule(name, dt, untilWhen, temporalAmount);
+        if (!now.isBefore(dt)) {
+            System.out.println("The alert time should be in the future.");
+            rule.passTo(now);
         }
+        if (!rule.isOver())
+            rules.add(rule);
+    }
+
+    /**
+     * add a rule of alerts read back from a file
+     *
+     * @param rule the rule
+     */
+    public void addAlertRule(AlertRule rule) {
+        if (!rule.isOver())
+            rules.add(rule);
+    }
+
+    /**
+     * show the rules of the alerts that go off again and again
+     *
+     * @return a list of AlertRule
+     */
+    public List<AlertRule> getAlertRules() {
+        return rules;
+    }
+
+    /**
+     * show the alerts that go off only once
+     *
+     * @return a list of Alert
+     */
+    public List<Alert> getSingleAlerts() {
+        return new ArrayList<>(alst);
     }
 
     /**
@@ -38,7 +112,12 @@ public class AlertManager implements Serializable {
      * @return a list of Alert
      */
     public List<Alert> getPastAlertList() {
-        return new ArrayList(this.history);
+        TreeSet<Alert> past = new TreeSet<>(this.history);
+        for (List<AlertRule> list : Arrays.asList(rules, finished))
+            for (AlertRule rule : list)
+                for (Iterator<Alert> it = rule.pastAlerts(); it.hasNext(); )
+                    past.add(it.next());
+        return new ArrayList<>(past);
     }
 
     /**
@@ -47,7 +126,56 @@ public class AlertManager implements Serializable {
      * @return a list of Alert
      */
     public ArrayList<Alert> getAlertList() {
-        return new ArrayList<>(this.alst);
+        return getAlertList(LocalDateTime.MIN, Integer.MAX_VALUE);
+    }
+
+    /**
+     * show a page of the alerts created, in the order they go off
+     *
+     * @param from the time of the first alert on the page
+     * @param max  the largest number of alerts on the page
+     * @return a list of Alert
+     */
+    public ArrayList<Alert> getAlertList(LocalDateTime from, int max) {
+        ArrayList<Alert> page = new ArrayList<>();
+        for (Iterator<Alert> it = alerts(from); it.hasNext() && page.size() < max; )
+            page.add(it.next());
+        return page;
+    }
+
+    /**
+     * go through the alerts at or after the given time in the order they go off, making the alerts of the rules one
+     * by one as they are asked for
+     *
+     * @param from the time
+     * @return an iterator of Alert
+     */
+    public Iterator<Alert> alerts(LocalDateTime from) {
+        PriorityQueue<Map.Entry<Alert, Iterator<Alert>>> heads =
+                new PriorityQueue<>(Comparator.comparing(Map.Entry::getKey));
+        List<Iterator<Alert>> sources = new ArrayList<>();
+        sources.add(alst.tailSet(new Alert("", from), true).iterator());
+        for (AlertRule rule : rules)
+            sources.add(rule.iterator(from));
+        for (Iterator<Alert> it : sources)
+            if (it.hasNext())
+                heads.add(new AbstractMap.SimpleEntry<>(it.next(), it));
+        return new Iterator<Alert>() {
+            @Override
+            public boolean hasNext() {
+                return !heads.isEmpty();
+            }
+
+            @Override
+            public Alert next() {
+                Map.Entry<Alert, Iterator<Alert>> head = heads.poll();
+                if (head == null)
+                    throw new NoSuchElementException();
+                if (head.getValue().hasNext())
+                    heads.add(new AbstractMap.SimpleEntry<>(head.getValue().next(), head.getValue()));
+                return head.getKey();
+            }
+        };
     }
 
     /**
@@ -57,20 +185,74 @@ public class AlertManager implements Serializable {
      * @param dt   the triggered time of the alert
      */
     public void createNormalAlert(String name, LocalDateTime dt) {
-        if (Clock.getTime().isBefore(dt)) {
+        createNormalAlert(name, dt, Clock.getTime());
+    }
+
+    /**
+     * create an alert wich given information as if it were created at the given time
+     *
+     * @param name the name of the alert
+     * @param dt   the triggered time of the alert
+     * @param now  the time when the alert is created
+     */
+    public void createNormalAlert(String name, LocalDateTime dt, LocalDateTime now) {
+        if (now.isBefore(dt)) {
             this.alst.add(new Alert(name, dt));
         } else {
             System.out.println("The alert time should be in the future.");
         }
     }
 
+    /**
+     * check whether the given alert is one of the alerts created
+     *
+     * @param a the alert
+     * @return true if it is
+     */
+    public boolean hasAlert(Alert a) {
+        if (a.equals(alst.ceiling(a)))
+            return true;
+        for (AlertRule rule : rules)
+            if (rule.contains(a))
+                return true;
+        return false;
+    }
+
     /**
      * remove the given alert
      *
      * @param a the alert to be removed
+     * @return true if removed
+     */
+    public boolean deleteAlert(Alert a) {
+        if (a.equals(alst.ceiling(a)))
+            return alst.remove(a);
+        for (AlertRule rule : rules) {
+            if (rule.getAlertName().equals(a.getAlertName()) && rule.skip(a.getAlertDateTime())) {
+                if (rule.isOver()) {
+                    rules.remove(rule);
+                    finish(rule);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * change the message and the triggered time of the given alert. An alert of a rule is taken out of the rule and
+     * kept by itself.
+     *
+     * @param a    the alert to be changed
+     * @param name the new message
+     * @param dt   the new triggered time
      */
-    public void deleteAlert(Alert a) {
-        alst.remove(a);
+    public void editAlert(Alert a, String name, LocalDateTime dt) {
+        boolean found = deleteAlert(a);
+        a.setAlertName(name);
+        a.setAlertDateTime(dt);
+        if (found)
+            alst.add(a);
     }
 
     /**
@@ -84,5 +266,18 @@ public class AlertManager implements Serializable {
             else
                 break;
         }
+        for (Iterator<AlertRule> it = rules.iterator(); it.hasNext(); ) {
+            AlertRule rule = it.next();
+            for (LocalDateTime t = rule.first(); t != null; t = rule.first()) {
+                Alert a = new Alert(rule.getAlertName(), t);
+                if (!a.ring())
+                    break;
+                rule.goOff(t);
+            }
+            if (rule.isOver()) {
+                it.remove();
+                finish(rule);
+            }
+        }
     }
 }
@@ -0,0 +1,318 @@
+package backend_system.managers;
+
+import backend_system.entities.Event;
+import backend_system.entities.Memo;
+import backend_system.entities.Note;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
+
+/**
+ * A subclass of NoteManager contains all the Memo and manipulates Memo. It keeps an inverted index from each word to
+ * the memos that contain it, so that memos are searched by their words and ranked by how well they match, without
+ * going through all of them.
+ */
+public class MemoManager extends NoteManager {
+    private static final long serialVersionUID = 3018829567409826245L;
+
+    /*
+     * the constants of the Okapi BM25 ranking
+     */
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    /**
+     * A memo in the index, with the words of its text in order.
+     */
+    private static final class Doc {
+        private final String text;
+        private final String[] words;
+
+        private Doc(String text) {
+            this.text = text;
+            words = tokenize(text).toArray(new String[0]);
+        }
+    }
+
+    /**
+     * The numbers over a set of memos that the scores of a query are worked out from: how many memos there are, how
+     * many words they have in all, and how many of them have each word of the query.
+     */
+    public static final class Corpus {
+        private long memos;
+        private long words;
+        private final HashMap<String, Long> memosWith = new HashMap<>();
+
+        /**
+         * add the memos counted by another Corpus, for the same query, to this one
+         *
+         * @param other the other Corpus
+         * @return this Corpus
+         */
+        public Corpus add(Corpus other) {
+            memos += other.memos;
+            words += other.words;
+            for (Map.Entry<String, Long> entry : other.memosWith.entrySet())
+                memosWith.merge(entry.getKey(), entry.getValue(), Long::sum);
+            return this;
+        }
+    }
+
+    private transient HashMap<String, Doc> docs;
+    private transient HashMap<String, HashMap<Doc, Integer>> postings;
+    private transient long totalWords;
+
+    /**
+     * create a new MemoManager
+     */
+    public MemoManager() {
+        super();
+        docs = new HashMap<>();
+        postings = new HashMap<>();
+    }
+
+    /**
+     * create a MemoManager with the given memos
+     *
+     * @param notes    the events of each memo
+     * @param noteList the memos in the order they were created
+     */
+    public MemoManager(HashMap<Note, List<Event>> notes, List<Note> noteList) {
+        super(notes, noteList);
+        reindex();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        reindex();
+    }
+
+    private void reindex() {
+        docs = new HashMap<>();
+        postings = new HashMap<>();
+        totalWords = 0;
+        for (Note note : getNotes().keySet())
+            index(note.getNote());
+    }
+
+    /**
+     * split a text into lower-case words of letters and digits
+     *
+     * @param text the text
+     * @return a list of words in the order they appear
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); ++i) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private void index(String text) {
+        if (docs.containsKey(text))
+            return;
+        Doc doc = new Doc(text);
+        docs.put(text, doc);
+        totalWords += doc.words.length;
+        for (String word : doc.words)
+            postings.computeIfAbsent(word, k -> new HashMap<>()).merge(doc, 1, Integer::sum);
+    }
+
+    private void unindex(String text) {
+        Doc doc = docs.remove(text);
+        if (doc == null)
+            return;
+        totalWords -= doc.words.length;
+        for (String word : doc.words) {
+            HashMap<Doc, Integer> posting = postings.get(word);
+            if (posting != null && posting.remove(doc) != null && posting.isEmpty())
+                postings.remove(word);
+        }
+    }
+
+    /**
+     * bring the index of a memo in line with whether the memo is still in this manager
+     */
+    private void sync(Note note) {
+        if (getNotes().containsKey(note))
+            index(note.getNote());
+        else
+            unindex(note.getNote());
+    }
+
+    @Override
+    public void addNotedListOfEvents(Note note, List<Event> events) {
+        super.addNotedListOfEvents(note, events);
+        sync(note);
+    }
+
+    @Override
+    public void addNotedEvent(Note note, Event event) {
+        super.addNotedEvent(note, event);
+        sync(note);
+    }
+
+    @Override
+    public void deleteNoteFromEvent(Event event, Note note) {
+        super.deleteNoteFromEvent(event, note);
+        sync(note);
+    }
+
+    @Override
+    public List<Event> deleteEntireNote(Note note) {
+        List<Event> events = super.deleteEntireNote(note);
+        sync(note);
+        return events;
+    }
+
+    @Override
+    public List<Event> editEntireNote(Note note, Note newNote) {
+        List<Event> events = super.editEntireNote(note, newNote);
+        sync(note);
+        return events;
+    }
+
+    /**
+     * search the memos for a query. Every word of the query must be in a memo, and the words of a part of the query
+     * in double quotes must also be next to each other in that order. The case of the letters does not matter.
+     *
+     * @param query the query, such as: lunch "room 204"
+     * @return a list of Memo, the best match first
+     */
+    public List<Memo> searchMemo(String query) {
+        return new ArrayList<>(rankMemo(query).keySet());
+    }
+
+    /**
+     * count the memos of this manager for a query, so that they can be ranked together with the memos of other
+     * managers
+     *
+     * @param query the query
+     * @return a Corpus of the memos of this manager
+     */
+    public Corpus count(String query) {
+        Corpus corpus = new Corpus();
+        corpus.memos = docs.size();
+        corpus.words = totalWords;
+        for (String word : tokenize(query)) {
+            HashMap<Doc, Integer> posting = postings.get(word);
+            corpus.memosWith.put(word, posting == null ? 0L : posting.size());
+        }
+        return corpus;
+    }
+
+    /**
+     * search the memos for a query as searchMemo does, with the score of each memo
+     *
+     * @param query the query
+     * @return a map from each Memo to its score, the best match first
+     */
+    public LinkedHashMap<Memo, Double> rankMemo(String query) {
+        return rankMemo(query, count(query));
+    }
+
+    /**
+     * search the memos for a query as searchMemo does, with the score of each memo worked out from the numbers of a
+     * Corpus. The scores of the memos of different managers can be compared only when they are worked out from the
+     * same Corpus, which adds up what count gives for each of the managers.
+     *
+     * @param query  the query
+     * @param corpus the memos counted for the query, including those of this manager
+     * @return a map from each Memo to its score, the best match first
+     */
+    public LinkedHashMap<Memo, Double> rankMemo(String query, Corpus corpus) {
+        LinkedHashMap<Memo, Double> result = new LinkedHashMap<>();
+        List<List<String>> phrases = parse(query);
+        Set<String> words = new HashSet<>();
+        for (List<String> phrase : phrases)
+            words.addAll(phrase);
+        if (words.isEmpty())
+            return result;
+
+        // start from the rarest word, so that the fewest memos are checked
+        List<String> order = new ArrayList<>();
+        for (String word : words) {
+            if (!postings.containsKey(word))
+                return result;
+            order.add(word);
+        }
+        order.sort(Comparator.comparingInt(word -> postings.get(word).size()));
+        List<HashMap<Doc, Integer>> lists = new ArrayList<>();
+        for (String word : order)
+            lists.add(postings.get(word));
+
+        double avgLength = corpus.memos == 0 ? 1 : Math.max(1, (double) corpus.words / corpus.memos);
+        double[] idf = new double[lists.size()];
+        for (int i = 0; i < idf.length; ++i) {
+            double n = Math.max(lists.get(i).size(), corpus.memosWith.getOrDefault(order.get(i), 0L));
+            idf[i] = Math.log(1 + (Math.max(corpus.memos, docs.size()) - n + 0.5) / (n + 0.5));
+        }
+
+        List<Doc> found = new ArrayList<>();
+        Map<Doc, Double> scores = new HashMap<>();
+        candidates:
+        for (Doc doc : lists.get(0).keySet()) {
+            double score = 0;
+            double norm = K1 * (1 - B + B * doc.words.length / avgLength);
+            for (int i = 0; i < lists.size(); ++i) {
+                Integer tf = lists.get(i).get(doc);
+                if (tf == null)
+                    continue candidates;
+                score += idf[i] * tf * (K1 + 1) / (tf + norm);
+            }
+            for (List<String> phrase : phrases)
+                if (phrase.size() > 1 && !contains(doc.words, phrase))
+                    continue candidates;
+            found.add(doc);
+            scores.put(doc, score);
+        }
+        found.sort((d, e) -> {
+            int cmp = Double.compare(scores.get(e), scores.get(d));
+            return cmp == 0 ? d.text.compareTo(e.text) : cmp;
+        });
+
+        for (Doc doc : found)
+            result.put(new Memo(doc.text), scores.get(doc));
+        return result;
+    }
+
+    /**
+     * split a query into its parts: each part in double quotes is one phrase, and each other word is a phrase by
+     * itself
+     */
+    private static List<List<String>> parse(String query) {
+        List<List<String>> phrases = new ArrayList<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; ++i) {
+            if (i % 2 == 1) {
+                List<String> phrase = tokenize(parts[i]);
+                if (!phrase.isEmpty())
+                    phrases.add(phrase);
+            } else {
+                for (String word : tokenize(parts[i]))
+                    phrases.add(Collections.singletonList(word));
+            }
+        }
+        return phrases;
+    }
+
+    private static boolean contains(String[] words, List<String> phrase) {
+        outer:
+        for (int i = 0; i + phrase.size() <= words.length; ++i) {
+            for (int j = 0; j < phrase.size(); ++j)
+                if (!words[i + j].equals(phrase.get(j)))
+                    continue outer;
+            return true;
+        }
+        return false;
+    }
+}
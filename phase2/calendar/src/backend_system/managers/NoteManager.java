@@ -12,6 +12,7 @@ import java.util.List;
  * a class contains all the Note and manipulates Note
  */
 public class NoteManager implements Serializable {
+    private static final long serialVersionUID = -723895069666665168L;
 
     private HashMap<Note, List<Event>> notes;
     private List<Note> noteList;
@@ -66,11 +67,23 @@ public class NoteManager implements Serializable {
             l.add(event);
             notes.put(note, l);
             noteList.add(note);
-        }else if (!events.contains(event)) {
+        }else if (!hasNotedEvent(note, event)) {
             events.add(event);
         }
     }
 
+    /**
+     * check whether a given event already has a given note
+     *
+     * @param note  the note
+     * @param event the event
+     * @return true if the event is among the events of the note
+     */
+    protected boolean hasNotedEvent(Note note, Event event) {
+        List<Event> events = notes.get(note);
+        return events != null && events.contains(event);
+    }
+
     /**
      * return the HashMap with the relation of Note and List of Event
      *
@@ -3,33 +3,165 @@ package backend_system.managers;
 import backend_system.entities.Event;
 import backend_system.entities.Note;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.*;
 
 /**
- * A subclass of NoteManager contains all the Tag and manipulates Tag.
+ * A subclass of NoteManager contains all the Tag and manipulates Tag. It keeps an index from the text of each tag to
+ * the events with that tag, and from the lower-case text to the texts, so that tags are looked up by their text
+ * directly instead of by going through all of them.
  */
 public class TagManager extends NoteManager {
+    private static final long serialVersionUID = -3845930218234306142L;
 
-    private Note searchThroughHashMap(String note) {
-        for (Note key : getNotes().keySet()) {
-            if (key.toString().equals(note)) {
-                return key;
-            }
-        }
-        return null;
+    private transient TreeMap<String, Set<Event>> byText;
+    private transient TreeMap<String, Set<String>> byFoldedText;
+
+    /**
+     * create a new TagManager
+     */
+    public TagManager() {
+        super();
+        byText = new TreeMap<>();
+        byFoldedText = new TreeMap<>();
+    }
+
+    /**
+     * create a TagManager with the given tags
+     *
+     * @param notes    the events of each tag
+     * @param noteList the tags in the order they were created
+     */
+    public TagManager(HashMap<Note, List<Event>> notes, List<Note> noteList) {
+        super(notes, noteList);
+        reindex();
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        reindex();
+    }
+
+    private void reindex() {
+        byText = new TreeMap<>();
+        byFoldedText = new TreeMap<>();
+        for (Map.Entry<Note, List<Event>> entry : getNotes().entrySet())
+            for (Event event : entry.getValue())
+                index(entry.getKey().getNote(), event);
+    }
+
+    private static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private void index(String text, Event event) {
+        if (byText.computeIfAbsent(text, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(event))
+            byFoldedText.computeIfAbsent(fold(text), k -> new HashSet<>()).add(text);
+    }
+
+    private void unindex(String text, Event event) {
+        Set<Event> events = byText.get(text);
+        if (events != null && events.remove(event) && events.isEmpty())
+            unindex(text);
+    }
+
+    private void unindex(String text) {
+        byText.remove(text);
+        Set<String> texts = byFoldedText.get(fold(text));
+        if (texts != null && texts.remove(text) && texts.isEmpty())
+            byFoldedText.remove(fold(text));
+    }
+
+    @Override
+    public void addNotedListOfEvents(Note note, List<Event> events) {
+        super.addNotedListOfEvents(note, events);
+        for (Event event : events)
+            index(note.getNote(), event);
+    }
+
+    @Override
+    public void addNotedEvent(Note note, Event event) {
+        super.addNotedEvent(note, event);
+        index(note.getNote(), event);
+    }
+
+    @Override
+    protected boolean hasNotedEvent(Note note, Event event) {
+        Set<Event> events = byText.get(note.getNote());
+        return events != null && events.contains(event);
+    }
+
+    @Override
+    public void deleteNoteFromEvent(Event event, Note note) {
+        super.deleteNoteFromEvent(event, note);
+        unindex(note.getNote(), event);
+    }
+
+    @Override
+    public List<Event> deleteEntireNote(Note note) {
+        List<Event> events = super.deleteEntireNote(note);
+        unindex(note.getNote());
+        return events;
+    }
+
+    @Override
+    public List<Event> editEntireNote(Note note, Note newNote) {
+        List<Event> events = super.editEntireNote(note, newNote);
+        if (!getNotes().containsKey(note))
+            unindex(note.getNote());
+        return events;
     }
 
     /**
      * show all the events with the given tag
      *
      * @param tag the target tag
-     * @return a list of Event
+     * @return a list of Event in ascending start time, or null if there is no such tag
      */
     public List<Event> searchEventByTag(String tag) {
-        Note searchResult = searchThroughHashMap(tag);
-        if (searchResult != null) {
-            return getNotes().get(searchResult);
+        Set<Event> events = byText.get(tag);
+        return events == null ? null : sorted(events);
+    }
+
+    /**
+     * show all the events with a tag that matches the given text
+     *
+     * @param tag        the target text
+     * @param ignoreCase true if the case of the letters does not matter
+     * @param prefix     true if the tags that start with the text also match
+     * @return a list of Event in ascending start time
+     */
+    public List<Event> searchEventByTag(String tag, boolean ignoreCase, boolean prefix) {
+        Set<Event> events = Collections.newSetFromMap(new IdentityHashMap<>());
+        if (ignoreCase) {
+            for (Set<String> texts : matches(byFoldedText, fold(tag), prefix))
+                for (String text : texts)
+                    events.addAll(byText.get(text));
+        } else {
+            for (Set<Event> es : matches(byText, tag, prefix))
+                events.addAll(es);
         }
-        return null;
+        return sorted(events);
+    }
+
+    private static <V> Collection<V> matches(TreeMap<String, V> map, String key, boolean prefix) {
+        if (!prefix) {
+            V v = map.get(key);
+            return v == null ? Collections.emptyList() : Collections.singletonList(v);
+        }
+        List<V> result = new ArrayList<>();
+        for (Map.Entry<String, V> entry : map.tailMap(key, true).entrySet()) {
+            if (!entry.getKey().startsWith(key))
+                break;
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    private static List<Event> sorted(Set<Event> events) {
+        List<Event> result = new ArrayList<>(events);
+        result.sort(Event::compareTo);
+        return result;
     }
 }
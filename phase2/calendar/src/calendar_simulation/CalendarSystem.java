@@ -6,13 +6,21 @@ import backend_system.entities.*;
 import backend_system.User;
 import backend_system.UserSystem;
 import clock.Time;
+import metrics.Metrics;
+import metrics.SearchEvent;
+import metrics.Timer;
+import metrics.ViewEvent;
 
+import java.io.File;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -20,6 +28,11 @@ import java.util.stream.Collectors;
  * in this calender simulation.
  */
 public class CalendarSystem {
+    /**
+     * The number of events of a series that goes on without end.
+     */
+    public static final int FOREVER = EventSeries.FOREVER;
+
 
     private User currentUser = null;
     private UserSystem userSystem = new UserSystem();
@@ -36,6 +49,66 @@ public class CalendarSystem {
     private Calendar currentCalendar;
 
     private static volatile CalendarSystem instance = null;
+    // the largest number of alerts shown for an event; an alert that repeats can have far more
+    private static final int ALERT_PAGE = 500;
+    // the timers of the operations below that do real work, one for each, in the group METRICS; the getters that
+    // only read a field are not timed; see startMetricsLog
+    private static final String METRICS = "CalendarSystem";
+    private static final Timer LOGIN = Metrics.timer(METRICS, "login"),
+            LOGOFF = Metrics.timer(METRICS, "logoff"),
+            SIMULATE = Metrics.timer(METRICS, "simulate"),
+            ACCOUNT_EXISTS = Metrics.timer(METRICS, "accountExists"),
+            CREATE_ACCOUNT = Metrics.timer(METRICS, "createAccount"),
+            GET_CURRENT_MEMO_LIST_INFO = Metrics.timer(METRICS, "getCurrentMemoListInfo"),
+            GET_CURRENT_ALERT_LIST_INFO = Metrics.timer(METRICS, "getCurrentAlertListInfo"),
+            GET_CURRENT_TAG_LIST_INFO = Metrics.timer(METRICS, "getCurrentTagListInfo"),
+            CHOOSE_WHAT_EVENTS_TO_DISPLAY = Metrics.timer(METRICS, "chooseWhatEventsToDisplay"),
+            GET_CURRENT_MEMO_INFO = Metrics.timer(METRICS, "getCurrentMemoInfo"),
+            VIEW_ALL_MEMOS = Metrics.timer(METRICS, "viewAllMemos"),
+            CREATE_EVENT = Metrics.timer(METRICS, "createEvent"),
+            CREATE_SERIES = Metrics.timer(METRICS, "createSeries"),
+            CREATE_CALENDAR = Metrics.timer(METRICS, "createCalendar"),
+            SELECT_EVENT = Metrics.timer(METRICS, "selectEvent"),
+            SELECT_MEMO = Metrics.timer(METRICS, "selectMemo"),
+            SELECT_ALERT = Metrics.timer(METRICS, "selectAlert"),
+            SELECT_TAG = Metrics.timer(METRICS, "selectTag"),
+            SEARCH_BY_NAME = Metrics.timer(METRICS, "searchByName"),
+            SEARCH_BY_SERIES_NAME = Metrics.timer(METRICS, "searchBySeriesName"),
+            SEARCH_BY_TAG = Metrics.timer(METRICS, "searchByTag"),
+            SEARCH_BY_DATE = Metrics.timer(METRICS, "searchByDate"),
+            ADD_TAG_TO_EVENT = Metrics.timer(METRICS, "addTagToEvent"),
+            ADD_NEW_MEMO = Metrics.timer(METRICS, "addNewMemo"),
+            ADD_INTO_SERIES = Metrics.timer(METRICS, "addIntoSeries"),
+            SET_ALERT = Metrics.timer(METRICS, "setAlert"),
+            SET_REPEATING_ALERT = Metrics.timer(METRICS, "setRepeatingAlert"),
+            HAS_EVENT_WITH_SAME_NAME = Metrics.timer(METRICS, "hasEventWithSameName"),
+            GET_CALENDAR_NAMES_OF_CURRENT_USER = Metrics.timer(METRICS, "getCalendarNamesOfCurrentUser"),
+            UPDATE_CURRENT_CALENDAR = Metrics.timer(METRICS, "updateCurrentCalendar"),
+            GET_CURRENT_EVENT_LIST_NAME = Metrics.timer(METRICS, "getCurrentEventListName"),
+            GET_ALL_EVENT_SERIES_NAMES = Metrics.timer(METRICS, "getAllEventSeriesNames"),
+            SELECT_TAG_BY_NAME = Metrics.timer(METRICS, "selectTagByName"),
+            EDIT_EVENT_TIME = Metrics.timer(METRICS, "editEventTime"),
+            EDIT_EVENT_NAME = Metrics.timer(METRICS, "editEventName"),
+            DELETE_CURRENT_EVENT = Metrics.timer(METRICS, "deleteCurrentEvent"),
+            DELETE_CURRENT_MEMO = Metrics.timer(METRICS, "deleteCurrentMemo"),
+            DELETE_CURRENT_TAG = Metrics.timer(METRICS, "deleteCurrentTag"),
+            EDIT_CURRENT_MEMO = Metrics.timer(METRICS, "editCurrentMemo"),
+            EDIT_CURRENT_TAG = Metrics.timer(METRICS, "editCurrentTag"),
+            EDIT_CURRENT_ALERT = Metrics.timer(METRICS, "editCurrentAlert"),
+            DELETE_CURRENT_ALERT = Metrics.timer(METRICS, "deleteCurrentAlert"),
+            GET_CONTENT_OF_ALL_TAGS = Metrics.timer(METRICS, "getContentOfAllTags"),
+            GET_CONTENT_OF_ALL_MEMOS = Metrics.timer(METRICS, "getContentOfAllMemos"),
+            SELECT_SERIES = Metrics.timer(METRICS, "selectSeries"),
+            EDIT_CURRENT_SERIES = Metrics.timer(METRICS, "editCurrentSeries"),
+            DELETE_CURRENT_SERIES = Metrics.timer(METRICS, "deleteCurrentSeries"),
+            SEND_MESSAGE = Metrics.timer(METRICS, "sendMessage"),
+            RECEIVE_MESSAGES = Metrics.timer(METRICS, "receiveMessages"),
+            ADD_USER_TO_EVENT = Metrics.timer(METRICS, "addUserToEvent"),
+            GET_NEXT_ALERT = Metrics.timer(METRICS, "getNextAlert"),
+            GET_CURRENT_TAG_INFO = Metrics.timer(METRICS, "getCurrentTagInfo"),
+            GET_EVENTS_OF_CURRENT_MEMO = Metrics.timer(METRICS, "getEventsOfCurrentMemo"),
+            GET_CURRENT_SERIES_NAME = Metrics.timer(METRICS, "getCurrentSeriesName"),
+            GET_EVENTS_OF_CURRENT_TAG = Metrics.timer(METRICS, "getEventsOfCurrentTag");
 
     private CalendarSystem() throws IOException, ClassNotFoundException {
     }
@@ -73,11 +146,13 @@ public class CalendarSystem {
      * @throws ClassNotFoundException an exception in serializable
      */
     public int login(String username, String password) throws IOException, ClassNotFoundException{
-        int result = userSystem.login(username, password);
-        if(result == 1){
-            currentUser = userSystem.getUser();
-        }
-        return result;
+        return LOGIN.<Integer, IOException, ClassNotFoundException>time(() -> {
+            int result = userSystem.login(username, password);
+            if(result == 1){
+                currentUser = userSystem.getUser();
+            }
+            return result;
+        });
     }
 
     /**
@@ -97,14 +172,94 @@ public class CalendarSystem {
      *          -1 if unsuccessful
      */
     public int logoff() {
-        try {
-            userSystem.logoff();
-        } catch (IOException e) {
-            return -1;
-        }
-        currentUser = null;
-        currentCalendar = null;
-        return 1;
+        return LOGOFF.time(() -> {
+            try {
+                userSystem.logoff();
+            } catch (IOException e) {
+                return -1;
+            }
+            currentUser = null;
+            currentCalendar = null;
+            return 1;
+        });
+    }
+
+    /**
+     * Start saving the data in the background whenever it has changed.
+     *
+     * @param interval        the time between two saves
+     * @param captureExecutor the executor that runs on the UI thread; the data is copied there and written to the disk
+     *                        on a background thread
+     */
+    public void startCheckpoints(Duration interval, Executor captureExecutor) {
+        userSystem.startCheckpoints(interval, captureExecutor);
+    }
+
+    /**
+     * Stop saving the data in the background and wait until the pending saves are written.
+     */
+    public void stopCheckpoints() {
+        userSystem.stopCheckpoints();
+    }
+
+    /**
+     * Start appending the count, the errors and the latencies of the operations to usr/metrics.log. The same numbers
+     * are shown through JMX under calendar:type=CalendarSystem all the time.
+     *
+     * @param interval the time between two reports
+     */
+    public void startMetricsLog(Duration interval) {
+        Metrics.startLog(new File("usr/metrics.log"), interval);
+    }
+
+    /**
+     * Stop appending to usr/metrics.log and append the numbers one last time.
+     */
+    public void stopMetricsLog() {
+        Metrics.stopLog();
+        Metrics.log(new File("usr/metrics.log"));
+    }
+
+    /**
+     * Start handing over the alerts of the logged in user as they go off.
+     *
+     * @param deliverExecutor the executor that runs on the UI thread
+     * @param receiver        the receiver of the string representations of the alerts that go off at the same time,
+     *                        called through the executor
+     */
+    public void startAlerts(Executor deliverExecutor, Consumer<List<String>> receiver) {
+        userSystem.startAlerts(deliverExecutor, alerts -> {
+            List<String> info = new ArrayList<>();
+            for (Alert alert : alerts)
+                info.add(alert.toString());
+            receiver.accept(info);
+        });
+    }
+
+    /**
+     * Stop handing over the alerts.
+     */
+    public void stopAlerts() {
+        userSystem.stopAlerts();
+    }
+
+    /**
+     * Fast-forward the time to the given time, stopping at every time in between when an alert goes off or an event
+     * starts or ends, in order. It should be called on the UI thread.
+     *
+     * @param until    the time to stop at
+     * @param receiver the receiver of the string representations of the alerts that go off at the same time
+     * @return the number of times stopped at
+     */
+    public int simulate(LocalDateTime until, Consumer<List<String>> receiver) {
+        return SIMULATE.time(() -> {
+            return userSystem.simulate(until, alerts -> {
+                List<String> info = new ArrayList<>();
+                for (Alert alert : alerts)
+                    info.add(alert.toString());
+                receiver.accept(info);
+            });
+        });
     }
 
     /**
@@ -114,7 +269,7 @@ public class CalendarSystem {
      * @return a boolean
      */
     public boolean accountExists(String username) {
-        return userSystem.userExists(username);
+        return ACCOUNT_EXISTS.time(() -> userSystem.userExists(username));
     }
 
     /**
@@ -125,7 +280,10 @@ public class CalendarSystem {
      * @throws IOException an exception in file I/O
      */
     public void createAccount(String username, String password) throws IOException {
-        userSystem.createAccount(username, password);
+        CREATE_ACCOUNT.time(() -> {
+            userSystem.createAccount(username, password);
+            return null;
+        });
     }
 
     /**
@@ -135,11 +293,13 @@ public class CalendarSystem {
      * currently selected memo list.
      */
     public List<String> getCurrentMemoListInfo() {
-        List<String> info = new ArrayList<>();
-        for(Memo memo: currentMemoList){
-            info.add(memo.toString());
-        }
-        return info;
+        return GET_CURRENT_MEMO_LIST_INFO.time(() -> {
+            List<String> info = new ArrayList<>();
+            for(Memo memo: currentMemoList){
+                info.add(memo.toString());
+            }
+            return info;
+        });
     }
 
     /**
@@ -149,11 +309,13 @@ public class CalendarSystem {
      * currently selected alert list.
      */
     public List<String> getCurrentAlertListInfo() {
-        List<String> info = new ArrayList<>();
-        for (Alert alert: currentAlertList) {
-            info.add(alert.toString());
-        }
-        return info;
+        return GET_CURRENT_ALERT_LIST_INFO.time(() -> {
+            List<String> info = new ArrayList<>();
+            for (Alert alert: currentAlertList) {
+                info.add(alert.toString());
+            }
+            return info;
+        });
     }
 
     /**
@@ -163,11 +325,13 @@ public class CalendarSystem {
      * currently selected tag list.
      */
     public List<String> getCurrentTagListInfo() {
-        List<String> info = new ArrayList<>();
-        for (Tag tag: currentTagList) {
-            info.add(tag.toString());
-        }
-        return info;
+        return GET_CURRENT_TAG_LIST_INFO.time(() -> {
+            List<String> info = new ArrayList<>();
+            for (Tag tag: currentTagList) {
+                info.add(tag.toString());
+            }
+            return info;
+        });
     }
 
     /**
@@ -177,11 +341,22 @@ public class CalendarSystem {
      * @param future the boolean whether the future event is going to be displayed
      */
     public void chooseWhatEventsToDisplay(boolean past, boolean ongoing, boolean future){
-        List<Event> result = new ArrayList<>();
-        if(past) result.addAll(currentCalendar.getEvents(Time.PAST));
-        if(ongoing) result.addAll(currentCalendar.getEvents(Time.ONGOING));
-        if(future) result.addAll(currentCalendar.getEvents(Time.FUTURE));
-        currentList = result;
+        CHOOSE_WHAT_EVENTS_TO_DISPLAY.time(() -> {
+            ViewEvent event = new ViewEvent();
+            event.begin();
+            List<Event> result = new ArrayList<>();
+            if(past) result.addAll(currentCalendar.getEvents(Time.PAST));
+            event.past = result.size();
+            if(ongoing) result.addAll(currentCalendar.getEvents(Time.ONGOING));
+            event.ongoing = result.size() - event.past;
+            if(future) result.addAll(currentCalendar.getEvents(Time.FUTURE));
+            event.future = result.size() - event.past - event.ongoing;
+            currentList = result;
+            if (event.shouldCommit()) {
+                event.calendar = currentCalendar.getCalendarName();
+                event.commit();
+            }
+        });
     }
 
     /**
@@ -190,10 +365,12 @@ public class CalendarSystem {
      * @return the memo message of currently selected memo
      */
     public String getCurrentMemoInfo() {
-        if (currentMemo == null) {
-            return null;
-        }
-        return currentMemo.toString();
+        return GET_CURRENT_MEMO_INFO.time(() -> {
+            if (currentMemo == null) {
+                return null;
+            }
+            return currentMemo.toString();
+        });
     }
 
     /**
@@ -201,10 +378,12 @@ public class CalendarSystem {
      *
      */
     public void viewAllMemos() {
-        currentMemoList = currentCalendar.getAllMemos()
-                .stream()
-                .map(e -> (Memo) e)
-                .collect(Collectors.toList());
+        VIEW_ALL_MEMOS.time(() -> {
+            currentMemoList = currentCalendar.getAllMemos()
+                    .stream()
+                    .map(e -> (Memo) e)
+                    .collect(Collectors.toList());
+        });
     }
 
     /**
@@ -215,7 +394,7 @@ public class CalendarSystem {
      * @param endTime   the end time of the new event
      */
     public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime) {
-        currentCalendar.createEvent(name, startTime, endTime);
+        CREATE_EVENT.time(() -> currentCalendar.createEvent(name, startTime, endTime));
     }
 
     /**
@@ -226,10 +405,10 @@ public class CalendarSystem {
      * @param endTime    the end time of the new event
      * @param seriesName the series name of the new event
      * @param duration  the frequency of the events in the series
-     * @param number     the total number of events in the series
+     * @param number     the total number of events in the series; FOREVER for a series without end
      */
     public void createEvent(String name, LocalDateTime startTime, LocalDateTime endTime, String seriesName, Duration duration, int number) {
-        currentCalendar.createEvent(name, startTime, endTime, seriesName, duration, number);
+        CREATE_SERIES.time(() -> currentCalendar.createEvent(name, startTime, endTime, seriesName, duration, number));
     }
 
 
@@ -238,7 +417,7 @@ public class CalendarSystem {
      * @param name the name of the new calendar in String
      */
     public void createCalendar(String name){
-        currentUser.addCalender(name);
+        CREATE_CALENDAR.time(() -> currentUser.addCalender(name));
     }
 
     /**
@@ -247,10 +426,12 @@ public class CalendarSystem {
      * @param num the number of event it appears in the list
      */
     public void selectEvent(int num) {
-        currentEvent = currentList.get(num);
-        currentTagList = currentCalendar.viewTag(currentEvent);
-        currentMemoList = currentCalendar.viewMemo(currentEvent);
-        currentAlertList = currentCalendar.viewAlert(currentEvent);
+        SELECT_EVENT.time(() -> {
+            currentEvent = currentList.get(num);
+            currentTagList = currentCalendar.viewTag(currentEvent);
+            currentMemoList = currentCalendar.viewMemo(currentEvent);
+            currentAlertList = currentCalendar.viewAlert(currentEvent, LocalDateTime.MIN, ALERT_PAGE);
+        });
     }
 
     /**
@@ -259,7 +440,7 @@ public class CalendarSystem {
      * @param num the number of memo it appears in the list
      */
     public void selectMemo(int num) {
-        currentMemo = currentMemoList.get(num);
+        SELECT_MEMO.time(() -> currentMemo = currentMemoList.get(num));
     }
 
     /**
@@ -268,7 +449,7 @@ public class CalendarSystem {
      * @param num the number of alert it appears in the list
      */
     public void selectAlert(int num) {
-        currentAlert = currentAlertList.get(num);
+        SELECT_ALERT.time(() -> currentAlert = currentAlertList.get(num));
     }
 
     /**
@@ -277,7 +458,29 @@ public class CalendarSystem {
      * @param num the number of tag it appears in the list
      */
     public void selectTag(int num) {
-        currentTag = currentTagList.get(num);
+        SELECT_TAG.time(() -> currentTag = currentTagList.get(num));
+    }
+
+    private int search(String kind, String query, Supplier<List<Event>> search) {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        currentList = copy(search.get());
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.query = query;
+            event.calendar = currentCalendar.getCalendarName();
+            event.results = currentList == null ? 0 : currentList.size();
+            event.commit();
+        }
+        return notFound();
+    }
+
+    /**
+     * copy a list of events to be kept as the current list, which is changed as events are deleted; the searches of
+     * several calendars and of the common calendar give read-only views
+     */
+    private static List<Event> copy(List<Event> events) {
+        return events == null ? null : new ArrayList<>(events);
     }
 
     private int notFound() {
@@ -298,8 +501,7 @@ public class CalendarSystem {
      * -1 if unsuccessful
      */
     public int searchByName(String name) {
-        currentList = currentCalendar.searchByName(name);
-        return notFound();
+        return SEARCH_BY_NAME.time(() -> search("name", name, () -> currentCalendar.searchByName(name)));
     }
 
     /**
@@ -308,7 +510,8 @@ public class CalendarSystem {
      * @param seriesName the target series name
      */
     public void searchBySeriesName(String seriesName) {
-        currentList = currentCalendar.searchBySeriesName(seriesName);
+        SEARCH_BY_SERIES_NAME.time(
+                () -> search("series", seriesName, () -> currentCalendar.searchBySeriesName(seriesName)));
     }
 
     /**
@@ -319,8 +522,7 @@ public class CalendarSystem {
      * -1 if unsuccessful
      */
     public int searchByTag(String tagName) {
-        currentList = currentCalendar.searchByTag(tagName);
-        return notFound();
+        return SEARCH_BY_TAG.time(() -> search("tag", tagName, () -> currentCalendar.searchByTag(tagName)));
     }
 
     /**
@@ -331,8 +533,7 @@ public class CalendarSystem {
      * -1 if unsuccessful
      */
     public int searchByDate(LocalDate date) {
-        currentList = currentCalendar.searchByDate(date);
-        return notFound();
+        return SEARCH_BY_DATE.time(() -> search("date", date.toString(), () -> currentCalendar.searchByDate(date)));
     }
 
     /**
@@ -341,8 +542,10 @@ public class CalendarSystem {
      * @param tagName the name of the added tag
      */
     public void addTagToEvent(String tagName) {
-        currentCalendar.addTagToEvent(tagName, currentEvent);
-        currentTagList = currentCalendar.viewTag(currentEvent);
+        ADD_TAG_TO_EVENT.time(() -> {
+            currentCalendar.addTagToEvent(tagName, currentEvent);
+            currentTagList = currentCalendar.viewTag(currentEvent);
+        });
     }
 
     /**
@@ -351,8 +554,10 @@ public class CalendarSystem {
      * @param memo the content of the add memo
      */
     public void addNewMemo(String memo) {
-        currentCalendar.addMemoToEvent(memo, currentEvent);
-        currentMemoList = currentCalendar.viewMemo(currentEvent);
+        ADD_NEW_MEMO.time(() -> {
+            currentCalendar.addMemoToEvent(memo, currentEvent);
+            currentMemoList = currentCalendar.viewMemo(currentEvent);
+        });
     }
 
     /**
@@ -361,7 +566,7 @@ public class CalendarSystem {
      * @param seriesName the name of the series which the event is being added into
      */
     public void addIntoSeries(String seriesName) {
-        currentCalendar.addIntoSeries(currentEvent, seriesName);
+        ADD_INTO_SERIES.time(() -> currentCalendar.addIntoSeries(currentEvent, seriesName));
     }
 
     /**
@@ -373,13 +578,15 @@ public class CalendarSystem {
      * -1 if unsuccessful
      */
     public int setAlert(String name, LocalDateTime time) {
-        if (currentEvent == null) {
-            return -1;
-        }
-        currentCalendar.setAlert(currentEvent, name, time);
-        userSystem.getUser().getAlarm().add(name, time);
-        currentAlertList = currentCalendar.viewAlert(currentEvent);
-        return 1;
+        return SET_ALERT.time(() -> {
+            if (currentEvent == null) {
+                return -1;
+            }
+            currentCalendar.setAlert(currentEvent, name, time);
+            userSystem.getUser().getAlarm().add(name, time);
+            currentAlertList = currentCalendar.viewAlert(currentEvent, LocalDateTime.MIN, ALERT_PAGE);
+            return 1;
+        });
     }
 
     /**
@@ -392,13 +599,15 @@ public class CalendarSystem {
      * -1 if unsuccessful
      */
     public int setAlert(String name, LocalDateTime time, Duration duration) {
-        if (currentEvent == null) {
-            return -1;
-        }
-        currentCalendar.setAlert(currentEvent, name, time, duration);
-        userSystem.getUser().getAlarm().add(name, time, currentEvent.getStartDateTime(), duration);
-        currentAlertList = currentCalendar.viewAlert(currentEvent);
-        return 1;
+        return SET_REPEATING_ALERT.time(() -> {
+            if (currentEvent == null) {
+                return -1;
+            }
+            currentCalendar.setAlert(currentEvent, name, time, duration);
+            userSystem.getUser().getAlarm().add(name, time, currentEvent.getStartDateTime(), duration);
+            currentAlertList = currentCalendar.viewAlert(currentEvent, LocalDateTime.MIN, ALERT_PAGE);
+            return 1;
+        });
     }
 
     /**
@@ -408,7 +617,7 @@ public class CalendarSystem {
      *          false if such event does not exist
      */
     public boolean hasEventWithSameName(String name) {
-        return currentCalendar.hasEventWithSameName(name);
+        return HAS_EVENT_WITH_SAME_NAME.time(() -> currentCalendar.hasEventWithSameName(name));
     }
 
     /**
@@ -416,10 +625,12 @@ public class CalendarSystem {
      * @return a List of String
      */
     public List<String> getCalendarNamesOfCurrentUser() {
-        List<String> cs = new ArrayList<>();
-        cs.add("Common");
-        cs.addAll(currentUser.getCalendarsNames());
-        return cs;
+        return GET_CALENDAR_NAMES_OF_CURRENT_USER.time(() -> {
+            List<String> cs = new ArrayList<>();
+            cs.add("Common");
+            cs.addAll(currentUser.getCalendarsNames());
+            return cs;
+        });
     }
 
     /**
@@ -427,24 +638,26 @@ public class CalendarSystem {
      * @param selectedCalendarList an ArrayList of calendars
      */
     public void updateCurrentCalendar(ArrayList<String> selectedCalendarList) {
-        if (selectedCalendarList.isEmpty()) {
-            currentCalendar = null;
-        } else if (selectedCalendarList.size() == 1) {
-            String name = selectedCalendarList.get(0);
-            if (name.equals("Common"))
-                currentCalendar = userSystem.getCommonCalendar();
-            else
-                currentCalendar = currentUser.getCalender(selectedCalendarList.get(0));
-        } else {
-            List<Calendar> calendars = new ArrayList<>();
-            for(String name: selectedCalendarList) {
+        UPDATE_CURRENT_CALENDAR.time(() -> {
+            if (selectedCalendarList.isEmpty()) {
+                currentCalendar = null;
+            } else if (selectedCalendarList.size() == 1) {
+                String name = selectedCalendarList.get(0);
                 if (name.equals("Common"))
-                    calendars.add(userSystem.getCommonCalendar());
+                    currentCalendar = userSystem.getCommonSession();
                 else
-                    calendars.add(currentUser.getCalender(name));
+                    currentCalendar = currentUser.getCalender(selectedCalendarList.get(0));
+            } else {
+                List<Calendar> calendars = new ArrayList<>();
+                for(String name: selectedCalendarList) {
+                    if (name.equals("Common"))
+                        calendars.add(userSystem.getCommonSession());
+                    else
+                        calendars.add(currentUser.getCalender(name));
+                }
+                currentCalendar = Calendar.mergeCalendars(calendars);
             }
-            currentCalendar = Calendar.mergeCalendars(calendars);
-        }
+        });
     }
 
     /**
@@ -452,11 +665,13 @@ public class CalendarSystem {
      * @return a List of String
      */
     public List<String> getCurrentEventListName() {
-        List<String> result = new ArrayList<>();
-        for(Event event: currentList){
-            result.add(event.getName());
-        }
-        return result;
+        return GET_CURRENT_EVENT_LIST_NAME.time(() -> {
+            List<String> result = new ArrayList<>();
+            for(Event event: currentList){
+                result.add(event.getName());
+            }
+            return result;
+        });
     }
 
     /**
@@ -464,12 +679,14 @@ public class CalendarSystem {
      * @return a List of String
      */
     public List<String> getAllEventSeriesNames() {
-        List<EventSeries> es = currentCalendar.getAllEventSeries();
-        List<String> result = new ArrayList<>();
-        for(EventSeries eventSeries: es){
-            result.add(eventSeries.getSeriesName());
-        }
-        return result;
+        return GET_ALL_EVENT_SERIES_NAMES.time(() -> {
+            List<EventSeries> es = currentCalendar.getAllEventSeries();
+            List<String> result = new ArrayList<>();
+            for(EventSeries eventSeries: es){
+                result.add(eventSeries.getSeriesName());
+            }
+            return result;
+        });
     }
 
     /**
@@ -477,7 +694,7 @@ public class CalendarSystem {
      * @param name The target tag name.
      */
     public void selectTag(String name){
-        currentTag = new Tag(name);
+        SELECT_TAG_BY_NAME.time(() -> currentTag = new Tag(name));
     }
 
     /**
@@ -518,9 +735,11 @@ public class CalendarSystem {
      *          -1 if new information is invalid
      */
     public int editEventTime(LocalDateTime endTime, LocalDateTime startTime) {
-        if(endTime.isBefore(startTime)) {return -1;}
-        currentCalendar.editEventTime(currentEvent, endTime, startTime);
-        return 1;
+        return EDIT_EVENT_TIME.time(() -> {
+            if(endTime.isBefore(startTime)) {return -1;}
+            currentCalendar.editEventTime(currentEvent, endTime, startTime);
+            return 1;
+        });
     }
 
     /**
@@ -530,17 +749,21 @@ public class CalendarSystem {
      *          -1 if new information is invalid
      */
     public int editEventName(String name){
-        if(hasEventWithSameName(name)) return -1;
-        currentCalendar.editEventName(currentEvent, name);
-        return 1;
+        return EDIT_EVENT_NAME.time(() -> {
+            if(hasEventWithSameName(name)) return -1;
+            currentCalendar.editEventName(currentEvent, name);
+            return 1;
+        });
     }
 
     /**
      * This method would remove the currently selected event from the calendar
      */
     public void deleteCurrentEvent() {
-        currentCalendar.deleteEvent(currentEvent);
-        currentList.remove(currentEvent);
+        DELETE_CURRENT_EVENT.time(() -> {
+            currentCalendar.deleteEvent(currentEvent);
+            currentList.remove(currentEvent);
+        });
     }
 
     /**
@@ -550,13 +773,15 @@ public class CalendarSystem {
      *             entire memo
      */
     public void deleteCurrentMemo(int mode){
-        if(mode==1){
-            currentCalendar.deleteMemoFromEvent(currentEvent, currentMemo);
-        } else if(mode==2){
-            currentCalendar.deleteEntireMemo(currentMemo);
-        }
-        currentMemoList.remove(currentMemo);
-        currentMemo = null;
+        DELETE_CURRENT_MEMO.time(() -> {
+            if(mode==1){
+                currentCalendar.deleteMemoFromEvent(currentEvent, currentMemo);
+            } else if(mode==2){
+                currentCalendar.deleteEntireMemo(currentMemo);
+            }
+            currentMemoList.remove(currentMemo);
+            currentMemo = null;
+        });
     }
 
     /**
@@ -566,13 +791,15 @@ public class CalendarSystem {
      *             entire tag
      */
     public void deleteCurrentTag(int mode){
-        if(mode==1){
-            currentCalendar.deleteTagFromEvent(currentEvent, currentTag);
-        } else if(mode==2){
-            currentCalendar.deleteEntireTag(currentTag);
-        }
-        currentTagList.remove(currentTag);
-        currentTag = null;
+        DELETE_CURRENT_TAG.time(() -> {
+            if(mode==1){
+                currentCalendar.deleteTagFromEvent(currentEvent, currentTag);
+            } else if(mode==2){
+                currentCalendar.deleteEntireTag(currentTag);
+            }
+            currentTagList.remove(currentTag);
+            currentTag = null;
+        });
     }
 
     /**
@@ -582,14 +809,16 @@ public class CalendarSystem {
      * @param newMemoName the new name of the memo
      */
     public void editCurrentMemo(int mode, String newMemoName){
-        if(mode==1){
-            currentCalendar.editMemoForOne(currentMemo, newMemoName, currentEvent);
-        } else if(mode==2){
-            currentCalendar.editEntireMemo(currentMemo, newMemoName);
-        }
-        currentMemo = new Memo(newMemoName);
-        getEventsOfCurrentMemo();
-        currentMemoList = currentCalendar.viewMemo(currentEvent);
+        EDIT_CURRENT_MEMO.time(() -> {
+            if(mode==1){
+                currentCalendar.editMemoForOne(currentMemo, newMemoName, currentEvent);
+            } else if(mode==2){
+                currentCalendar.editEntireMemo(currentMemo, newMemoName);
+            }
+            currentMemo = new Memo(newMemoName);
+            getEventsOfCurrentMemo();
+            currentMemoList = currentCalendar.viewMemo(currentEvent);
+        });
     }
 
     /**
@@ -599,13 +828,15 @@ public class CalendarSystem {
      * @param newTagName the new name of the memo
      */
     public void editCurrentTag(int mode, String newTagName){
-        if(mode==1){
-            currentCalendar.editTagForOne(currentTag, newTagName, currentEvent);
-        } else if(mode==2){
-            currentCalendar.editEntireTag(currentTag, newTagName);
-        }
-        currentTag = new Tag(newTagName);
-        getEventsOfCurrentTag();
+        EDIT_CURRENT_TAG.time(() -> {
+            if(mode==1){
+                currentCalendar.editTagForOne(currentTag, newTagName, currentEvent);
+            } else if(mode==2){
+                currentCalendar.editEntireTag(currentTag, newTagName);
+            }
+            currentTag = new Tag(newTagName);
+            getEventsOfCurrentTag();
+        });
     }
 
     /**
@@ -634,8 +865,10 @@ public class CalendarSystem {
      * @param newDT the new triggered time
      */
     public void editCurrentAlert(String text, LocalDateTime newDT) {
-        // Don't forget to change userSystem.getUser().getAlert()
-        currentCalendar.setAlertInfo(currentAlert, text, newDT);
+        EDIT_CURRENT_ALERT.time(() -> {
+            // Don't forget to change userSystem.getUser().getAlert()
+            currentCalendar.setAlertInfo(currentEvent, currentAlert, text, newDT);
+        });
     }
 
     /**
@@ -643,10 +876,12 @@ public class CalendarSystem {
      *
      */
     public void deleteCurrentAlert() {
-        currentCalendar.deleteAlert(currentEvent, currentAlert);
-        currentAlertList.remove(currentAlert);
-        userSystem.getUser().getAlarm().remove(currentAlert);
-        currentAlert = null;
+        DELETE_CURRENT_ALERT.time(() -> {
+            currentCalendar.deleteAlert(currentEvent, currentAlert);
+            currentAlertList.remove(currentAlert);
+            userSystem.getUser().getAlarm().remove(currentAlert);
+            currentAlert = null;
+        });
     }
 
     /**
@@ -655,7 +890,7 @@ public class CalendarSystem {
      * @return a list of strings that contain all the tag messages
      */
     public List<String> getContentOfAllTags() {
-        return currentCalendar.getContentOfAllTags();
+        return GET_CONTENT_OF_ALL_TAGS.time(() -> currentCalendar.getContentOfAllTags());
     }
 
     /**
@@ -663,7 +898,7 @@ public class CalendarSystem {
      * @return a List of String
      */
     public List<String> getContentOfAllMemos() {
-        return currentCalendar.getContentOfAllMemos();
+        return GET_CONTENT_OF_ALL_MEMOS.time(() -> currentCalendar.getContentOfAllMemos());
     }
 
     /**
@@ -671,7 +906,7 @@ public class CalendarSystem {
      * @param name the target series name
      */
     public void selectSeries(String name){
-        currentEventSeries = currentCalendar.searchSeriesByName(name);
+        SELECT_SERIES.time(() -> currentEventSeries = currentCalendar.searchSeriesByName(name));
     }
 
     /**
@@ -679,15 +914,17 @@ public class CalendarSystem {
      * @param text the new series name
      */
     public void editCurrentSeries(String text) {
-        currentCalendar.changeNameTo(currentEventSeries, text);
+        EDIT_CURRENT_SERIES.time(() -> currentCalendar.changeNameTo(currentEventSeries, text));
     }
 
     /**
      * This method removes the currently selected series from the calendar.
      */
     public void deleteCurrentSeries() {
-        currentCalendar.deleteEventSeries(currentEventSeries);
-        currentEventSeries = null;
+        DELETE_CURRENT_SERIES.time(() -> {
+            currentCalendar.deleteEventSeries(currentEventSeries);
+            currentEventSeries = null;
+        });
     }
 
     /**
@@ -706,10 +943,11 @@ public class CalendarSystem {
      * @param event     the name of the event; can be null
      * @return  1       if the delivery succeeds;
      *          -1      if the receiver does not exist;
-     *          -2      if there is not such event in the common calendar.
+     *          -2      if there is not such event in the common calendar;
+     *          -3      if the message cannot be saved.
      */
     public int sendMessage(String receiver, String message, String event) {
-        return userSystem.sendMessage(receiver, message, event);
+        return SEND_MESSAGE.time(() -> userSystem.sendMessage(receiver, message, event));
     }
 
     /**
@@ -717,13 +955,33 @@ public class CalendarSystem {
      * @return [sender, message, event] for every message
      */
     public List<String[]> receiveMessages() {
-        List<Message> ms = userSystem.receiveMessages();
+        return RECEIVE_MESSAGES.time(() -> toStrings(userSystem.receiveMessages()));
+    }
+
+    private static List<String[]> toStrings(List<Message> ms) {
         List<String[]> ss = new ArrayList<>();
         for (Message m: ms)
             ss.add(new String[] {m.getSender(), m.getMessage(), m.getEvent()});
         return ss;
     }
 
+    /**
+     * Start handing over the messages sent to the user as soon as they arrive, starting with those already there.
+     *
+     * @param deliverExecutor the executor that runs on the UI thread
+     * @param receiver        the receiver of [sender, message, event] for every message, called through the executor
+     */
+    public void startMessages(Executor deliverExecutor, Consumer<List<String[]>> receiver) {
+        userSystem.startMessages(deliverExecutor, ms -> receiver.accept(toStrings(ms)));
+    }
+
+    /**
+     * Stop handing over the messages as they arrive.
+     */
+    public void stopMessages() {
+        userSystem.stopMessages();
+    }
+
     /**
      * Get the time of the event.
      * @param calendar  the name of the calendar
@@ -734,7 +992,7 @@ public class CalendarSystem {
     public LocalDateTime[] getTime(String calendar, String event) {
         Event e = null;
         if ("Common".equals(calendar)) {
-            e = userSystem.getCommonCalendar().getEvent(event);
+            e = userSystem.getCommonSession().getEvent(event);
         } else {
             Calendar c = userSystem.getUser().getCalender(calendar);
             if (c != null)
@@ -751,7 +1009,7 @@ public class CalendarSystem {
      *          -1  if the event does not exist in the common calendar.
      */
     public int addUserToEvent(String user, String event) {
-        return userSystem.getCommonCalendar().addUser(event, user);
+        return ADD_USER_TO_EVENT.time(() -> userSystem.getCommonCalendar().addUser(event, user));
     }
 
     /**
@@ -774,10 +1032,12 @@ public class CalendarSystem {
      *          null otherwise
      */
     public String getNextAlert() {
-        Alarm alarm = userSystem.getUser().getAlarm();
-        if (alarm.hasNext())
-            return alarm.next().toString();
-        return null;
+        return GET_NEXT_ALERT.time(() -> {
+            Alarm alarm = userSystem.getUser().getAlarm();
+            if (alarm.hasNext())
+                return alarm.next().toString();
+            return null;
+        });
     }
 
     /**
@@ -785,15 +1045,17 @@ public class CalendarSystem {
      * @return a String
      */
     public String getCurrentTagInfo() {
-        if(currentTag == null) return null;
-        return currentTag.toString();
+        return GET_CURRENT_TAG_INFO.time(() -> {
+            if(currentTag == null) return null;
+            return currentTag.toString();
+        });
     }
 
     /**
      * This method shows the user with all the event corresponding with the currently selected memo.
      */
     public void getEventsOfCurrentMemo() {
-        currentList = currentCalendar.getEventsOfMemo(currentMemo);
+        GET_EVENTS_OF_CURRENT_MEMO.time(() -> currentList = copy(currentCalendar.getEventsOfMemo(currentMemo)));
     }
 
     /**
@@ -801,14 +1063,14 @@ public class CalendarSystem {
      * @return name of currentSeries
      */
     public String getCurrentSeriesName() {
-        return currentCalendar.getSeriesName(currentEventSeries);
+        return GET_CURRENT_SERIES_NAME.time(() -> currentCalendar.getSeriesName(currentEventSeries));
     }
 
     /**
      * This method change current list to events associated to currentTag.
      */
     public void getEventsOfCurrentTag() {
-        currentList = currentCalendar.getEventsOfTag(currentTag);
+        GET_EVENTS_OF_CURRENT_TAG.time(() -> currentList = copy(currentCalendar.getEventsOfTag(currentTag)));
     }
 
 
@@ -1,17 +1,53 @@
 package clock;
 
 import java.io.*;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
- * This is the class for the internal time of the program.
+ * This is the class for the internal time of the program. The time is worked out from System.nanoTime and a state that
+ * is never changed once made: the real time and the internal time at the last change, and the speed since then. A
+ * change publishes a new state at once, so reading the time takes no lock and is safe from any thread.
+ *
+ * The internal time is also given as nanoseconds since 1970-01-01T00:00, taking the local time as if it were UTC, so
+ * that it can be compared without making any object; this covers the years 1677 to 2262.
+ *
+ * In the simulation mode the Clock stands still and only moves when it is told to, from one time to the next; nothing
+ * is written to the file and no listener is told until the simulation ends.
  */
 public final class Clock {
-    static private LocalDateTime lastReal, lastOutput;
-    static private double v = 1;
+
+    /**
+     * The state of the clock from one change to the next.
+     */
+    private static final class State {
+        private final long realBase;
+        private final long simBase;
+        private final double speed;
+
+        private State(long realBase, long simBase, double speed) {
+            this.realBase = realBase;
+            this.simBase = simBase;
+            this.speed = speed;
+        }
+
+        private long at(long real) {
+            long elapsed = real - realBase;
+            return simBase + (speed == 1 ? elapsed : (long) (elapsed * speed));
+        }
+    }
+
+    static private final AtomicReference<State> state =
+            new AtomicReference<>(new State(System.nanoTime(), epochNanos(LocalDateTime.now()), 1));
     static private File file;
     static private boolean fileEnable = true;
+    static private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    static private volatile boolean simulating = false;
+    static private double resumeSpeed;
 
     /**
      * Initialize the Clock. Should be called exactly once before Clock is used.
@@ -20,12 +56,12 @@ public final class Clock {
      */
     public static void init(File f) {
         file = f;
-        lastReal = LocalDateTime.now();
-        lastOutput = lastReal;
+        state.set(new State(System.nanoTime(), epochNanos(LocalDateTime.now()), getSpeed()));
 
         if (file == null) {
             fileEnable = false;
         } else {
+            fileEnable = true;
             try {
                 if (!file.createNewFile())
                     read(file);
@@ -36,30 +72,42 @@ public final class Clock {
         }
     }
 
+    /**
+     * The file has the real time and the internal time when it was written, and the speed; the internal time has kept
+     * going at that speed since then.
+     */
     private static void read(File file) throws IOException {
         try (InputStream in = new FileInputStream(file);
              BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
-            lastReal = LocalDateTime.parse(br.readLine());
-            lastOutput = LocalDateTime.parse(br.readLine());
-            v = Double.parseDouble(br.readLine());
+            long lastReal = epochNanos(LocalDateTime.parse(br.readLine()));
+            long lastOutput = epochNanos(LocalDateTime.parse(br.readLine()));
+            double v = Double.parseDouble(br.readLine());
+            long real = System.nanoTime();
+            long closed = epochNanos(LocalDateTime.now()) - lastReal;
+            state.set(new State(real, new State(0, lastOutput, v).at(closed), v));
         }
     }
 
-    private static void write() {
+    private static synchronized void write() {
         if (fileEnable) {
+            State s = state.get();
+            LocalDateTime real = LocalDateTime.now();
+            LocalDateTime output = ofEpochNanos(s.at(System.nanoTime()));
             try (PrintWriter out = new PrintWriter(new FileWriter(file, false))) {
-                out.println(lastReal + "\n" + lastOutput + "\n" + v);
+                out.println(real + "\n" + output + "\n" + s.speed);
             } catch (IOException e) {
                 fileEnable = false;
             }
         }
     }
 
-    private static void update() {
-        LocalDateTime now = LocalDateTime.now();
-        long dt = ChronoUnit.NANOS.between(lastReal, now);
-        lastOutput = lastOutput.plusNanos((long) (v * dt));
-        lastReal = now;
+    /**
+     * get the current time of the Clock in nanoseconds since 1970-01-01T00:00, without making any object
+     *
+     * @return the current time
+     */
+    public static long nowEpochNanos() {
+        return state.get().at(System.nanoTime());
     }
 
     /**
@@ -68,8 +116,34 @@ public final class Clock {
      * @return the current time
      */
     public static LocalDateTime getTime() {
-        update();
-        return lastOutput;
+        return ofEpochNanos(nowEpochNanos());
+    }
+
+    /**
+     * Convert a time into nanoseconds since 1970-01-01T00:00, the same scale as nowEpochNanos
+     *
+     * @param t the time
+     * @return the nanoseconds
+     */
+    public static long epochNanos(LocalDateTime t) {
+        long seconds = t.toEpochSecond(ZoneOffset.UTC);
+        // a time out of range is taken as the earliest or the latest one, which still compares right with the others
+        if (seconds >= Long.MAX_VALUE / 1_000_000_000L)
+            return Long.MAX_VALUE;
+        if (seconds <= Long.MIN_VALUE / 1_000_000_000L)
+            return Long.MIN_VALUE;
+        return seconds * 1_000_000_000L + t.getNano();
+    }
+
+    /**
+     * Convert nanoseconds since 1970-01-01T00:00 into a time
+     *
+     * @param nanos the nanoseconds
+     * @return the time
+     */
+    public static LocalDateTime ofEpochNanos(long nanos) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(nanos, 1_000_000_000L),
+                (int) Math.floorMod(nanos, 1_000_000_000L), ZoneOffset.UTC);
     }
 
     /**
@@ -78,9 +152,18 @@ public final class Clock {
      * @param speed the speed of the Clock
      */
     public static void setSpeed(double speed) {
-        update();
-        v = speed;
+        changeSpeed(speed);
         write();
+        changed();
+    }
+
+    private static void changeSpeed(double speed) {
+        State s, next;
+        do {
+            s = state.get();
+            long real = System.nanoTime();
+            next = new State(real, s.at(real), speed);
+        } while (!state.compareAndSet(s, next));
     }
 
     /**
@@ -88,7 +171,7 @@ public final class Clock {
      * @return a double
      */
     public static double getSpeed() {
-        return v;
+        return state.get().speed;
     }
 
     /**
@@ -97,8 +180,101 @@ public final class Clock {
      * @param t the time to jump to
      */
     public static void jumpTo(LocalDateTime t) {
-        lastReal = LocalDateTime.now();
-        lastOutput = t;
+        long sim = epochNanos(t);
+        State s;
+        do {
+            s = state.get();
+        } while (!state.compareAndSet(s, new State(System.nanoTime(), sim, s.speed)));
         write();
+        changed();
+    }
+
+    /**
+     * Start the simulation mode: the Clock stops at the current time, and only moves when advanceTo is called. The
+     * file keeps the time and the speed from before, and no listener is told.
+     */
+    public static synchronized void startSimulation() {
+        if (simulating)
+            throw new IllegalStateException("The simulation has already started.");
+        resumeSpeed = getSpeed();
+        changeSpeed(0);
+        simulating = true;
+    }
+
+    /**
+     * Move the Clock to a time in the simulation mode.
+     *
+     * @param t the time to move to; must not be before the current time
+     */
+    public static void advanceTo(LocalDateTime t) {
+        if (!simulating)
+            throw new IllegalStateException("The simulation has not started.");
+        long sim = epochNanos(t);
+        State s;
+        do {
+            s = state.get();
+            if (sim < s.simBase)
+                throw new IllegalArgumentException("Time does not flow backward.");
+        } while (!state.compareAndSet(s, new State(System.nanoTime(), sim, 0)));
+    }
+
+    /**
+     * End the simulation mode. The Clock goes on from where the simulation left it, at the speed it had before.
+     */
+    public static synchronized void endSimulation() {
+        if (!simulating)
+            throw new IllegalStateException("The simulation has not started.");
+        simulating = false;
+        setSpeed(resumeSpeed);
+    }
+
+    /**
+     * Check if the Clock is in the simulation mode
+     *
+     * @return true if it is
+     */
+    public static boolean isSimulating() {
+        return simulating;
+    }
+
+    /**
+     * Work out how long it takes in real time for the Clock to reach a time at its current speed
+     *
+     * @param t the time
+     * @return the real time; zero if the time has come; null if the Clock never reaches it
+     */
+    public static Duration untilTime(LocalDateTime t) {
+        State s = state.get();
+        long target = epochNanos(t);
+        long now = s.at(System.nanoTime());
+        if (target <= now)
+            return Duration.ZERO;
+        if (s.speed <= 0)
+            return null;
+        double nanos = ((double) target - now) / s.speed;
+        return Duration.ofNanos((long) Math.ceil(Math.min(nanos, Long.MAX_VALUE)));
+    }
+
+    /**
+     * Add a listener that is told whenever the speed of the Clock is set or the Clock jumps
+     *
+     * @param listener the listener
+     */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added before
+     *
+     * @param listener the listener
+     */
+    public static void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private static void changed() {
+        for (Runnable listener : listeners)
+            listener.run();
     }
 }
@@ -0,0 +1,21 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of the alerts handed over as they go off.
+ */
+@Name("calendar.AlertDispatch")
+@Label("Alert Dispatch")
+@Category("Calendar")
+@Description("The alerts that have gone off handed over to be shown")
+@StackTrace(false)
+public class AlertDispatchEvent extends Event {
+    @Label("Alerts")
+    public int alerts;
+
+    @Label("Late")
+    @Description("How long after its time, by the clock of the calendar, the first alert was handed over")
+    @Timespan(Timespan.MILLISECONDS)
+    public long late;
+}
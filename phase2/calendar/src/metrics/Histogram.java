@@ -0,0 +1,117 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class counts values, e.g. latencies in nanoseconds or sizes in bytes, in buckets whose width grows with the
+ * value, as an HDR histogram does: every power of two is split into 32 buckets, so a percentile is within about 3% of
+ * the exact one however large the values are. Recording a value is a few atomic increments without any lock, and the
+ * memory used does not grow with the number of values.
+ */
+public class Histogram {
+    private static final int SUB_BITS = 5, SUB = 1 << SUB_BITS;
+    // the index of the largest positive long is (62 - SUB_BITS) * SUB + 2 * SUB - 1
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder(), sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * This method records a value. A negative value is recorded as 0.
+     * @param value the value
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * This method finds the bucket of a value: values below 32 have a bucket each, and each power of two above is
+     * split into 32 buckets of the same width.
+     */
+    static int index(long value) {
+        if (value < SUB)
+            return (int) value;
+        int e = 63 - Long.numberOfLeadingZeros(value);
+        return (e - SUB_BITS) * SUB + (int) (value >>> (e - SUB_BITS));
+    }
+
+    /**
+     * This method returns the smallest value of a bucket.
+     */
+    static long lowest(int index) {
+        if (index < 2 * SUB)
+            return index;
+        int q = index / SUB;
+        return (long) (SUB + index % SUB) << (q - 1);
+    }
+
+    /**
+     * This method returns the number of values in a bucket.
+     */
+    static long width(int index) {
+        return index < 2 * SUB ? 1 : 1L << (index / SUB - 1);
+    }
+
+    /**
+     * This is the getter of the number of values recorded.
+     * @return the number of values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * This is the getter of the sum of the values recorded.
+     * @return the sum
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * This is the getter of the largest value recorded.
+     * @return the largest value; 0 if there is none
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * This method returns the mean of the values recorded.
+     * @return the mean; 0 if there is none
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * This method returns a percentile of the values recorded, as the middle of the bucket it falls in.
+     * @param percent the percentile, from 0 to 100
+     * @return the value at the percentile; 0 if there is none
+     */
+    public long getPercentile(double percent) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; ++i)
+            n += snapshot[i] = counts.get(i);
+        if (n == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percent / 100 * n)), seen = 0;
+        if (rank >= n)
+            return getMax();
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += snapshot[i];
+            if (seen >= rank)
+                return Math.min(getMax(), lowest(i) + (width(i) - 1) / 2);
+        }
+        return getMax();
+    }
+}
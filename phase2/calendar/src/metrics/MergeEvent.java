@@ -0,0 +1,19 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of several calendars shown as one.
+ */
+@Name("calendar.Merge")
+@Label("Calendar Merge")
+@Category("Calendar")
+@Description("Several calendars merged to be shown as one")
+@StackTrace(false)
+public class MergeEvent extends Event {
+    @Label("Calendars")
+    public String calendars;
+
+    @Label("Count")
+    public int count;
+}
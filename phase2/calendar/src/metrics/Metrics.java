@@ -0,0 +1,118 @@
+package metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class keeps the timers of the operations of the program. A timer is made the first time it is asked for and is
+ * registered with JMX as calendar:type=group,name=operation, so the numbers can be watched with jconsole or any JMX
+ * client while the program runs. They can also be appended to a log file at a fixed interval.
+ */
+public final class Metrics {
+    private static final ConcurrentHashMap<String, ConcurrentHashMap<String, Timer>> groups =
+            new ConcurrentHashMap<>();
+    private static ScheduledExecutorService logger;
+
+    private Metrics() {
+    }
+
+    /**
+     * This method returns the timer of an operation.
+     * @param group the part of the program, e.g. the name of the class
+     * @param operation the name of the operation
+     * @return the timer
+     */
+    public static Timer timer(String group, String operation) {
+        // the lookups that find the timer, which are all but the first, take no lock
+        ConcurrentHashMap<String, Timer> timers = groups.get(group);
+        if (timers == null)
+            timers = groups.computeIfAbsent(group, k -> new ConcurrentHashMap<>());
+        Timer timer = timers.get(operation);
+        return timer != null ? timer : timers.computeIfAbsent(operation, k -> register(group, k));
+    }
+
+    private static Timer register(String group, String operation) {
+        Timer timer = new Timer(group + "." + operation);
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(timer,
+                    new ObjectName("calendar:type=" + group + ",name=" + operation));
+        } catch (JMException | RuntimeException e) {
+            // the numbers are still kept and logged without JMX
+        }
+        return timer;
+    }
+
+    /**
+     * This method returns the numbers of all the timers that have recorded anything, one line each.
+     * @return the report
+     */
+    public static String report() {
+        Map<String, Timer> sorted = new TreeMap<>();
+        for (Map<String, Timer> group : groups.values())
+            for (Timer timer : group.values())
+                sorted.put(timer.getName(), timer);
+        StringBuilder sb = new StringBuilder(String.format("%-44s %9s %7s %10s %10s %10s %10s %12s %12s%n",
+                "operation", "count", "errors", "mean(us)", "p50(us)", "p99(us)", "max(us)", "bytes", "max bytes"));
+        for (Timer t : sorted.values()) {
+            if (t.getCount() == 0)
+                continue;
+            sb.append(String.format(Locale.ROOT, "%-44s %9d %7d %10.1f %10.1f %10.1f %10.1f %12d %12d%n",
+                    t.getName(), t.getCount(), t.getErrors(), t.getMeanMicros(), t.getP50Micros(),
+                    t.getP99Micros(), t.getMaxMicros(), t.getTotalBytes(), t.getMaxBytes()));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * This method starts appending the report to a file at a fixed interval, on a background thread.
+     * @param file the file
+     * @param interval the time between two reports
+     */
+    public static synchronized void startLog(File file, Duration interval) {
+        stopLog();
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        long ms = interval.toMillis();
+        logger.scheduleWithFixedDelay(() -> log(file), ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * This method stops the reports started by startLog.
+     */
+    public static synchronized void stopLog() {
+        if (logger != null) {
+            logger.shutdownNow();
+            logger = null;
+        }
+    }
+
+    /**
+     * This method appends the report to a file.
+     * @param file the file
+     */
+    public static void log(File file) {
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            out.println("== " + LocalDateTime.now());
+            out.print(report());
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
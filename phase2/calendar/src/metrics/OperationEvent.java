@@ -0,0 +1,20 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of an operation timed by a Timer, so that a pause seen in a recording can be tied to what
+ * the user was doing.
+ */
+@Name("calendar.Operation")
+@Label("Calendar Operation")
+@Category("Calendar")
+@Description("An operation of the calendar timed by the metrics")
+@StackTrace(false)
+public class OperationEvent extends Event {
+    @Label("Operation")
+    public String operation;
+
+    @Label("Failed")
+    public boolean failed;
+}
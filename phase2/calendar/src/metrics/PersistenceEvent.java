@@ -0,0 +1,23 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of a file read or written by the program.
+ */
+@Name("calendar.Persistence")
+@Label("Calendar Persistence")
+@Category({"Calendar", "I/O"})
+@Description("The data of a user read from or written to a file")
+public class PersistenceEvent extends Event {
+    @Label("Operation")
+    @Description("read, serialize or write")
+    public String operation;
+
+    @Label("File")
+    public String file;
+
+    @Label("Bytes")
+    @DataAmount
+    public long bytes;
+}
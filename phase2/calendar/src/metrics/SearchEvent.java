@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of a search of the events of a calendar.
+ */
+@Name("calendar.Search")
+@Label("Calendar Search")
+@Category("Calendar")
+@Description("A search of the events of the calendar shown")
+@StackTrace(false)
+public class SearchEvent extends Event {
+    @Label("Kind")
+    @Description("name, series, tag or date")
+    public String kind;
+
+    @Label("Query")
+    public String query;
+
+    @Label("Calendar")
+    public String calendar;
+
+    @Label("Results")
+    public int results;
+}
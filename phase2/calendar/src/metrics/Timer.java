@@ -0,0 +1,188 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class records how many times an operation has run, how many times it failed, how long it took and, for the
+ * operations that read or write data, how many bytes it handled. The runs timed by time are also recorded as
+ * OperationEvent when the flight recorder is on.
+ */
+public class Timer implements TimerMBean {
+    private final String name;
+    private final Histogram latency = new Histogram(), bytes = new Histogram();
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * Constructor of the class.
+     * @param name the name of the operation
+     */
+    Timer(String name) {
+        this.name = name;
+    }
+
+    /**
+     * This is the getter of the name of the operation.
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * This method records a run of the operation.
+     * @param nanos the time it took in nanoseconds
+     */
+    public void record(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * This method records a run of the operation that handled some data.
+     * @param nanos the time it took in nanoseconds
+     * @param size the number of bytes it read or wrote
+     */
+    public void record(long nanos, long size) {
+        latency.record(nanos);
+        bytes.record(size);
+    }
+
+    /**
+     * This method records that a run of the operation failed. The run itself is recorded by record.
+     */
+    public void error() {
+        errors.increment();
+    }
+
+    /**
+     * An operation timed by time that can throw checked exceptions.
+     * @param <T> the type of the result
+     * @param <E> the type of an exception it throws
+     * @param <F> the type of another exception it throws
+     */
+    @FunctionalInterface
+    public interface Action<T, E extends Exception, F extends Exception> {
+        /**
+         * This method runs the operation.
+         * @return the result of the operation
+         * @throws E an exception of the operation
+         * @throws F another exception of the operation
+         */
+        T call() throws E, F;
+    }
+
+    /**
+     * This method runs an operation and records it; an exception it throws is counted as an error. An operation that
+     * throws two kinds of checked exception has to give them as the type arguments E and F.
+     * @param body the operation
+     * @param <T> the type of the result
+     * @param <E> the type of an exception of the operation
+     * @param <F> the type of another exception of the operation
+     * @return the result of the operation
+     * @throws E an exception of the operation
+     * @throws F another exception of the operation
+     */
+    public <T, E extends Exception, F extends Exception> T time(Action<T, E, F> body) throws E, F {
+        OperationEvent event = new OperationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try {
+            return body.call();
+        } catch (Throwable e) {
+            errors.increment();
+            event.failed = true;
+            throw e;
+        } finally {
+            latency.record(System.nanoTime() - start);
+            commit(event);
+        }
+    }
+
+    /**
+     * This method runs an operation without a result and records it; an exception it throws is counted as an error.
+     * @param body the operation
+     */
+    public void time(Runnable body) {
+        time(() -> {
+            body.run();
+            return null;
+        });
+    }
+
+    private void commit(OperationEvent event) {
+        if (event.shouldCommit()) {
+            event.operation = name;
+            event.commit();
+        }
+    }
+
+    /**
+     * This is the getter of the histogram of the times in nanoseconds.
+     * @return the histogram
+     */
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * This is the getter of the histogram of the bytes handled; it is empty for the operations that handle no data.
+     * @return the histogram
+     */
+    public Histogram getBytes() {
+        return bytes;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMicros() {
+        return latency.getMean() / 1e3;
+    }
+
+    @Override
+    public double getP50Micros() {
+        return latency.getPercentile(50) / 1e3;
+    }
+
+    @Override
+    public double getP90Micros() {
+        return latency.getPercentile(90) / 1e3;
+    }
+
+    @Override
+    public double getP99Micros() {
+        return latency.getPercentile(99) / 1e3;
+    }
+
+    @Override
+    public double getP999Micros() {
+        return latency.getPercentile(99.9) / 1e3;
+    }
+
+    @Override
+    public double getMaxMicros() {
+        return latency.getMax() / 1e3;
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return bytes.getSum();
+    }
+
+    @Override
+    public long getP99Bytes() {
+        return bytes.getPercentile(99);
+    }
+
+    @Override
+    public long getMaxBytes() {
+        return bytes.getMax();
+    }
+}
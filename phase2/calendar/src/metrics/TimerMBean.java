@@ -0,0 +1,28 @@
+package metrics;
+
+/**
+ * The numbers of a Timer shown through JMX. The times are in microseconds.
+ */
+public interface TimerMBean {
+    long getCount();
+
+    long getErrors();
+
+    double getMeanMicros();
+
+    double getP50Micros();
+
+    double getP90Micros();
+
+    double getP99Micros();
+
+    double getP999Micros();
+
+    double getMaxMicros();
+
+    long getTotalBytes();
+
+    long getP99Bytes();
+
+    long getMaxBytes();
+}
@@ -0,0 +1,26 @@
+package metrics;
+
+import jdk.jfr.*;
+
+/**
+ * The flight recorder event of the events of a calendar shown by their status. The status of an event is worked out
+ * from the current time when it is shown, so this is where the cost of time going by shows up.
+ */
+@Name("calendar.View")
+@Label("Calendar View")
+@Category("Calendar")
+@Description("The past, ongoing or future events of the calendar shown")
+@StackTrace(false)
+public class ViewEvent extends Event {
+    @Label("Calendar")
+    public String calendar;
+
+    @Label("Past")
+    public int past;
+
+    @Label("Ongoing")
+    public int ongoing;
+
+    @Label("Future")
+    public int future;
+}
@@ -0,0 +1,158 @@
+package test;
+
+import backend_system.Alarm;
+import backend_system.entities.Alert;
+import clock.Clock;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A test for the alarm, which keeps its alerts in a timing wheel that moves with the Clock
+ */
+public class AlarmTest {
+
+    private static List<String> due(Alarm alarm, LocalDateTime now) {
+        Clock.jumpTo(now);
+        List<String> names = new ArrayList<>();
+        while (alarm.hasNext())
+            names.add(alarm.next().getAlertName());
+        return names;
+    }
+
+    private static void expect(List<String> actual, String... expected) {
+        assert actual.equals(Arrays.asList(expected)) : actual;
+    }
+
+    /**
+     * testing code
+     * @param args the argument
+     * @throws InterruptedException an exception
+     * @throws IOException an exception in writing the file of the Clock
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        Clock.init(null);
+        Clock.setSpeed(0);
+        // a second where a new slot of 64 seconds and of 4096 seconds begins, and the second before it
+        LocalDateTime aligned = LocalDateTime.ofEpochSecond(4096L * 462270, 0, ZoneOffset.UTC);
+        for (LocalDateTime t : Arrays.asList(aligned, aligned.minusSeconds(1))) {
+            // alerts on both sides of the boundaries between the levels
+            Clock.jumpTo(t);
+            Alarm alarm = new Alarm();
+            for (long s : new long[]{4097, 64, 4095, 63, 4096, 1, 262144})
+                alarm.add("+" + s, t.plusSeconds(s));
+            expect(due(alarm, t));
+            expect(due(alarm, t.plusSeconds(62)), "+1");
+            expect(due(alarm, t.plusSeconds(63)), "+63");
+            expect(due(alarm, t.plusSeconds(64)), "+64");
+            expect(due(alarm, t.plusSeconds(4095)), "+4095");
+            expect(due(alarm, t.plusSeconds(4096)), "+4096");
+            expect(due(alarm, t.plusSeconds(5000)), "+4097");
+            expect(due(alarm, t.plusDays(10)), "+262144");
+        }
+
+        // alerts that have come are not due any more when the Clock goes back before them
+        LocalDateTime t = aligned;
+        Clock.jumpTo(t);
+        Alarm alarm = new Alarm();
+        alarm.add("x", t.plusSeconds(10));
+        alarm.add("y", t.plusSeconds(100));
+        Clock.jumpTo(t.plusSeconds(200));
+        assert alarm.hasNext();
+        expect(due(alarm, t.minusSeconds(1000)));
+        expect(due(alarm, t.plusSeconds(9)));
+        expect(due(alarm, t.plusSeconds(10)), "x");
+        expect(due(alarm, t.minusSeconds(1)));
+        expect(due(alarm, t.plusSeconds(5000)), "y");
+        // and the alerts laid out from a later time are found from an earlier one
+        alarm.add("z", t.plusSeconds(5100));
+        alarm.add("w", t.plusSeconds(300000));
+        expect(due(alarm, t.minusSeconds(100000)));
+        expect(due(alarm, t.plusSeconds(5099)));
+        expect(due(alarm, t.plusSeconds(5100)), "z");
+        expect(due(alarm, t.plusSeconds(299999)));
+        expect(due(alarm, t.plusSeconds(300000)), "w");
+        // and an alert that had come can still be removed after the Clock goes back before it
+        alarm.add("u", t.plusSeconds(300010));
+        alarm.add("v", t.plusSeconds(300020));
+        Clock.jumpTo(t.plusSeconds(300030));
+        assert alarm.hasNext();
+        Clock.jumpTo(t.plusSeconds(300000));
+        assert !alarm.hasNext();
+        alarm.remove(new Alert("u", t.plusSeconds(300010)));
+        expect(due(alarm, t.plusSeconds(300030)), "v");
+
+        // equal alerts are kept once each, and removing one leaves the others
+        Clock.jumpTo(t);
+        alarm = new Alarm();
+        for (String name : new String[]{"d", "d", "d", "e"})
+            alarm.add(name, t.plusSeconds(5));
+        alarm.remove(new Alert("d", t.plusSeconds(5)));
+        expect(due(alarm, t.plusSeconds(4)));
+        alarm.add("d", t.plusSeconds(70));
+        alarm.add("d", t.plusSeconds(70));
+        Clock.jumpTo(t.plusSeconds(5));
+        alarm.remove(new Alert("d", t.plusSeconds(5)));
+        alarm.remove(new Alert("f", t.plusSeconds(5)));
+        expect(due(alarm, t.plusSeconds(5)), "d", "e");
+        alarm.remove(new Alert("d", t.plusSeconds(70)));
+        expect(due(alarm, t.plusSeconds(70)), "d");
+
+        // alerts before 1970, whose epoch seconds are negative
+        LocalDateTime epoch = LocalDateTime.ofEpochSecond(0, 0, ZoneOffset.UTC);
+        LocalDateTime old = LocalDateTime.parse("1960-01-01T00:00");
+        Clock.jumpTo(old);
+        alarm = new Alarm();
+        alarm.add("before", epoch.minusSeconds(1));
+        alarm.add("at", epoch);
+        alarm.add("after", epoch.plusSeconds(1));
+        alarm.add("1960", old.plusSeconds(64));
+        alarm.add("2000", LocalDateTime.parse("2000-01-01T00:00"));
+        expect(due(alarm, old.plusSeconds(63)));
+        expect(due(alarm, old.plusSeconds(64)), "1960");
+        expect(due(alarm, epoch.minusSeconds(2)));
+        expect(due(alarm, epoch), "before", "at");
+        expect(due(alarm, LocalDateTime.parse("2001-01-01T00:00")), "after", "2000");
+
+        // the alarm follows the Clock at any speed
+        Clock.jumpTo(t);
+        alarm = new Alarm();
+        alarm.add("soon", t.plusSeconds(63));
+        alarm.add("later", t.plusHours(10));
+        Clock.setSpeed(3600);
+        TimeUnit.MILLISECONDS.sleep(200);
+        Clock.setSpeed(0);
+        List<String> names = new ArrayList<>();
+        while (alarm.hasNext())
+            names.add(alarm.next().getAlertName());
+        expect(names, "soon");
+
+        // the Clock in the simulation mode is not written to its file and tells no listener until the simulation ends
+        File file = File.createTempFile("clock", ".txt");
+        file.deleteOnExit();
+        assert file.delete();
+        Clock.init(file);
+        Clock.setSpeed(2);
+        String saved = new String(Files.readAllBytes(file.toPath()));
+        int[] told = {0};
+        Runnable listener = () -> ++told[0];
+        Clock.addListener(listener);
+        Clock.startSimulation();
+        Clock.advanceTo(Clock.getTime().plusDays(1));
+        assert Clock.getSpeed() == 0 && told[0] == 0;
+        assert saved.equals(new String(Files.readAllBytes(file.toPath())));
+        Clock.endSimulation();
+        assert Clock.getSpeed() == 2 && told[0] == 1;
+        assert !saved.equals(new String(Files.readAllBytes(file.toPath())));
+        Clock.removeListener(listener);
+        Clock.init(null);
+        System.out.println("pass");
+    }
+}
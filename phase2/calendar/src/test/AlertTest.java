@@ -0,0 +1,115 @@
+package test;
+
+import backend_system.entities.Alert;
+import backend_system.entities.AlertRule;
+import backend_system.managers.AlertManager;
+import clock.Clock;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A test for the alerts that repeat by a rule
+ */
+public class AlertTest {
+
+    private static List<String> times(Iterator<Alert> it) {
+        List<String> times = new ArrayList<>();
+        while (it.hasNext()) {
+            Alert a = it.next();
+            times.add(a.getAlertName() + "@" + a.getAlertDateTime().toLocalTime());
+        }
+        return times;
+    }
+
+    private static LocalDateTime at(String time) {
+        return LocalDateTime.parse("2030-01-01T" + time);
+    }
+
+    /**
+     * testing code
+     * @param args the argument
+     */
+    public static void main(String[] args) {
+        Duration tenMinutes = Duration.ofMinutes(10);
+
+        // skipping an alert that is not the first leaves the others
+        AlertRule rule = new AlertRule("r", at("10:00"), at("11:00"), tenMinutes);
+        assert rule.skip(at("10:20"));
+        assert !rule.skip(at("10:20"));
+        assert !rule.skip(at("10:05"));
+        assert rule.first().equals(at("10:00"));
+        assert !rule.contains(new Alert("r", at("10:20")));
+        assert rule.contains(new Alert("r", at("10:30")));
+        assert times(rule.iterator(at("10:00"))).toString().equals("[r@10:00, r@10:10, r@10:30, r@10:40, r@10:50]");
+        assert rule.first(at("10:11")).equals(at("10:30"));
+
+        // passing to the time of an alert passes that alert, and the skipped ones before the next
+        rule.passTo(at("10:10"));
+        assert rule.getFrom().equals(at("10:30")) && rule.first().equals(at("10:30"));
+        assert rule.getSkipped().isEmpty();
+        rule.passTo(at("10:30"));
+        assert rule.first().equals(at("10:40"));
+        rule.passTo(at("10:20"));
+        assert rule.first().equals(at("10:40"));
+        rule.passTo(at("10:41"));
+        assert rule.first().equals(at("10:50"));
+
+        // an alert at the time until which the rule goes off is not one of its alerts
+        rule = new AlertRule("u", at("10:00"), at("10:30"), tenMinutes);
+        assert times(rule.iterator(LocalDateTime.MIN)).toString().equals("[u@10:00, u@10:10, u@10:20]");
+        assert !rule.occursAt(at("10:30")) && rule.first(at("10:21")) == null;
+        assert !rule.skip(at("10:30"));
+        rule.passTo(at("10:20"));
+        assert rule.isOver();
+
+        // the single alerts and the alerts of the rules are paged through together in the order they go off
+        AlertManager manager = new AlertManager();
+        LocalDateTime now = at("09:00");
+        manager.createNormalAlert("s", at("10:05"), now);
+        manager.createNormalAlert("s", at("10:31"), now);
+        manager.createNormalAlert("s", at("10:50"), now);
+        manager.createFrequencyAlert("a", at("10:00"), at("11:00"), Duration.ofMinutes(15), now);
+        manager.createFrequencyAlert("b", at("10:02"), at("11:00"), Duration.ofMinutes(20), now);
+        String all = "[a@10:00, b@10:02, s@10:05, a@10:15, b@10:22, a@10:30, s@10:31, b@10:42, a@10:45, s@10:50]";
+        assert times(manager.getAlertList().iterator()).toString().equals(all);
+        List<String> paged = new ArrayList<>();
+        LocalDateTime from = LocalDateTime.MIN;
+        for (List<Alert> page = manager.getAlertList(from, 3); !page.isEmpty(); page = manager.getAlertList(from, 3)) {
+            assert page.size() <= 3;
+            paged.addAll(times(page.iterator()));
+            from = page.get(page.size() - 1).getAlertDateTime().plusNanos(1);
+        }
+        assert paged.toString().equals(all);
+        assert times(manager.alerts(at("10:30"))).toString()
+                .equals("[a@10:30, s@10:31, b@10:42, a@10:45, s@10:50]");
+
+        // the alerts of a rule that have gone off are worked out from the rule, without the ones removed
+        rule = new AlertRule("p", at("10:00"), at("11:00"), tenMinutes);
+        assert rule.skip(at("10:00")) && rule.skip(at("10:20"));
+        assert !rule.pastAlerts().hasNext();
+        rule.goOff(at("10:10"));
+        assert rule.skip(at("10:40")) && rule.skip(at("10:30"));
+        rule.goOff(at("10:50"));
+        assert rule.isOver();
+        assert times(rule.pastAlerts()).toString().equals("[p@10:10, p@10:50]");
+
+        // the manager keeps the rules, not their alerts, for the alerts that have gone off
+        Clock.init(null);
+        Clock.setSpeed(0);
+        Clock.jumpTo(at("09:00"));
+        manager = new AlertManager();
+        manager.createNormalAlert("s", at("10:05"), at("09:00"));
+        manager.createFrequencyAlert("a", at("10:00"), at("10:30"), tenMinutes, at("09:00"));
+        manager.createFrequencyAlert("b", at("10:01"), at("12:00"), Duration.ofMinutes(30), at("09:00"));
+        Clock.jumpTo(at("10:30"));
+        manager.ring();
+        assert manager.getAlertRules().size() == 1;
+        assert times(manager.getPastAlertList().iterator()).toString()
+                .equals("[a@10:00, b@10:01, s@10:05, a@10:10, a@10:20]");
+        System.out.println("pass");
+    }
+}
@@ -2,13 +2,19 @@ package test;
 
 import backend_system.Calendar;
 import backend_system.entities.Event;
+import backend_system.entities.EventSeries;
+import backend_system.entities.Memo;
+import backend_system.entities.Tag;
 import clock.Clock;
 import clock.Time;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * a test for calendar
@@ -54,10 +60,117 @@ public class CalendarTest {
                 (cmp == 1 ? future : (cmp == 0 ? ongoing : past)).add(e);
             }
             Collections.sort(past);
+            Collections.sort(ongoing);
             Collections.sort(future);
             assert past.equals(em.getEvents(Time.PAST));
+            assert ongoing.equals(em.getEvents(Time.ONGOING));
             assert future.equals(em.getEvents(Time.FUTURE));
+            List<Event> view = em.getEvents(Time.PAST);
+            for (int k = 0; k < past.size(); k += 97)
+                assert past.get(k) == view.get(k);
+
+            LocalDateTime to = c.plusHours((long) (Math.random() * 72));
+            List<Event> overlapping = new ArrayList<>();
+            for (Event e : es)
+                if (e.getStartDateTime().isBefore(to) && e.getEndDateTime().isAfter(c))
+                    overlapping.add(e);
+            Collections.sort(overlapping);
+            assert overlapping.equals(em.searchOverlapping(c, to));
+
+            LocalDateTime boundary = null;
+            for (Event e : es)
+                for (LocalDateTime b : new LocalDateTime[]{e.getStartDateTime(), e.getEndDateTime()})
+                    if (b.isAfter(c) && (boundary == null || b.isBefore(boundary)))
+                        boundary = b;
+            assert Objects.equals(boundary, em.nextBoundary(c));
+        }
+
+        Event first = es.get(0), second = es.get(1);
+        em.addTagToEvent("Work", first);
+        em.addTagToEvent("workshop", second);
+        assert em.searchByTag("Work").equals(Collections.singletonList(first));
+        assert em.searchByTag("work", true, false).equals(Collections.singletonList(first));
+        assert em.searchByTag("work", true, true).size() == 2;
+        assert em.searchByTag("work", false, true).equals(Collections.singletonList(second));
+        em.editEntireTag(new Tag("Work"), "workshop");
+        assert em.searchByTag("Work").isEmpty();
+        assert em.searchByTag("workshop").size() == 2;
+        em.deleteEntireTag(new Tag("workshop"));
+        assert em.searchByTag("w", true, true).isEmpty();
+
+        Event third = es.get(2);
+        em.addMemoToEvent("Lunch with Bob in room 204", first);
+        em.addMemoToEvent("Room booking: 204, lunch later", second);
+        em.addMemoToEvent("lunch lunch lunch", third);
+        assert em.searchByMemo("LUNCH room").size() == 2;
+        assert em.searchByMemo("\"room 204\" lunch").equals(Collections.singletonList(first));
+        assert em.searchByMemo("lunch").get(0) == third;
+        assert em.searchByMemo("dinner").isEmpty();
+        em.editMemoForOne(new Memo("Lunch with Bob in room 204"), "dinner with Bob", first);
+        assert em.searchByMemo("dinner").equals(Collections.singletonList(first));
+        assert em.searchByMemo("room 204").equals(Collections.singletonList(second));
+        em.editEntireMemo(new Memo("lunch lunch lunch"), "brunch");
+        em.deleteMemoFromEvent(second, new Memo("Room booking: 204, lunch later"));
+        assert em.searchByMemo("lunch").isEmpty();
+        assert em.searchByMemo("brunch").equals(Collections.singletonList(third));
+
+        // the memos of merged calendars are ranked as if they were in one calendar, though a calendar with more memos
+        // would give its rare words higher scores by itself
+        Calendar few = new Calendar("few"), many = new Calendar("many");
+        few.createEvent("short", t[0], t[1]);
+        few.addMemoToEvent("alpha", few.getEvent("short"));
+        many.createEvent("long", t[0], t[1]);
+        many.addMemoToEvent("alpha alpha beta", many.getEvent("long"));
+        for (int i = 0; i < 9; ++i) {
+            many.createEvent("other " + i, t[0], t[1]);
+            many.addMemoToEvent("gamma " + i, many.getEvent("other " + i));
+        }
+        Calendar merged = Calendar.mergeCalendars(Arrays.asList(many, few));
+        assert merged.searchByMemo("alpha").equals(Arrays.asList(few.getEvent("short"), many.getEvent("long")));
+        assert few.searchByMemo("alpha").size() == 1 && many.searchByMemo("alpha").size() == 1;
+
+        // a series kept as a rule shows the same events as one that keeps all of them
+        Calendar rules = new Calendar("rules");
+        Duration day = Duration.ofDays(1);
+        rules.createEvent("daily", t[0], t[0].plusHours(30), "dailies", day, n);
+        List<Event> daily = new EventSeries("daily", t[0], t[0].plusHours(30), "dailies", day, n).getEventList();
+        c = LocalDateTime.parse("2020-03-07T00:00");
+        for (int i = 0; i < n; i += 7, c = c.plusHours(31)) {
+            Clock.jumpTo(c);
+            List<Event> past = new ArrayList<>(), ongoing = new ArrayList<>(), future = new ArrayList<>();
+            for (Event e : daily) {
+                int cmp = e.ifInProgress(c);
+                (cmp == 1 ? future : (cmp == 0 ? ongoing : past)).add(e);
+            }
+            assert past.toString().equals(rules.getEvents(Time.PAST).toString());
+            assert ongoing.toString().equals(rules.getEvents(Time.ONGOING).toString());
+            assert future.toString().equals(rules.getEvents(Time.FUTURE).toString());
+            LocalDateTime to = c.plusHours(50);
+            List<Event> overlapping = new ArrayList<>();
+            for (Event e : daily)
+                if (e.getStartDateTime().isBefore(to) && e.getEndDateTime().isAfter(c))
+                    overlapping.add(e);
+            assert overlapping.toString().equals(rules.searchOverlapping(c, to).toString());
         }
+        assert rules.getEventsMapping().isEmpty();
+        Event taken = rules.getEvent("daily 5");
+        rules.addTagToEvent("kept", taken);
+        assert rules.getEventsMapping().get("daily 5") == taken;
+        assert rules.searchByTag("kept").equals(Collections.singletonList(taken));
+        assert rules.searchByName("daily 5").get(0) == taken;
+        rules.deleteEvent("daily 6");
+        assert rules.getEvent("daily 6") == null;
+        assert rules.getEvents(Time.ALL).size() == n - 1;
+
+        // a moved or renamed occurrence is kept as a change of the series, not as a real event
+        Event moved = rules.getEvent("daily 80");
+        LocalDateTime at = moved.getStartDateTime().minusDays(40).plusHours(3);
+        rules.editEventTime(moved, at.plusHours(1), at);
+        rules.editEventName(rules.getEvent("daily 80"), "moved");
+        assert rules.getEventsMapping().size() == 1;
+        assert rules.getEvent("daily 80") == null && rules.getEvent("moved").getStartDateTime().equals(at);
+        assert rules.searchOverlapping(at, at.plusHours(1)).contains(rules.getEvent("moved"));
+        assert rules.getEvents(Time.ALL).size() == n - 1;
         System.out.println("Pass");
     }
 }
@@ -0,0 +1,136 @@
+package test;
+
+import backend_system.Calendar;
+import backend_system.CommonCalendar;
+import backend_system.UserSystem;
+import backend_system.entities.Event;
+import backend_system.entities.Memo;
+import backend_system.entities.Tag;
+import clock.Clock;
+import clock.Time;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A test for the common calendar used by several sessions at once
+ */
+public class CommonCalendarTest {
+    private static final String[] USERS = {"ann", "ben", "guest of ann", "guest of ben"};
+
+    private static String users(CommonCalendar common) {
+        StringBuilder sb = new StringBuilder();
+        for (Event e : common.getEvents(Time.ALL)) {
+            sb.append(e.getName()).append(':');
+            for (String user : USERS)
+                if (common.contains(e.getName(), user))
+                    sb.append(' ').append(user);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * testing code
+     * @param args the argument
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     * @throws InterruptedException an exception
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException, InterruptedException {
+        Clock.init(null);
+        UserSystem userSystem = new UserSystem();
+        CommonCalendar common = userSystem.getCommonCalendar();
+        final int n = 200;
+        LocalDateTime t = LocalDateTime.parse("2030-01-01T00:00");
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+        for (int k = 0; k < 2; ++k) {
+            String user = USERS[k], guest = USERS[k + 2];
+            LocalDateTime first = t.plusMinutes(k);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    Calendar session = common.session(user);
+                    for (int i = 0; i < n; ++i) {
+                        String name = user + " " + i;
+                        session.createEvent(name, first.plusHours(i), first.plusHours(i).plusMinutes(30));
+                        common.addUser(name, guest);
+                        if (i % 3 == 2)
+                            common.removeUser(name, guest);
+                        if (i % 5 == 4)
+                            session.deleteEvent(session.getEvent(user + " " + (i - 1)));
+                        for (Event e : session.getEvents(Time.ALL))
+                            if (!e.getName().startsWith(user + " "))
+                                throw new AssertionError(user + " sees " + e);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+        for (Thread thread : threads)
+            thread.start();
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        // each session sees the events it has not deleted, each guest those not taken away from it
+        int kept = 0, shared = 0;
+        for (int i = 0; i < n; ++i) {
+            kept += i % 5 == 3 ? 0 : 1;
+            shared += i % 3 == 2 ? 0 : 1;
+        }
+        for (int k = 0; k < 2; ++k) {
+            List<Event> own = common.session(USERS[k]).getEvents(Time.ALL);
+            assert own.size() == kept;
+            assert common.getEvents(Time.ALL, USERS[k + 2]).size() == shared;
+            for (Event e : own)
+                assert e.getName().startsWith(USERS[k] + " ");
+        }
+
+        // the changes of the sessions are replayed from the journal for the same users
+        String expected = users(common);
+        assert new File("usr/common.log").exists();
+        UserSystem reloaded = new UserSystem();
+        assert expected.equals(users(reloaded.getCommonCalendar()));
+
+        // a session finds only the events of its user, whatever it searches by
+        Calendar ann = common.session("ann"), ben = common.session("ben");
+        LocalDateTime day = LocalDateTime.parse("2031-01-01T10:00");
+        ann.createEvent("secret", day, day.plusHours(1));
+        ann.createEvent("hidden", day, day.plusHours(2), "ann series", Duration.ofDays(1), 2);
+        ben.createEvent("open", day, day.plusHours(1));
+        for (Calendar session : Arrays.asList(ann, ben)) {
+            Event e = session.getEvent(session == ann ? "secret" : "open");
+            session.addTagToEvent("x", e);
+            session.addMemoToEvent((session == ann ? "secret" : "open") + " plans", e);
+        }
+        ann.addMemoToEvent("only ann", ann.getEvent("secret"));
+        List<List<Event>> found = Arrays.asList(ben.searchByDate(day.toLocalDate()),
+                ben.searchOverlapping(day, day.plusDays(2)), ben.searchByTag("x"), ben.searchByTag("X", true, true),
+                ben.searchByMemo("plans"), ben.getEventsOfTag(new Tag("x")), ben.getEventsOfMemo(new Memo("open plans")));
+        for (List<Event> events : found) {
+            assert events.size() == 1;
+            assert events.get(0).getName().equals("open");
+        }
+        assert ben.getEventsOfMemo(new Memo("secret plans")).isEmpty();
+        assert ben.getEventsMapping().containsKey("open") && !ben.getEventsMapping().containsKey("secret");
+        assert !ben.hasEventWithSameName("secret") && ben.hasEventWithSameName("open");
+        assert ben.getAllEventSeries().isEmpty() && ben.searchSeriesByName("ann series") == null;
+        assert ben.searchBySeriesName("ann series") == null;
+        assert ben.getContentOfAllTags().equals(Collections.singletonList("x"));
+        assert ben.getContentOfAllMemos().equals(Collections.singletonList("open plans"));
+        assert ann.searchByMemo("plans").size() == 1 && ann.getAllEventSeries().size() == 1;
+        assert ann.searchByDate(day.toLocalDate()).size() == 2;
+        System.out.println("pass");
+    }
+}
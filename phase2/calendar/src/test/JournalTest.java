@@ -0,0 +1,106 @@
+package test;
+
+import backend_system.Calendar;
+import backend_system.UserSystem;
+import backend_system.entities.Event;
+import backend_system.entities.EventSeries;
+import backend_system.entities.Tag;
+import clock.Clock;
+import clock.Time;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A test for the journaled persistence
+ */
+public class JournalTest {
+
+    private static String dump(Calendar c) {
+        StringBuilder sb = new StringBuilder();
+        for (Event e : c.getEvents(Time.ALL))
+            sb.append(e).append(e.viewAllTag()).append(e.viewAllMemo()).append(e.getAllAlerts()).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * testing code
+     * @param args the argument
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     * @throws InterruptedException an exception
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException, InterruptedException {
+        Clock.init(null);
+        Clock.jumpTo(LocalDateTime.parse("2020-03-01T00:00"));
+        UserSystem userSystem = new UserSystem();
+        if (!userSystem.userExists("journal"))
+            userSystem.createAccount("journal", "123");
+
+        userSystem.login("journal", "123");
+        userSystem.getUser().addCalender("work");
+        Calendar c = userSystem.getUser().getCalender("work");
+        c.createEvent("meeting", LocalDateTime.parse("2020-03-02T10:00"), LocalDateTime.parse("2020-03-02T11:00"));
+        c.createEvent("class", LocalDateTime.parse("2020-03-03T10:00"), LocalDateTime.parse("2020-03-03T11:00"),
+                "lectures", Duration.ofDays(7), 3);
+        c.addTagToEvent("important", c.getEvent("meeting"));
+        c.addTagToEvent("important", c.getEvent("class 2"));
+        c.addMemoToEvent("room 101", c.getEvent("class 1"));
+        c.setAlert(c.getEvent("meeting"), "go", LocalDateTime.parse("2020-03-02T09:50"));
+        c.editEntireTag(new Tag("important"), "urgent");
+        c.editEventName(c.getEvent("class 3"), "exam");
+        c.deleteEvent("class 1");
+        String expected = dump(c);
+        userSystem.logoff();
+
+        assert new File("usr/journal.log").exists();
+        assert new File("usr/journal/calendar0.log").exists();
+
+        UserSystem reloaded = new UserSystem();
+        reloaded.login("journal", "123");
+        assert expected.equals(dump(reloaded.getUser().getCalender("work")));
+
+        Calendar work = reloaded.getUser().getCalender("work");
+        work.addMemoToEvent("bring laptop", work.getEvent("meeting"));
+        expected = dump(work);
+        reloaded.startCheckpoints(Duration.ofMillis(100), Runnable::run);
+        TimeUnit.MILLISECONDS.sleep(500);
+        assert !new File("usr/journal.log").exists();
+        assert !new File("usr/journal/calendar0.log").exists();
+        reloaded.logoff();
+        reloaded.stopCheckpoints();
+
+        UserSystem checkpointed = new UserSystem();
+        checkpointed.login("journal", "123");
+        assert expected.equals(dump(checkpointed.getUser().getCalender("work")));
+
+        // the changes of single occurrences of a series are replayed into the series, not as events of their own
+        checkpointed.getUser().addCalender("daily");
+        Calendar daily = checkpointed.getUser().getCalender("daily");
+        daily.createEvent("day", LocalDateTime.parse("2020-03-02T08:00"), LocalDateTime.parse("2020-03-02T09:00"),
+                "days", Duration.ofDays(1), 1800);
+        daily.editEventName(daily.getEvent("day 5"), "holiday");
+        daily.editEventTime(daily.getEvent("day 7"), LocalDateTime.parse("2020-03-09T12:00"),
+                LocalDateTime.parse("2020-03-09T11:00"));
+        daily.deleteEvent(daily.getEvent("day 9"));
+        expected = dump(daily);
+        checkpointed.logoff();
+
+        UserSystem replayed = new UserSystem();
+        replayed.login("journal", "123");
+        daily = replayed.getUser().getCalender("daily");
+        EventSeries days = daily.searchSeriesByName("days");
+        assert days.getTaken().isEmpty();
+        assert days.getChanges().keySet().equals(new TreeSet<>(Arrays.asList(4, 6, 8)));
+        assert daily.getEventsMapping().isEmpty();
+        assert expected.equals(dump(daily));
+        replayed.logoff();
+
+        System.out.println("pass");
+    }
+}
@@ -34,5 +34,11 @@ public class MessageTest {
         for (Message m: ms)
             System.out.println(m);
         userSystem.logoff();
+
+        // the messages received are not received again after a restart
+        userSystem = new UserSystem();
+        userSystem.login("Bob", "456");
+        System.out.println(userSystem.receiveMessages().isEmpty() ? "pass" : "fail");
+        userSystem.logoff();
     }
 }
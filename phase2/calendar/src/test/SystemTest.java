@@ -0,0 +1,76 @@
+package test;
+
+import calendar_simulation.CalendarSystem;
+import clock.Clock;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * a test for the operations of the user on the calendars shown
+ */
+public class SystemTest {
+    /**
+     * testing code
+     * @param args the argument
+     * @throws IOException an exception in file I/O
+     * @throws ClassNotFoundException an exception in serialization
+     */
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        Clock.init(null);
+        CalendarSystem sys = CalendarSystem.getInstance();
+        sys.createAccount("Carol", "789");
+        assert sys.login("Carol", "789") == 1;
+        sys.createCalendar("A");
+        sys.createCalendar("B");
+        LocalDateTime t = LocalDateTime.parse("2030-05-01T10:00");
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("A")));
+        sys.createEvent("a", t, t.plusHours(1));
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("B")));
+        sys.createEvent("b", t.plusHours(2), t.plusHours(3));
+
+        // an event found in several calendars is deleted from the list shown as well
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("A", "B")));
+        assert sys.searchByDate(t.toLocalDate()) == 1;
+        sys.selectEvent(0);
+        sys.deleteCurrentEvent();
+        assert sys.getCurrentEventListName().size() == 1;
+        assert sys.searchByDate(t.toLocalDate()) == 1 && sys.getCurrentEventListName().size() == 1;
+
+        // and so is one found in the common calendar alone
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("Common")));
+        sys.createEvent("c", t, t.plusHours(1));
+        assert sys.searchByDate(t.toLocalDate()) == 1;
+        sys.selectEvent(0);
+        sys.deleteCurrentEvent();
+        assert sys.getCurrentEventListName().isEmpty();
+        assert sys.searchByDate(LocalDate.parse("2030-05-01")) == -1;
+
+        // a common event of Carol is not found by another user in the calendars merged with the common one
+        sys.createEvent("secret", t, t.plusHours(1));
+        sys.searchByName("secret");
+        sys.selectEvent(0);
+        sys.addTagToEvent("x");
+        sys.addNewMemo("plans of Carol");
+        sys.logoff();
+        sys.createAccount("Dave", "012");
+        assert sys.login("Dave", "012") == 1;
+        sys.createCalendar("D");
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("D")));
+        sys.createEvent("d", t.plusHours(2), t.plusHours(3));
+        sys.searchByName("d");
+        sys.selectEvent(0);
+        sys.addTagToEvent("x");
+        sys.addNewMemo("plans of Dave");
+        sys.updateCurrentCalendar(new ArrayList<>(Arrays.asList("D", "Common")));
+        assert sys.searchByDate(t.toLocalDate()) == 1 && sys.getCurrentEventListName().equals(Arrays.asList("d"));
+        assert sys.searchByTag("x") == 1 && sys.getCurrentEventListName().equals(Arrays.asList("d"));
+        assert sys.getContentOfAllTags().equals(Arrays.asList("x"));
+        assert sys.getContentOfAllMemos().equals(Arrays.asList("plans of Dave"));
+        sys.logoff();
+        System.out.println("pass");
+    }
+}